@@ -1,5 +1,5 @@
 import React, { useEffect, useState } from "react";
-import { api } from "./api";
+import { api, getAllUsers } from "./api";
 import UserGrid from "./components/UserGrid";
 import AddUserModal from "./components/AddUserModal";
 import EditUserModal from "./components/EditUserModal";
@@ -28,8 +28,7 @@ const App: React.FC = () => {
 
     const fetchUsers = async () => {
         try {
-            const res = await api.get<User[]>("/users");
-            setUsers(res.data);
+            setUsers(await getAllUsers());
         } catch {
             alert("Ошибка загрузки пользователей");
         }
@@ -7,6 +7,25 @@ export const api = axios.create({
     paramsSerializer: params => qs.stringify(params, { arrayFormat: "repeat" }),
 });
 
+export interface UserPage {
+    items: User[];
+    nextCursor: string | null;
+}
+
+// GET /users отдаёт страницы по ключу: идём по nextCursor, пока он не кончится
+export const getAllUsers = async (): Promise<User[]> => {
+    const users: User[] = [];
+    let cursor: string | null = null;
+    do {
+        const res: { data: UserPage } = await api.get<UserPage>("/users", {
+            params: { limit: 500, cursor: cursor ?? undefined },
+        });
+        users.push(...res.data.items);
+        cursor = res.data.nextCursor;
+    } while (cursor);
+    return users;
+};
+
 export const searchByInterest = (interestType: string) =>
     api.get<User[]>("/users/by-interest", {
         params: { interestType },
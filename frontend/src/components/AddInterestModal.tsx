@@ -1,5 +1,5 @@
 import React, { useEffect, useState } from "react";
-import { api } from "../api";
+import { api, getAllUsers } from "../api";
 import { User } from "../App";
 
 interface Props {
@@ -13,7 +13,7 @@ const AddInterestModal: React.FC<Props> = ({ onClose, onSuccess }) => {
     const [interest, setInterest] = useState("");
 
     useEffect(() => {
-        api.get<User[]>("/users").then(res => setUsers(res.data));
+        getAllUsers().then(setUsers);
     }, []);
 
     const handleSubmit = async () => {
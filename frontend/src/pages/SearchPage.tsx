@@ -1,6 +1,6 @@
 import React, { useEffect, useState } from "react";
 import Header from "../components/Header";
-import { searchByInterest, searchByAllInterests, searchByAnyInterest, api } from "../api";
+import { searchByInterest, searchByAllInterests, searchByAnyInterest, api, getAllUsers } from "../api";
 import { User, Interest } from "../App";
 import AddInterestModal from "../components/AddInterestModal";
 import AddUserModal from "../components/AddUserModal";
@@ -23,8 +23,7 @@ const SearchPage: React.FC = () => {
     const fetchAllUsers = async () => {
         setLoading(true);
         try {
-            const res = await api.get<User[]>("/users");
-            setResults(res.data);
+            setResults(await getAllUsers());
         } catch {
             alert("Ошибка загрузки пользователей");
         } finally {
@@ -0,0 +1,554 @@
+package com.kirill.meetyou.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Конкурентный кэш с ограничением по размеру и временем жизни записи.
+ *
+ * <p>Данные лежат в {@link ConcurrentHashMap}, поэтому попадания читаются без
+ * блокировок и параллельно. Политика вытеснения меняется только под
+ * {@code evictionLock}: читатели лишь пишут узел в {@link ReadBuffer}, а буфер
+ * разбирается пакетно при записи, при переполнении или в {@link #cleanUp()}.
+ *
+ * <p>Вытеснение - W-TinyLFU: новые записи попадают в маленькое окно LRU (1%),
+ * затем в основную SLRU-область (probation/protected). Вытесненный из окна
+ * кандидат допускается в основную область, только если по {@link FrequencySketch}
+ * он обращается чаще, чем жертва из probation. Так разовые проходы по многим
+ * ключам не вымывают горячие записи.
+ *
+ * <p>Истечение по TTL ведёт {@link TimerWheel}: каждое обслуживание снимает только
+ * истёкшие записи, без обхода всей карты.
+ *
+ * <p>{@link #get(Object, Function)} объединяет одновременные промахи по одному ключу:
+ * загрузчик вызывается один раз, остальные потоки ждут тот же результат. Если задан
+ * {@code refreshAfter}, запись старше этого возраста при чтении через загрузчик
+ * перезагружается асинхронно, а до конца TTL читатели получают прежнее значение.
+ */
+@Slf4j
+public final class BoundedCache<K, V> {
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final ConcurrentHashMap<K, CacheNode<K, V>> data = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, CacheNode<K, V>> refreshing = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final ReadBuffer<CacheNode<K, V>> readBuffer = new ReadBuffer<>();
+    private final AccessQueue<K, V> window = new AccessQueue<>();
+    private final AccessQueue<K, V> probation = new AccessQueue<>();
+    private final AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+    private final FrequencySketch sketch;
+    private final TimerWheel<K, V> timerWheel;
+    private final long maximumSize;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+    private final Executor refreshExecutor;
+    private final LongSupplier ticker;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder expiredCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+
+    public BoundedCache(long maximumSize, Duration ttl) {
+        this(maximumSize, ttl, null, null, System::nanoTime);
+    }
+
+    public BoundedCache(long maximumSize, Duration ttl,
+                        Duration refreshAfter, Executor refreshExecutor) {
+        this(maximumSize, ttl, refreshAfter, refreshExecutor, System::nanoTime);
+    }
+
+    BoundedCache(long maximumSize, Duration ttl, LongSupplier ticker) {
+        this(maximumSize, ttl, null, null, ticker);
+    }
+
+    BoundedCache(long maximumSize, Duration ttl, Duration refreshAfter,
+                 Executor refreshExecutor, LongSupplier ticker) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        if (refreshAfter != null && (refreshAfter.isNegative() || refreshAfter.compareTo(ttl) >= 0
+                || refreshExecutor == null)) {
+            throw new IllegalArgumentException("refreshAfter must be shorter than ttl "
+                    + "and requires an executor");
+        }
+        this.maximumSize = maximumSize;
+        this.windowMaximum = Math.max(1, maximumSize * WINDOW_PERCENT / 100);
+        this.protectedMaximum = (maximumSize - windowMaximum) * PROTECTED_PERCENT / 100;
+        this.ttlNanos = ttl.toNanos();
+        this.refreshAfterNanos = refreshAfter == null ? Long.MAX_VALUE : refreshAfter.toNanos();
+        this.refreshExecutor = refreshExecutor;
+        this.ticker = ticker;
+        this.sketch = new FrequencySketch(maximumSize);
+        this.timerWheel = new TimerWheel<>(ticker.getAsLong());
+    }
+
+    public V getIfPresent(K key) {
+        CacheNode<K, V> node = getNodeIfPresent(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Возвращает значение из кэша или загружает его. Одновременно по ключу идёт
+     * не больше одной загрузки; {@code null} от загрузчика не кэшируется.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        return get(key, loader, (current, candidate) -> true);
+    }
+
+    /**
+     * Как {@link #get(Object, Function)}, но загруженное значение кладётся через
+     * {@link #putIf} с тем же {@code replace}: если пока шла загрузка по ключу
+     * записали более новое значение, остаётся и возвращается оно.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader,
+                 BiPredicate<? super V, ? super V> replace) {
+        CacheNode<K, V> present = getNodeIfPresent(key);
+        if (present != null) {
+            refreshIfNeeded(present, loader);
+            return present.value;
+        }
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            // Загрузка могла завершиться между промахом и регистрацией
+            V value;
+            CacheNode<K, V> node = data.get(key);
+            if (node != null && !node.isExpired(ticker.getAsLong())) {
+                value = node.value;
+            } else {
+                value = load(key, loader);
+                if (value != null && !putIf(key, value, replace)) {
+                    CacheNode<K, V> newer = data.get(key);
+                    if (newer != null) {
+                        value = newer.value;
+                    }
+                }
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    public void put(K key, V value) {
+        CacheNode<K, V> node = newNode(key, value);
+        CacheNode<K, V> prior = data.put(key, node);
+        afterWrite(key, node, prior);
+    }
+
+    /**
+     * Кладёт значение, если по ключу ничего нет (или запись истекла) либо
+     * {@code replace(текущее, новое)} разрешает замену. Проверка и замена
+     * атомарны относительно других записей по ключу.
+     */
+    public boolean putIf(K key, V value, BiPredicate<? super V, ? super V> replace) {
+        CacheNode<K, V> node = newNode(key, value);
+        while (true) {
+            CacheNode<K, V> prior = data.get(key);
+            if (prior == null) {
+                if (data.putIfAbsent(key, node) == null) {
+                    afterWrite(key, node, null);
+                    return true;
+                }
+            } else if (!prior.isExpired(ticker.getAsLong()) && !replace.test(prior.value, value)) {
+                return false;
+            } else if (data.replace(key, prior, node)) {
+                afterWrite(key, node, prior);
+                return true;
+            }
+        }
+    }
+
+    public void invalidate(K key) {
+        CacheNode<K, V> node = data.remove(key);
+        if (node == null) {
+            return;
+        }
+        evictionLock.lock();
+        try {
+            unlink(node);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void invalidateAll(Iterable<? extends K> keys) {
+        for (K key : keys) {
+            invalidate(key);
+        }
+    }
+
+    public void invalidateAll() {
+        evictionLock.lock();
+        try {
+            readBuffer.drainTo(node -> { });
+            for (CacheNode<K, V> node : data.values()) {
+                unlink(node);
+            }
+            data.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Разбирает буфер чтений, удаляет просроченные записи и вытесняет лишние.
+     * Читатели при этом не блокируются.
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * До {@code limit} ключей с наибольшей оценкой частоты обращений, самые
+     * частые первыми. Обходит все записи под eviction-lock, поэтому рассчитан на
+     * редкие вызовы (например, при остановке).
+     */
+    public List<K> hottest(int limit) {
+        evictionLock.lock();
+        try {
+            maintenance();
+            Comparator<CacheNode<K, V>> byFrequency =
+                    Comparator.comparingInt(node -> sketch.frequency(node.key));
+            PriorityQueue<CacheNode<K, V>> top = new PriorityQueue<>(byFrequency);
+            for (AccessQueue<K, V> queue : List.of(window, probation, protectedQueue)) {
+                for (CacheNode<K, V> node = queue.first(); node != null; node = queue.next(node)) {
+                    top.add(node);
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+            List<K> keys = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                keys.add(top.poll().key);
+            }
+            Collections.reverse(keys);
+            return keys;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public long estimatedSize() {
+        return data.mappingCount();
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hitCount.sum(), missCount.sum(),
+                evictionCount.sum(), expiredCount.sum(), loadSuccessCount.sum(),
+                loadFailureCount.sum(), loadLatency.totalNanos());
+    }
+
+    public long maximumSize() {
+        return maximumSize;
+    }
+
+    // Распределение времени загрузок (и синхронных, и фоновых обновлений)
+    public LatencyHistogram loadLatency() {
+        return loadLatency;
+    }
+
+    private CacheNode<K, V> getNodeIfPresent(K key) {
+        CacheNode<K, V> node = data.get(key);
+        if (node == null) {
+            missCount.increment();
+            return null;
+        }
+        if (node.isExpired(ticker.getAsLong())) {
+            // Удаление просроченной записи оставляем обслуживанию
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        afterRead(node);
+        return node;
+    }
+
+    private CacheNode<K, V> newNode(K key, V value) {
+        long now = ticker.getAsLong();
+        return new CacheNode<>(key, value, now, now + ttlNanos);
+    }
+
+    private void refreshIfNeeded(CacheNode<K, V> node, Function<? super K, ? extends V> loader) {
+        if (ticker.getAsLong() - node.writeTime <= refreshAfterNanos
+                || refreshing.putIfAbsent(node.key, node) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> refresh(node, loader));
+        } catch (RejectedExecutionException e) {
+            // Пул занят - обновим при следующем чтении, пока запись не истекла
+            refreshing.remove(node.key, node);
+        }
+    }
+
+    private void refresh(CacheNode<K, V> node, Function<? super K, ? extends V> loader) {
+        try {
+            V value = load(node.key, loader);
+            if (value == null) {
+                if (data.remove(node.key, node)) {
+                    afterWrite(node.key, null, node);
+                }
+                return;
+            }
+            CacheNode<K, V> refreshed = newNode(node.key, value);
+            // Не перетираем запись, если её успели обновить или удалить
+            if (data.replace(node.key, node, refreshed)) {
+                afterWrite(node.key, refreshed, node);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh cache entry {}: {}", node.key, e.getMessage());
+        } finally {
+            refreshing.remove(node.key, node);
+        }
+    }
+
+    private V load(K key, Function<? super K, ? extends V> loader) {
+        long start = ticker.getAsLong();
+        boolean loaded = false;
+        try {
+            V value = loader.apply(key);
+            loaded = true;
+            return value;
+        } finally {
+            loadLatency.record(ticker.getAsLong() - start);
+            if (loaded) {
+                loadSuccessCount.increment();
+            } else {
+                loadFailureCount.increment();
+            }
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private void afterWrite(K key, CacheNode<K, V> node, CacheNode<K, V> prior) {
+        evictionLock.lock();
+        try {
+            if (prior != null) {
+                unlink(prior);
+            }
+            if (node == null) {
+                return;
+            }
+            sketch.increment(key);
+            // Параллельный put/remove мог уже заменить узел - тогда не связываем
+            if (data.get(key) == node) {
+                window.linkLast(node, CacheNode.WINDOW);
+                timerWheel.schedule(node);
+            }
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void afterRead(CacheNode<K, V> node) {
+        if (readBuffer.offer(node) == ReadBuffer.FULL && evictionLock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void maintenance() {
+        readBuffer.drainTo(this::onAccess);
+        timerWheel.advance(ticker.getAsLong(), this::expire);
+        evictEntries();
+    }
+
+    private void onAccess(CacheNode<K, V> node) {
+        if (!node.isLinked()) {
+            return;
+        }
+        sketch.increment(node.key);
+        switch (node.queue) {
+            case CacheNode.WINDOW -> window.moveToTail(node);
+            case CacheNode.PROBATION -> {
+                probation.unlink(node);
+                protectedQueue.linkLast(node, CacheNode.PROTECTED);
+                demoteFromProtected();
+            }
+            default -> protectedQueue.moveToTail(node);
+        }
+    }
+
+    private void demoteFromProtected() {
+        while (protectedQueue.size > protectedMaximum) {
+            CacheNode<K, V> demoted = protectedQueue.first();
+            protectedQueue.unlink(demoted);
+            probation.linkLast(demoted, CacheNode.PROBATION);
+        }
+    }
+
+    private void evictEntries() {
+        CacheNode<K, V> candidate = evictFromWindow();
+        while (linkedSize() > maximumSize) {
+            CacheNode<K, V> victim = probation.first();
+            if (victim == null) {
+                victim = protectedQueue.first() != null ? protectedQueue.first() : window.first();
+            }
+            if (candidate == null || candidate == victim || !candidate.isLinked()) {
+                CacheNode<K, V> next = candidate == victim ? probation.next(victim) : candidate;
+                evict(victim);
+                candidate = next;
+                continue;
+            }
+            if (admit(candidate.key, victim.key)) {
+                evict(victim);
+            } else {
+                CacheNode<K, V> next = probation.next(candidate);
+                evict(candidate);
+                candidate = next;
+            }
+        }
+    }
+
+    /**
+     * Переносит переполнение окна в probation и возвращает первого перенесённого
+     * (самого старого) кандидата.
+     */
+    private CacheNode<K, V> evictFromWindow() {
+        CacheNode<K, V> first = null;
+        while (window.size > windowMaximum) {
+            CacheNode<K, V> node = window.first();
+            window.unlink(node);
+            probation.linkLast(node, CacheNode.PROBATION);
+            if (first == null) {
+                first = node;
+            }
+        }
+        return first;
+    }
+
+    private boolean admit(K candidateKey, K victimKey) {
+        return sketch.frequency(candidateKey) > sketch.frequency(victimKey);
+    }
+
+    private void evict(CacheNode<K, V> node) {
+        unlink(node);
+        if (data.remove(node.key, node)) {
+            evictionCount.increment();
+        }
+    }
+
+    private boolean expire(CacheNode<K, V> node) {
+        unlink(node);
+        if (data.remove(node.key, node)) {
+            expiredCount.increment();
+        }
+        return true;
+    }
+
+    private void unlink(CacheNode<K, V> node) {
+        timerWheel.deschedule(node);
+        if (!node.isLinked()) {
+            return;
+        }
+        switch (node.queue) {
+            case CacheNode.WINDOW -> window.unlink(node);
+            case CacheNode.PROBATION -> probation.unlink(node);
+            default -> protectedQueue.unlink(node);
+        }
+    }
+
+    private long linkedSize() {
+        return window.size + probation.size + protectedQueue.size;
+    }
+
+    /**
+     * Двусвязный список узлов в порядке доступа (голова - самый старый).
+     * Изменяется только под evictionLock.
+     */
+    private static final class AccessQueue<K, V> {
+        private final CacheNode<K, V> sentinel = CacheNode.sentinel();
+        private long size;
+
+        CacheNode<K, V> first() {
+            return sentinel.next == sentinel ? null : sentinel.next;
+        }
+
+        CacheNode<K, V> next(CacheNode<K, V> node) {
+            return node.next == sentinel || node.next == null ? null : node.next;
+        }
+
+        void linkLast(CacheNode<K, V> node, byte queue) {
+            CacheNode<K, V> last = sentinel.prev;
+            node.prev = last;
+            node.next = sentinel;
+            node.queue = queue;
+            last.next = node;
+            sentinel.prev = node;
+            size++;
+        }
+
+        void unlink(CacheNode<K, V> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        void moveToTail(CacheNode<K, V> node) {
+            byte queue = node.queue;
+            unlink(node);
+            linkLast(node, queue);
+        }
+    }
+}
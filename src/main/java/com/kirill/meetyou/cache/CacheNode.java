@@ -0,0 +1,52 @@
+package com.kirill.meetyou.cache;
+
+/**
+ * Узел записи кэша. Значение и время истечения неизменяемы, ссылки на соседей
+ * в очередях политики вытеснения и в {@link TimerWheel} меняются только под
+ * eviction-lock.
+ */
+final class CacheNode<K, V> {
+    static final byte WINDOW = 0;
+    static final byte PROBATION = 1;
+    static final byte PROTECTED = 2;
+
+    final K key;
+    final V value;
+    final long writeTime;
+    final long expirationTime;
+
+    CacheNode<K, V> prev;
+    CacheNode<K, V> next;
+    byte queue;
+
+    CacheNode<K, V> prevInWheel;
+    CacheNode<K, V> nextInWheel;
+
+    CacheNode(K key, V value, long writeTime, long expirationTime) {
+        this.key = key;
+        this.value = value;
+        this.writeTime = writeTime;
+        this.expirationTime = expirationTime;
+    }
+
+    static <K, V> CacheNode<K, V> sentinel() {
+        CacheNode<K, V> sentinel = new CacheNode<>(null, null, 0L, 0L);
+        sentinel.prev = sentinel;
+        sentinel.next = sentinel;
+        sentinel.prevInWheel = sentinel;
+        sentinel.nextInWheel = sentinel;
+        return sentinel;
+    }
+
+    boolean isLinked() {
+        return prev != null;
+    }
+
+    boolean isScheduled() {
+        return nextInWheel != null;
+    }
+
+    boolean isExpired(long now) {
+        return now - expirationTime > 0;
+    }
+}
@@ -0,0 +1,32 @@
+package com.kirill.meetyou.cache;
+
+/**
+ * Снимок счётчиков кэша на момент вызова.
+ */
+public record CacheStats(long hitCount, long missCount, long evictionCount, long expiredCount,
+                         long loadSuccessCount, long loadFailureCount, long totalLoadTimeNanos) {
+
+    // Для хранилищ без загрузчика
+    public CacheStats(long hitCount, long missCount, long evictionCount, long expiredCount) {
+        this(hitCount, missCount, evictionCount, expiredCount, 0, 0, 0);
+    }
+
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    public double hitRate() {
+        long requests = requestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    public long loadCount() {
+        return loadSuccessCount + loadFailureCount;
+    }
+
+    // Среднее время одной загрузки в наносекундах
+    public double averageLoadPenalty() {
+        long loads = loadCount();
+        return loads == 0 ? 0.0 : (double) totalLoadTimeNanos / loads;
+    }
+}
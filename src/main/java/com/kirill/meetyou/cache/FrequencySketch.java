@@ -0,0 +1,83 @@
+package com.kirill.meetyou.cache;
+
+/**
+ * Count-Min Sketch с 4-битными счётчиками для оценки частоты обращений (TinyLFU).
+ * Каждый {@code long} хранит 16 счётчиков, ключ адресует по одному счётчику в
+ * четырёх разных словах. После {@code 10 * maximumSize} инкрементов все счётчики
+ * делятся пополам, чтобы старая популярность со временем забывалась.
+ * Не потокобезопасен - используется только под eviction-lock.
+ */
+final class FrequencySketch {
+    private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(long maximumSize) {
+        int capacity = (int) Math.min(maximumSize, 1 << 30);
+        int length = 1 << -Integer.numberOfLeadingZeros(Math.max(capacity, 16) - 1);
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = (int) Math.min(10L * capacity, Integer.MAX_VALUE);
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < SEEDS.length; i++) {
+            long word = table[indexOf(hash, i)];
+            int count = (int) ((word >>> offsetOf(hash, i)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            added |= incrementAt(indexOf(hash, i), offsetOf(hash, i));
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int offset) {
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private int indexOf(int hash, int depth) {
+        long h = (hash + SEEDS[depth]) * SEEDS[depth];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    private static int offsetOf(int hash, int depth) {
+        // Номер 4-битного счётчика внутри слова
+        return ((hash >>> (depth << 3)) & 0xf) << 2;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
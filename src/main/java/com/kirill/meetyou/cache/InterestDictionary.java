@@ -0,0 +1,140 @@
+package com.kirill.meetyou.cache;
+
+import com.kirill.meetyou.cache.invalidation.InvalidationBus;
+import com.kirill.meetyou.cache.invalidation.InvalidationEvent;
+import com.kirill.meetyou.cache.invalidation.LoopbackInvalidationBus;
+import com.kirill.meetyou.model.Interest;
+import com.kirill.meetyou.repository.InterestRepository;
+import com.kirill.meetyou.utils.AfterCommit;
+import com.kirill.meetyou.utils.InterestKey;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Словарь интересов в памяти: ключ названия ({@link InterestKey}) -> id в базе
+ * и плотный int-код. Интересов немного (тысячи), поэтому словарь целиком
+ * загружается при старте, а названия в запросах разрешаются без базы. Коды
+ * выдаются по порядку с нуля и не переиспользуются, по ним InterestIndex
+ * хранит битовые карты в массиве.
+ *
+ * <p>Пополняется при создании и переименовании интереса на этом узле (после
+ * фиксации транзакции) и при перестройке InterestIndex. Об изменениях на других
+ * узлах узнаёт через {@link InvalidationBus}; интерес, событие о котором ещё не
+ * дошло, находится при первом промахе одним запросом по interest_key.
+ */
+@Slf4j
+@Component
+public class InterestDictionary {
+    private final InterestRepository interestRepository;
+    private final InvalidationBus invalidationBus;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, Entry> byKey = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> byId = new ConcurrentHashMap<>();
+    // Под монитором словаря
+    private int nextCode;
+
+    // Для одного процесса без других узлов
+    public InterestDictionary(InterestRepository interestRepository) {
+        this(interestRepository, new LoopbackInvalidationBus());
+    }
+
+    @Autowired
+    public InterestDictionary(InterestRepository interestRepository,
+                              InvalidationBus invalidationBus) {
+        this.interestRepository = interestRepository;
+        this.invalidationBus = invalidationBus;
+        invalidationBus.subscribe(this::onInvalidation);
+    }
+
+    public record Entry(int code, long id, String type) {
+    }
+
+    // Раньше прогрева кэша и индекса: им словарь уже может понадобиться.
+    // Но после InterestKeyBackfill, иначе по временным ключам ничего не найдётся
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @EventListener(ApplicationStartedEvent.class)
+    public void load() {
+        try {
+            long start = System.nanoTime();
+            for (Interest interest : interestRepository.findAll()) {
+                register(interest);
+            }
+            log.info("Interest dictionary loaded: {} interests in {} ms", byId.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("Failed to load interest dictionary, resolving names in database."
+                    + " Error: {}", e.getMessage(), e);
+        }
+    }
+
+    // Только память: null, если такого названия словарь не знает
+    public Entry find(String interestType) {
+        String key = InterestKey.normalize(interestType);
+        return key == null ? null : byKey.get(key);
+    }
+
+    /**
+     * Как {@link #find}, но при промахе ищет по interest_key в базе и
+     * запоминает найденное. null - такого интереса нет.
+     */
+    public Entry resolve(String interestType) {
+        Entry entry = find(interestType);
+        if (entry != null || interestType == null) {
+            return entry;
+        }
+        return interestRepository.findByInterestKey(InterestKey.normalize(interestType))
+                .map(this::register)
+                .orElse(null);
+    }
+
+    public Entry get(long interestId) {
+        return byId.get(interestId);
+    }
+
+    public Entry register(Interest interest) {
+        return register(interest.getId(), interest.getInterestType());
+    }
+
+    /**
+     * Добавляет интерес или обновляет его название; код у id не меняется.
+     */
+    public synchronized Entry register(long interestId, String interestType) {
+        Entry current = byId.get(interestId);
+        if (current != null && current.type().equals(interestType)) {
+            return current;
+        }
+        Entry entry = new Entry(current == null ? nextCode++ : current.code(), interestId,
+                interestType);
+        if (current != null) {
+            byKey.remove(InterestKey.normalize(current.type()), current);
+        }
+        byId.put(interestId, entry);
+        byKey.put(InterestKey.normalize(interestType), entry);
+        return entry;
+    }
+
+    // Откаченное создание или переименование не должно попасть в словарь
+    // ни здесь, ни на других узлах
+    public void registerAfterCommit(long interestId, String interestType) {
+        AfterCommit.run(() -> {
+            register(interestId, interestType);
+            invalidationBus.publish(InvalidationEvent.interest(nodeId, interestId, interestType));
+        });
+    }
+
+    // Сброс всего кэша словаря не касается: после него InterestIndex
+    // перестраивается и заново регистрирует все названия
+    private void onInvalidation(InvalidationEvent event) {
+        if (event.isInterest() && !nodeId.equals(event.origin())) {
+            register(event.interestId(), event.interestType());
+        }
+    }
+}
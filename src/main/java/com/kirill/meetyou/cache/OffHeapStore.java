@@ -0,0 +1,308 @@
+package com.kirill.meetyou.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Хранилище сериализованных записей вне кучи (второй уровень под UserCache).
+ *
+ * <p>Память выделяется один раз прямыми {@link ByteBuffer} и делится на сегменты
+ * со своими блокировками. Внутри сегмента - slab-аллокатор в духе memcached:
+ * классы слотов по степеням двойки (128 байт - 8 КБ), буфер режется на
+ * страницы по 8 КБ, каждая страница целиком отдаётся одному классу и делится на
+ * его слоты. Свободные слоты каждого класса лежат в стеке. Индекс ключ -> слот
+ * хранится в куче в access-ordered {@link LinkedHashMap}, он же задаёт LRU
+ * сегмента. В куче остаются только индекс и ссылки, а не графы объектов.
+ *
+ * <p>Когда свободных страниц нет, запись вытесняет самую давнюю запись своего
+ * класса. Если записей этого класса нет совсем, ему передаётся страница самой
+ * давней записи сегмента (вытесняются только записи с этой страницы). Иначе
+ * освобождённые слоты чужих классов не сливались бы, и запись нового размера
+ * могла вычистить весь сегмент и всё равно не поместиться.
+ */
+final class OffHeapStore {
+    private static final int MIN_SLOT_SHIFT = 7;
+    private static final int MAX_SLOT_SHIFT = 13;
+    private static final int SLOT_CLASSES = MAX_SLOT_SHIFT - MIN_SLOT_SHIFT + 1;
+    private static final int PAGE_SIZE = 1 << MAX_SLOT_SHIFT;
+    // Заголовок слота: длина данных (int) и момент истечения (long, мс)
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final LongSupplier clock;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder expiredCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    OffHeapStore(long capacityBytes, int segmentCount) {
+        this(capacityBytes, segmentCount, System::currentTimeMillis);
+    }
+
+    OffHeapStore(long capacityBytes, int segmentCount, LongSupplier clock) {
+        int count = 1 << -Integer.numberOfLeadingZeros(Math.max(1, segmentCount) - 1);
+        long perSegment = capacityBytes / count;
+        if (perSegment < (1 << MAX_SLOT_SHIFT) || perSegment > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "Off-heap segment size must be between 8KB and 2GB");
+        }
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment((int) perSegment);
+        }
+        this.segmentMask = count - 1;
+        this.clock = clock;
+    }
+
+    /**
+     * Сохраняет данные до {@code expiresAtMillis}. Записи больше самого крупного
+     * слота не сохраняются.
+     */
+    void put(long key, byte[] payload, long expiresAtMillis) {
+        int slotClass = slotClassFor(payload.length + HEADER_BYTES);
+        Segment segment = segmentFor(key);
+        if (slotClass < 0) {
+            rejectedCount.increment();
+            segment.remove(key);
+            return;
+        }
+        segment.put(key, payload, expiresAtMillis, slotClass);
+    }
+
+    byte[] get(long key) {
+        byte[] payload = segmentFor(key).get(key, clock.getAsLong());
+        if (payload == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return payload;
+    }
+
+    void remove(long key) {
+        segmentFor(key).remove(key);
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    CacheStats stats() {
+        return new CacheStats(hitCount.sum(), missCount.sum(),
+                evictionCount.sum(), expiredCount.sum());
+    }
+
+    // Записи, которые не поместились ни в один слот
+    long rejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    private Segment segmentFor(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return segments[(int) (h >>> 32) & segmentMask];
+    }
+
+    private static int slotClassFor(int bytes) {
+        int shift = Math.max(MIN_SLOT_SHIFT, 32 - Integer.numberOfLeadingZeros(bytes - 1));
+        return shift > MAX_SLOT_SHIFT ? -1 : shift - MIN_SLOT_SHIFT;
+    }
+
+    private static int slotSize(int slotClass) {
+        return 1 << (slotClass + MIN_SLOT_SHIFT);
+    }
+
+    // Адрес слота: смещение в буфере сегмента и класс слота в младших битах
+    private static long address(int offset, int slotClass) {
+        return ((long) offset << 8) | slotClass;
+    }
+
+    private static int offsetOf(long address) {
+        return (int) (address >>> 8);
+    }
+
+    private static int slotClassOf(long address) {
+        return (int) (address & 0xff);
+    }
+
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ByteBuffer buffer;
+        private final Map<Long, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+        private final int[][] freeSlots = new int[SLOT_CLASSES][16];
+        private final int[] freeCounts = new int[SLOT_CLASSES];
+        // Класс слотов каждой выданной страницы
+        private final int[] pageClasses;
+        private int pagesUsed;
+
+        Segment(int capacity) {
+            this.buffer = ByteBuffer.allocateDirect(capacity);
+            this.pageClasses = new int[capacity / PAGE_SIZE];
+        }
+
+        void put(long key, byte[] payload, long expiresAtMillis, int slotClass) {
+            lock.lock();
+            try {
+                Long prior = index.remove(key);
+                if (prior != null) {
+                    release(prior);
+                }
+                int offset = allocate(slotClass);
+                if (offset < 0) {
+                    rejectedCount.increment();
+                    return;
+                }
+                buffer.putInt(offset, payload.length);
+                buffer.putLong(offset + Integer.BYTES, expiresAtMillis);
+                buffer.put(offset + HEADER_BYTES, payload);
+                index.put(key, address(offset, slotClass));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        byte[] get(long key, long now) {
+            lock.lock();
+            try {
+                Long address = index.get(key);
+                if (address == null) {
+                    return null;
+                }
+                int offset = offsetOf(address);
+                if (buffer.getLong(offset + Integer.BYTES) <= now) {
+                    index.remove(key);
+                    release(address);
+                    expiredCount.increment();
+                    return null;
+                }
+                byte[] payload = new byte[buffer.getInt(offset)];
+                buffer.get(offset + HEADER_BYTES, payload);
+                return payload;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(long key) {
+            lock.lock();
+            try {
+                Long address = index.remove(key);
+                if (address != null) {
+                    release(address);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                index.clear();
+                Arrays.fill(freeCounts, 0);
+                pagesUsed = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return index.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Всегда находит слот: в сегменте есть хотя бы одна страница
+        private int allocate(int slotClass) {
+            if (freeCounts[slotClass] == 0) {
+                if (pagesUsed < pageClasses.length) {
+                    assignPage(pagesUsed++, slotClass);
+                } else if (!evictEldest(slotClass)) {
+                    reassignPage(slotClass);
+                }
+            }
+            return freeSlots[slotClass][--freeCounts[slotClass]];
+        }
+
+        private boolean evictEldest(int slotClass) {
+            Iterator<Long> addresses = index.values().iterator();
+            while (addresses.hasNext()) {
+                long address = addresses.next();
+                if (slotClassOf(address) == slotClass) {
+                    addresses.remove();
+                    release(address);
+                    evictionCount.increment();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Страница самой давней записи (или любая, если записей нет) переходит
+        // к slotClass: её записи вытесняются, свободные слоты убираются из стека
+        private void reassignPage(int slotClass) {
+            Iterator<Long> addresses = index.values().iterator();
+            int page = addresses.hasNext() ? offsetOf(addresses.next()) / PAGE_SIZE : 0;
+            int start = page * PAGE_SIZE;
+            addresses = index.values().iterator();
+            while (addresses.hasNext()) {
+                int offset = offsetOf(addresses.next());
+                if (offset >= start && offset < start + PAGE_SIZE) {
+                    addresses.remove();
+                    evictionCount.increment();
+                }
+            }
+            int previous = pageClasses[page];
+            int[] stack = freeSlots[previous];
+            int kept = 0;
+            for (int i = 0; i < freeCounts[previous]; i++) {
+                if (stack[i] < start || stack[i] >= start + PAGE_SIZE) {
+                    stack[kept++] = stack[i];
+                }
+            }
+            freeCounts[previous] = kept;
+            assignPage(page, slotClass);
+        }
+
+        // Слоты кладутся с конца страницы, чтобы первым выдавался начальный
+        private void assignPage(int page, int slotClass) {
+            pageClasses[page] = slotClass;
+            int size = slotSize(slotClass);
+            for (int offset = (page + 1) * PAGE_SIZE - size; offset >= page * PAGE_SIZE;
+                    offset -= size) {
+                release(address(offset, slotClass));
+            }
+        }
+
+        private void release(long address) {
+            int slotClass = slotClassOf(address);
+            int[] stack = freeSlots[slotClass];
+            if (freeCounts[slotClass] == stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                freeSlots[slotClass] = stack;
+            }
+            stack[freeCounts[slotClass]++] = offsetOf(address);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.kirill.meetyou.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Полосатый (striped) буфер с потерями для записи обращений к кэшу.
+ * Читатели только публикуют узел в свою полосу без блокировок, а порядок
+ * LRU обновляется позже пакетно под eviction-lock. При конкуренции или
+ * переполнении событие просто теряется - для LRU это допустимо.
+ */
+final class ReadBuffer<E> {
+    static final int SUCCESS = 0;
+    static final int FAILED = 1;
+    static final int FULL = 2;
+
+    private static final int STRIPE_SIZE = 16;
+    private static final int STRIPE_MASK = STRIPE_SIZE - 1;
+    private static final int MAX_STRIPES = 64;
+
+    private final Stripe<E>[] stripes;
+    private final int stripeMask;
+
+    @SuppressWarnings("unchecked")
+    ReadBuffer() {
+        int count = Math.min(MAX_STRIPES,
+                ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors()));
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<>();
+        }
+        this.stripeMask = count - 1;
+    }
+
+    int offer(E element) {
+        return stripes[probe() & stripeMask].offer(element);
+    }
+
+    void drainTo(Consumer<E> consumer) {
+        for (Stripe<E> stripe : stripes) {
+            stripe.drainTo(consumer);
+        }
+    }
+
+    private static int probe() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int ceilingPowerOfTwo(int x) {
+        return 1 << -Integer.numberOfLeadingZeros(Math.max(1, x) - 1);
+    }
+
+    private static final class Stripe<E> {
+        private final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(STRIPE_SIZE);
+        private final AtomicLong writeCounter = new AtomicLong();
+        private final AtomicLong readCounter = new AtomicLong();
+
+        int offer(E element) {
+            long head = readCounter.get();
+            long tail = writeCounter.get();
+            long size = tail - head;
+            if (size >= STRIPE_SIZE) {
+                return FULL;
+            }
+            if (!writeCounter.compareAndSet(tail, tail + 1)) {
+                return FAILED;
+            }
+            buffer.lazySet((int) (tail & STRIPE_MASK), element);
+            return size + 1 >= STRIPE_SIZE ? FULL : SUCCESS;
+        }
+
+        // Вызывается только под eviction-lock, поэтому читатель у полосы один
+        void drainTo(Consumer<E> consumer) {
+            long head = readCounter.get();
+            long tail = writeCounter.get();
+            while (head < tail) {
+                int index = (int) (head & STRIPE_MASK);
+                E element = buffer.get(index);
+                if (element == null) {
+                    // Писатель занял слот, но ещё не опубликовал элемент
+                    break;
+                }
+                buffer.lazySet(index, null);
+                consumer.accept(element);
+                head++;
+            }
+            readCounter.lazySet(head);
+        }
+    }
+}
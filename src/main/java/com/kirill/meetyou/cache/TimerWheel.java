@@ -0,0 +1,130 @@
+package com.kirill.meetyou.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Иерархическое колесо таймеров для истечения записей за амортизированное O(1).
+ *
+ * <p>Уровни имеют корзины шириной ~1.07с, ~1.14м, ~1.22ч, ~1.63д и ~6.5д.
+ * Запись кладётся в корзину самого мелкого уровня, который покрывает оставшееся
+ * время жизни. При продвижении времени обходятся только корзины, через которые
+ * прошла стрелка: истёкшие записи удаляются, остальные каскадом переезжают на
+ * более мелкий уровень. Размер кэша на стоимость продвижения не влияет.
+ * Не потокобезопасно - используется только под eviction-lock.
+ */
+final class TimerWheel<K, V> {
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    private static final long[] SPANS = {
+        ceilingPowerOfTwo(TimeUnit.SECONDS.toNanos(1)),
+        ceilingPowerOfTwo(TimeUnit.MINUTES.toNanos(1)),
+        ceilingPowerOfTwo(TimeUnit.HOURS.toNanos(1)),
+        ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)),
+        BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)),
+        BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)),
+    };
+    private static final long[] SHIFT = {
+        Long.numberOfTrailingZeros(SPANS[0]),
+        Long.numberOfTrailingZeros(SPANS[1]),
+        Long.numberOfTrailingZeros(SPANS[2]),
+        Long.numberOfTrailingZeros(SPANS[3]),
+        Long.numberOfTrailingZeros(SPANS[4]),
+    };
+
+    private final CacheNode<K, V>[][] wheel;
+    private long nanos;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(long currentTimeNanos) {
+        this.wheel = new CacheNode[BUCKETS.length][];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new CacheNode[BUCKETS[i]];
+            for (int j = 0; j < wheel[i].length; j++) {
+                wheel[i][j] = CacheNode.sentinel();
+            }
+        }
+        this.nanos = currentTimeNanos;
+    }
+
+    /**
+     * Продвигает стрелку до {@code currentTimeNanos}. Для каждой истёкшей записи
+     * вызывается {@code expirer}; если он вернул {@code false}, запись остаётся
+     * в колесе.
+     */
+    void advance(long currentTimeNanos, Predicate<CacheNode<K, V>> expirer) {
+        long previousTimeNanos = nanos;
+        nanos = currentTimeNanos;
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previousTimeNanos >>> SHIFT[i];
+            long currentTicks = currentTimeNanos >>> SHIFT[i];
+            long delta = currentTicks - previousTicks;
+            if (delta <= 0L) {
+                break;
+            }
+            expire(i, previousTicks, delta, expirer);
+        }
+    }
+
+    void schedule(CacheNode<K, V> node) {
+        CacheNode<K, V> sentinel = findBucket(node.expirationTime);
+        CacheNode<K, V> last = sentinel.prevInWheel;
+        node.prevInWheel = last;
+        node.nextInWheel = sentinel;
+        last.nextInWheel = node;
+        sentinel.prevInWheel = node;
+    }
+
+    void deschedule(CacheNode<K, V> node) {
+        if (!node.isScheduled()) {
+            return;
+        }
+        node.prevInWheel.nextInWheel = node.nextInWheel;
+        node.nextInWheel.prevInWheel = node.prevInWheel;
+        node.prevInWheel = null;
+        node.nextInWheel = null;
+    }
+
+    private void expire(int level, long previousTicks, long delta,
+                        Predicate<CacheNode<K, V>> expirer) {
+        CacheNode<K, V>[] buckets = wheel[level];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(1 + delta, buckets.length);
+        int start = (int) (previousTicks & mask);
+        int end = start + steps;
+
+        for (int i = start; i < end; i++) {
+            CacheNode<K, V> sentinel = buckets[i & mask];
+            CacheNode<K, V> node = sentinel.nextInWheel;
+            sentinel.prevInWheel = sentinel;
+            sentinel.nextInWheel = sentinel;
+
+            while (node != sentinel) {
+                CacheNode<K, V> next = node.nextInWheel;
+                node.prevInWheel = null;
+                node.nextInWheel = null;
+                if (!node.isExpired(nanos) || !expirer.test(node)) {
+                    // Ещё не истекла - переносим на более мелкий уровень
+                    schedule(node);
+                }
+                node = next;
+            }
+        }
+    }
+
+    private CacheNode<K, V> findBucket(long time) {
+        long duration = time - nanos;
+        int lastLevel = wheel.length - 1;
+        for (int i = 0; i < lastLevel; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = time >>> SHIFT[i];
+                int index = (int) (ticks & (wheel[i].length - 1));
+                return wheel[i][index];
+            }
+        }
+        return wheel[lastLevel][0];
+    }
+
+    private static long ceilingPowerOfTwo(long x) {
+        return 1L << -Long.numberOfLeadingZeros(x - 1);
+    }
+}
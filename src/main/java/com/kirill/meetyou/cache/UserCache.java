@@ -1,57 +1,245 @@
 package com.kirill.meetyou.cache;
 
+import com.kirill.meetyou.cache.invalidation.InvalidationBus;
+import com.kirill.meetyou.cache.invalidation.InvalidationEvent;
+import com.kirill.meetyou.cache.invalidation.LoopbackInvalidationBus;
+import com.kirill.meetyou.config.CacheProperties;
+import com.kirill.meetyou.dto.UserSnapshot;
 import com.kirill.meetyou.model.User;
+import com.kirill.meetyou.utils.AfterCommit;
 import jakarta.annotation.PreDestroy;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+@Slf4j
 @Component
 public class UserCache {
-    private static final int MAX_SIZE = 100;
-    private static final long TTL = 1L * 10 * 1000;
+    // Колесо таймеров дёшево продвигать, поэтому обслуживаем чаще, чем раз в TTL
+    private static final long CLEANUP_PERIOD_MILLIS = 1000;
+    private static final int HOT_KEYS_VERSION = 1;
+    private static final int BROADCAST_ALL_THRESHOLD = 1000;
 
-    private final Map<Long, CacheEntry> cache;
+    private final BoundedCache<Long, UserSnapshot> cache;
+    // Второй уровень вне кучи, null если выключен
+    private final OffHeapStore secondTier;
+    private final long secondTierTtlMillis;
+    // Отрицательный кэш: id, которых нет в базе, и email, которые никем не заняты
+    private final BoundedCache<Long, Boolean> missingIds;
+    private final BoundedCache<String, Boolean> freeEmails;
+    // Растёт при каждой записи; отрицательный результат запоминаем, только если
+    // за время запроса в базу никто ничего не записал
+    private final AtomicLong writeEpoch = new AtomicLong();
     private final ScheduledExecutorService scheduler;
+    // Изменения рассылаются другим узлам, свои события узнаём по nodeId
+    private final InvalidationBus invalidationBus;
+    private final String nodeId = UUID.randomUUID().toString();
 
-    public UserCache() {
-        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<Long, CacheEntry> eldest) {
-                return size() > MAX_SIZE;
-            }
-        };
+    private final CacheProperties.WarmUp warmUp;
+
+    // Для одного процесса без других узлов
+    public UserCache(CacheProperties properties, Executor taskExecutor) {
+        this(properties, taskExecutor, new LoopbackInvalidationBus());
+    }
+
+    @Autowired
+    public UserCache(CacheProperties properties,
+                     @Qualifier("taskExecutor") Executor taskExecutor,
+                     InvalidationBus invalidationBus) {
+        CacheProperties.Spec spec = properties.getUsers();
+        this.cache = new BoundedCache<>(spec.getMaximumSize(), spec.getTtl(),
+                spec.getRefreshAfter(), taskExecutor);
+
+        CacheProperties.Spec negative = properties.getNegative();
+        this.missingIds = new BoundedCache<>(negative.getMaximumSize(), negative.getTtl());
+        this.freeEmails = new BoundedCache<>(negative.getMaximumSize(), negative.getTtl());
+
+        CacheProperties.OffHeap offHeap = properties.getOffHeap();
+        if (offHeap.isEnabled()) {
+            this.secondTier = new OffHeapStore(offHeap.getCapacity().toBytes(),
+                    offHeap.getSegments());
+            log.info("Off-heap user cache enabled: {}", offHeap.getCapacity());
+        } else {
+            this.secondTier = null;
+        }
+        // Во втором уровне запись живёт не дольше порога обновления: иначе
+        // фоновая перезагрузка получила бы из него тот же устаревший снимок
+        this.secondTierTtlMillis = (spec.getRefreshAfter() != null
+                ? spec.getRefreshAfter() : spec.getTtl()).toMillis();
+
+        this.warmUp = properties.getWarmUp();
+        this.invalidationBus = invalidationBus;
+        invalidationBus.subscribe(this::onInvalidation);
 
         this.scheduler = Executors.newSingleThreadScheduledExecutor();
-        initCleanupTask();
+        initCleanupTask(Math.min(spec.getTtl().toMillis(), CLEANUP_PERIOD_MILLIS));
     }
 
-    public User get(Long id) {
-        synchronized (cache) {
-            CacheEntry entry = cache.get(id);
-            if (entry == null || entry.isExpired()) {
-                if (entry != null) {
-                    cache.remove(id);
-                }
-                return null;
+    public UserSnapshot get(Long id) {
+        UserSnapshot snapshot = cache.getIfPresent(id);
+        if (snapshot == null && secondTier != null) {
+            snapshot = readSecondTier(id);
+            if (snapshot != null && !cache.putIf(id, snapshot, UserCache::notOlder)) {
+                snapshot = cache.getIfPresent(id);
             }
-            return entry.user;
         }
+        return snapshot;
+    }
+
+    /**
+     * Возвращает снимок из кэша, а при промахе загружает пользователя через
+     * {@code loader}. Параллельные промахи по одному id ждут одну загрузку.
+     * При включённом refresh-after тот же {@code loader} вызывается асинхронно
+     * на taskExecutor, поэтому он не должен зависеть от сессии текущего запроса.
+     * Отсутствующие id запоминаются на короткое время и повторно в базу не идут.
+     */
+    public Optional<UserSnapshot> getOrLoad(Long id, Function<Long, Optional<User>> loader) {
+        if (missingIds.getIfPresent(id) != null) {
+            return Optional.empty();
+        }
+        long epoch = writeEpoch.get();
+        UserSnapshot snapshot = cache.get(id, key -> load(key, loader), UserCache::notOlder);
+        if (snapshot == null && writeEpoch.get() == epoch) {
+            missingIds.put(id, Boolean.TRUE);
+        }
+        return Optional.ofNullable(snapshot);
+    }
+
+    /**
+     * Проверяет, занят ли email, через {@code lookup}. Свободные email
+     * запоминаются, так что повторная проверка обходится без запроса в базу.
+     */
+    public boolean isEmailTaken(String email, Predicate<String> lookup) {
+        if (freeEmails.getIfPresent(email) != null) {
+            return false;
+        }
+        long epoch = writeEpoch.get();
+        boolean taken = lookup.test(email);
+        if (!taken && writeEpoch.get() == epoch) {
+            freeEmails.put(email, Boolean.TRUE);
+        }
+        return taken;
     }
 
+    // Храним не сущность, а компактный снимок без ленивых коллекций
     public void put(Long id, User user) {
-        synchronized (cache) {
-            cache.put(id, new CacheEntry(user));
+        putLocally(id, UserSnapshot.from(user));
+        publish(new InvalidationEvent(nodeId, id, user.getEmail()));
+    }
+
+    /**
+     * Сбрасывает отрицательные записи для пользователей, созданных в обход
+     * {@link #put}: сами снимки не кладём, чтобы массовая вставка не вытеснила
+     * горячие записи. Внутри транзакции сброс идёт после коммита: до него
+     * параллельный {@link #isEmailTaken} ещё видит email свободным и запомнил
+     * бы это заново.
+     */
+    public void forgetMissing(Collection<Long> ids, Collection<String> emails) {
+        AfterCommit.run(() -> {
+            writeEpoch.incrementAndGet();
+            missingIds.invalidateAll(ids);
+            freeEmails.invalidateAll(emails);
+        });
+    }
+
+    /**
+     * Загружает горячие id, сохранённые при прошлой остановке, пачками через
+     * {@code batchLoader} (один запрос на пачку). Другим узлам ничего не
+     * рассылается. Возвращает число загруженных записей.
+     */
+    public int warmUp(Function<Collection<Long>, List<User>> batchLoader) {
+        if (!warmUp.isEnabled()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        List<Long> ids = readHotKeys();
+        int loaded = 0;
+        for (int from = 0; from < ids.size(); from += warmUp.getBatchSize()) {
+            List<Long> batch = ids.subList(from,
+                    Math.min(from + warmUp.getBatchSize(), ids.size()));
+            for (User user : batchLoader.apply(batch)) {
+                putLocally(user.getId(), UserSnapshot.from(user));
+                loaded++;
+            }
         }
+        log.info("User cache warmed up with {} of {} hot users in {} ms", loaded, ids.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return loaded;
     }
 
     public void remove(Long id) {
-        synchronized (cache) {
-            cache.remove(id);
+        invalidateLocally(id, null);
+        publish(new InvalidationEvent(nodeId, id, null));
+    }
+
+    // Большие наборы другим узлам дешевле сбросить целиком, чем слать событие на каждый id
+    public void removeAll(Collection<Long> ids) {
+        for (Long id : ids) {
+            invalidateLocally(id, null);
         }
+        if (ids.size() > BROADCAST_ALL_THRESHOLD) {
+            publish(InvalidationEvent.all(nodeId));
+        } else {
+            for (Long id : ids) {
+                publish(new InvalidationEvent(nodeId, id, null));
+            }
+        }
+    }
+
+    // По нему подписчики шины отличают события этого узла от чужих
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public long maximumSize() {
+        return cache.maximumSize();
+    }
+
+    public LatencyHistogram loadLatency() {
+        return cache.loadLatency();
+    }
+
+    public boolean isOffHeapEnabled() {
+        return secondTier != null;
+    }
+
+    // Счётчики второго уровня; при выключенном уровне - нули
+    public CacheStats offHeapStats() {
+        return secondTier == null ? new CacheStats(0, 0, 0, 0) : secondTier.stats();
+    }
+
+    public long offHeapSize() {
+        return secondTier == null ? 0 : secondTier.size();
     }
 
     @PreDestroy
@@ -65,36 +253,160 @@ public class UserCache {
             scheduler.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        log.info("User cache stats on shutdown: {}", cache.stats());
+        saveHotKeys();
+        if (secondTier != null) {
+            log.info("Off-heap user cache stats on shutdown: {}", secondTier.stats());
+        }
         clear();
     }
 
-    private void initCleanupTask() {
-        scheduler.scheduleAtFixedRate(this::clearExpired, TTL, TTL, TimeUnit.MILLISECONDS);
+    private void initCleanupTask(long periodMillis) {
+        scheduler.scheduleAtFixedRate(this::maintain, periodMillis, periodMillis,
+                TimeUnit.MILLISECONDS);
     }
 
-    private void clearExpired() {
-        synchronized (cache) {
-            cache.entrySet().removeIf(entry -> entry.getValue().isExpired());
-        }
+    private void maintain() {
+        cache.cleanUp();
+        missingIds.cleanUp();
+        freeEmails.cleanUp();
+        log.debug("User cache size: {}, stats: {}", cache.estimatedSize(), cache.stats());
     }
 
     private void clear() {
-        synchronized (cache) {
-            cache.clear();
+        cache.invalidateAll();
+        missingIds.invalidateAll();
+        freeEmails.invalidateAll();
+        if (secondTier != null) {
+            secondTier.clear();
+        }
+    }
+
+    // Снимок старше уже закэшированного не кладём: параллельные обновления
+    // могут дойти до кэша не в том порядке, в каком фиксировались в базе
+    private void putLocally(Long id, UserSnapshot snapshot) {
+        writeEpoch.incrementAndGet();
+        missingIds.invalidate(id);
+        if (snapshot.email() != null) {
+            freeEmails.invalidate(snapshot.email());
+        }
+        if (cache.putIf(id, snapshot, UserCache::notOlder)) {
+            writeSecondTier(snapshot);
+        }
+    }
+
+    private static boolean notOlder(UserSnapshot current, UserSnapshot candidate) {
+        return candidate.version() >= current.version();
+    }
+
+    // Формат файла: версия, количество, id по убыванию частоты обращений.
+    // Снимки не сохраняем: после простоя они могли устареть, при старте
+    // всё равно перечитываем из базы.
+    private void saveHotKeys() {
+        if (!warmUp.isEnabled()) {
+            return;
+        }
+        List<Long> ids = cache.hottest((int) Math.min(warmUp.getLimit(), cache.maximumSize()));
+        Path file = warmUp.getFile().toAbsolutePath();
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), "hot-keys", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp);
+                 DataOutputStream data = new DataOutputStream(out)) {
+                data.writeInt(HOT_KEYS_VERSION);
+                data.writeInt(ids.size());
+                for (Long id : ids) {
+                    data.writeLong(id);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            log.info("Saved {} hot user ids to {}", ids.size(), file);
+        } catch (IOException e) {
+            log.warn("Failed to save hot user ids to {}: {}", file, e.getMessage());
         }
     }
 
-    private static class CacheEntry {
-        final User user;
-        final long timestamp;
+    private List<Long> readHotKeys() {
+        Path file = warmUp.getFile();
+        try (InputStream in = Files.newInputStream(file);
+             DataInputStream data = new DataInputStream(in)) {
+            if (data.readInt() != HOT_KEYS_VERSION) {
+                log.warn("Ignoring hot user ids file {} with unknown version", file);
+                return List.of();
+            }
+            int count = Math.min(data.readInt(), warmUp.getLimit());
+            List<Long> ids = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ids.add(data.readLong());
+            }
+            return ids;
+        } catch (NoSuchFileException e) {
+            return List.of();
+        } catch (IOException e) {
+            log.warn("Failed to read hot user ids from {}: {}", file, e.getMessage());
+            return List.of();
+        }
+    }
+
+    // Другой узел изменил пользователя: удаляем свою копию, перечитаем из базы
+    private void onInvalidation(InvalidationEvent event) {
+        if (nodeId.equals(event.origin()) || event.isInterest()) {
+            return;
+        }
+        if (event.isAll()) {
+            log.info("Clearing user cache on invalidate-all event");
+            writeEpoch.incrementAndGet();
+            clear();
+            return;
+        }
+        invalidateLocally(event.userId(), event.email());
+    }
 
-        CacheEntry(User user) {
-            this.user = user;
-            this.timestamp = System.currentTimeMillis();
+    private void invalidateLocally(Long id, String email) {
+        writeEpoch.incrementAndGet();
+        cache.invalidate(id);
+        missingIds.invalidate(id);
+        if (email != null) {
+            freeEmails.invalidate(email);
         }
+        if (secondTier != null) {
+            secondTier.remove(id);
+        }
+    }
+
+    // Внутри транзакции рассылаем только после коммита, иначе другой узел
+    // успеет перечитать из базы ещё старые данные
+    private void publish(InvalidationEvent event) {
+        AfterCommit.run(() -> invalidationBus.publish(event));
+    }
+
+    // Поднятая из второго уровня запись получает полный TTL основного кэша заново.
+    // Второй уровень пишется сквозь при каждом put, поэтому устареть снимок может
+    // только из-за изменений в обход сервиса.
+    private UserSnapshot load(Long id, Function<Long, Optional<User>> loader) {
+        if (secondTier != null) {
+            UserSnapshot snapshot = readSecondTier(id);
+            if (snapshot != null) {
+                return snapshot;
+            }
+        }
+        UserSnapshot snapshot = loader.apply(id).map(UserSnapshot::from).orElse(null);
+        if (snapshot != null) {
+            writeSecondTier(snapshot);
+        }
+        return snapshot;
+    }
+
+    private UserSnapshot readSecondTier(Long id) {
+        byte[] payload = secondTier.get(id);
+        return payload == null ? null : UserSnapshotCodec.decode(payload);
+    }
 
-        boolean isExpired() {
-            return System.currentTimeMillis() - timestamp > TTL;
+    private void writeSecondTier(UserSnapshot snapshot) {
+        if (secondTier != null) {
+            secondTier.put(snapshot.id(), UserSnapshotCodec.encode(snapshot),
+                    System.currentTimeMillis() + secondTierTtlMillis);
         }
     }
-}
\ No newline at end of file
+}
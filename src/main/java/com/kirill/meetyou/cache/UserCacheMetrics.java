@@ -0,0 +1,116 @@
+package com.kirill.meetyou.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Метрики UserCache в стандартных для Micrometer именах (cache.gets,
+ * cache.evictions, cache.size, ...) с тегом cache=users. Spring Boot сам
+ * привязывает бин к реестру, значения видны в /actuator/metrics.
+ */
+@Component
+public class UserCacheMetrics extends CacheMeterBinder<UserCache> {
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+    public UserCacheMetrics(UserCache cache) {
+        super(cache, "users", Tags.empty());
+    }
+
+    @Override
+    protected Long size() {
+        UserCache cache = getCache();
+        return cache == null ? null : cache.size();
+    }
+
+    @Override
+    protected long hitCount() {
+        UserCache cache = getCache();
+        return cache == null ? 0 : cache.stats().hitCount();
+    }
+
+    @Override
+    protected Long missCount() {
+        UserCache cache = getCache();
+        return cache == null ? null : cache.stats().missCount();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        UserCache cache = getCache();
+        return cache == null ? null : cache.stats().evictionCount();
+    }
+
+    // Как и в Caffeine: записи в кэш появляются через загрузку
+    @Override
+    protected long putCount() {
+        UserCache cache = getCache();
+        return cache == null ? 0 : cache.stats().loadSuccessCount();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        UserCache cache = getCache();
+        if (cache == null) {
+            return;
+        }
+        Iterable<Tag> tags = getTagsWithCacheName();
+
+        Gauge.builder("cache.max.size", cache, UserCache::maximumSize)
+                .tags(tags)
+                .description("Максимальное число записей")
+                .register(registry);
+        FunctionCounter.builder("cache.expirations", cache, c -> c.stats().expiredCount())
+                .tags(tags)
+                .description("Записи, удалённые по истечении TTL")
+                .register(registry);
+        FunctionCounter.builder("cache.load", cache, c -> c.stats().loadSuccessCount())
+                .tags(tags).tag("result", "success")
+                .description("Успешные загрузки из базы")
+                .register(registry);
+        FunctionCounter.builder("cache.load", cache, c -> c.stats().loadFailureCount())
+                .tags(tags).tag("result", "failure")
+                .description("Загрузки, завершившиеся ошибкой")
+                .register(registry);
+        FunctionTimer.builder("cache.load.duration", cache,
+                        c -> c.stats().loadCount(),
+                        c -> c.stats().totalLoadTimeNanos(),
+                        TimeUnit.NANOSECONDS)
+                .tags(tags)
+                .description("Суммарное время загрузок")
+                .register(registry);
+        for (double quantile : QUANTILES) {
+            TimeGauge.builder("cache.load.latency", cache, TimeUnit.NANOSECONDS,
+                            c -> c.loadLatency().percentileNanos(quantile))
+                    .tags(tags).tag("quantile", Double.toString(quantile))
+                    .description("Перцентиль времени загрузки")
+                    .register(registry);
+        }
+
+        if (cache.isOffHeapEnabled()) {
+            Gauge.builder("cache.offheap.size", cache, UserCache::offHeapSize)
+                    .tags(tags)
+                    .description("Записи во втором уровне вне кучи")
+                    .register(registry);
+            FunctionCounter.builder("cache.offheap.gets", cache,
+                            c -> c.offHeapStats().hitCount())
+                    .tags(tags).tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("cache.offheap.gets", cache,
+                            c -> c.offHeapStats().missCount())
+                    .tags(tags).tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("cache.offheap.evictions", cache,
+                            c -> c.offHeapStats().evictionCount())
+                    .tags(tags)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.kirill.meetyou.cache;
+
+import com.kirill.meetyou.dto.UserSnapshot;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Компактная бинарная сериализация {@link UserSnapshot} для {@link OffHeapStore}.
+ * Формат: id, version, name, email, birth (epoch day), age, число интересов и пары id/название.
+ * Строки пишутся как длина в UTF-8 (-1 для null) и байты.
+ */
+final class UserSnapshotCodec {
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int NO_AGE = Integer.MIN_VALUE;
+
+    private UserSnapshotCodec() {
+    }
+
+    static byte[] encode(UserSnapshot snapshot) {
+        byte[] name = bytes(snapshot.name());
+        byte[] email = bytes(snapshot.email());
+        byte[][] types = new byte[snapshot.interestCount()][];
+        int size = Long.BYTES + Long.BYTES + sizeOf(name) + sizeOf(email) + Long.BYTES
+                + Integer.BYTES + Integer.BYTES;
+        for (int i = 0; i < types.length; i++) {
+            types[i] = bytes(snapshot.interestTypes()[i]);
+            size += Long.BYTES + sizeOf(types[i]);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(snapshot.id());
+        buffer.putLong(snapshot.version());
+        putBytes(buffer, name);
+        putBytes(buffer, email);
+        buffer.putLong(snapshot.birth() == null ? NO_DATE : snapshot.birth().toEpochDay());
+        buffer.putInt(snapshot.age() == null ? NO_AGE : snapshot.age());
+        buffer.putInt(types.length);
+        for (int i = 0; i < types.length; i++) {
+            buffer.putLong(snapshot.interestIds()[i]);
+            putBytes(buffer, types[i]);
+        }
+        return buffer.array();
+    }
+
+    static UserSnapshot decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        long id = buffer.getLong();
+        long version = buffer.getLong();
+        String name = getString(buffer);
+        String email = getString(buffer);
+        long epochDay = buffer.getLong();
+        int age = buffer.getInt();
+        int count = buffer.getInt();
+        long[] interestIds = new long[count];
+        String[] interestTypes = new String[count];
+        for (int i = 0; i < count; i++) {
+            interestIds[i] = buffer.getLong();
+            interestTypes[i] = getString(buffer);
+        }
+        return new UserSnapshot(id, version, name, email,
+                epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay),
+                age == NO_AGE ? null : age,
+                interestIds, interestTypes);
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(byte[] value) {
+        return Integer.BYTES + (value == null ? 0 : value.length);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(value.length);
+        buffer.put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
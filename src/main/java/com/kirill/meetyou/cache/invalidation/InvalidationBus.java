@@ -0,0 +1,15 @@
+package com.kirill.meetyou.cache.invalidation;
+
+import java.util.function.Consumer;
+
+/**
+ * Шина событий инвалидации кэша между экземплярами приложения. Подписчики
+ * получают в том числе собственные события - отфильтровать их по
+ * {@link InvalidationEvent#origin()} должен сам подписчик.
+ */
+public interface InvalidationBus {
+
+    void publish(InvalidationEvent event);
+
+    void subscribe(Consumer<InvalidationEvent> listener);
+}
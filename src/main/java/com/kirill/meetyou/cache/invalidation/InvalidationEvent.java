@@ -0,0 +1,65 @@
+package com.kirill.meetyou.cache.invalidation;
+
+/**
+ * Событие "запись пользователя изменилась". Передаём только ключи: получатель
+ * удаляет запись у себя и при следующем чтении загрузит её из базы.
+ * {@code userId == null} означает "сбросить весь кэш" (например, после
+ * переподключения, когда часть событий могла потеряться).
+ *
+ * <p>Событие с {@code interestId} - интерес создан или переименован: его
+ * получает словарь интересов, новое название приходит в {@code interestType},
+ * чтобы не ходить за ним в базу из потока шины.
+ */
+public record InvalidationEvent(String origin, Long userId, String email, Long interestId,
+                                String interestType) {
+    private static final String ALL = "*";
+    private static final char INTEREST = 'i';
+    private static final char SEPARATOR = ':';
+
+    public InvalidationEvent(String origin, Long userId, String email) {
+        this(origin, userId, email, null, null);
+    }
+
+    public static InvalidationEvent all(String origin) {
+        return new InvalidationEvent(origin, null, null);
+    }
+
+    public static InvalidationEvent interest(String origin, long interestId,
+                                             String interestType) {
+        return new InvalidationEvent(origin, null, null, interestId, interestType);
+    }
+
+    public boolean isAll() {
+        return userId == null && interestId == null;
+    }
+
+    public boolean isInterest() {
+        return interestId != null;
+    }
+
+    // Формат: origin:userId:email или origin:i<interestId>:название. Последнее
+    // поле может содержать двоеточие
+    String toPayload() {
+        if (isInterest()) {
+            return origin + SEPARATOR + INTEREST + interestId + SEPARATOR + interestType;
+        }
+        return origin + SEPARATOR + (isAll() ? ALL : userId.toString()) + SEPARATOR
+                + (email == null ? "" : email);
+    }
+
+    static InvalidationEvent fromPayload(String payload) {
+        int first = payload.indexOf(SEPARATOR);
+        int second = payload.indexOf(SEPARATOR, first + 1);
+        if (first < 0 || second < 0) {
+            throw new IllegalArgumentException("Malformed invalidation payload: " + payload);
+        }
+        String origin = payload.substring(0, first);
+        String id = payload.substring(first + 1, second);
+        String last = payload.substring(second + 1);
+        if (!id.isEmpty() && id.charAt(0) == INTEREST) {
+            return interest(origin, Long.parseLong(id.substring(1)), last);
+        }
+        return new InvalidationEvent(origin, ALL.equals(id) ? null : Long.valueOf(id),
+                last.isEmpty() ? null : last);
+    }
+}
@@ -0,0 +1,31 @@
+package com.kirill.meetyou.cache.invalidation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Шина внутри одного процесса: события синхронно доставляются всем подписчикам.
+ * Подходит для одного экземпляра приложения и для тестов, где несколько
+ * UserCache изображают разные узлы.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.cache.invalidation", name = "transport",
+        havingValue = "loopback", matchIfMissing = true)
+public class LoopbackInvalidationBus implements InvalidationBus {
+    private final List<Consumer<InvalidationEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(InvalidationEvent event) {
+        for (Consumer<InvalidationEvent> listener : listeners) {
+            listener.accept(event);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<InvalidationEvent> listener) {
+        listeners.add(listener);
+    }
+}
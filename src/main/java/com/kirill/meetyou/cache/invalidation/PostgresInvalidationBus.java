@@ -0,0 +1,148 @@
+package com.kirill.meetyou.cache.invalidation;
+
+import com.kirill.meetyou.config.CacheProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Шина поверх PostgreSQL LISTEN/NOTIFY: узлы и так делят одну базу, поэтому
+ * не нужны ни адреса соседей, ни отдельный брокер. Публикация - {@code pg_notify}
+ * на любом соединении из пула, приём - отдельный поток с выделенным соединением.
+ * NOTIFY не хранит события для отключившихся слушателей, поэтому после
+ * переподключения подписчикам рассылается событие "сбросить всё".
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.cache.invalidation", name = "transport",
+        havingValue = "postgres")
+public class PostgresInvalidationBus implements InvalidationBus {
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private final DataSource dataSource;
+    private final String channel;
+    private final List<Consumer<InvalidationEvent>> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public PostgresInvalidationBus(DataSource dataSource, CacheProperties properties) {
+        this.dataSource = dataSource;
+        this.channel = properties.getInvalidation().getChannel();
+        // LISTEN принимает идентификатор, а не параметр - проверяем имя заранее
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid invalidation channel name: " + channel);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        listenerThread = new Thread(this::listen, "cache-invalidation-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        listenerThread.interrupt();
+        try {
+            listenerThread.join(POLL_TIMEOUT_MILLIS * 2L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void publish(InvalidationEvent event) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT pg_notify(?, ?)")) {
+            statement.setString(1, channel);
+            statement.setString(2, event.toPayload());
+            statement.execute();
+        } catch (SQLException e) {
+            // Остальные узлы досмотрят устаревшую запись до истечения TTL
+            log.warn("Failed to publish cache invalidation {}: {}", event, e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<InvalidationEvent> listener) {
+        listeners.add(listener);
+    }
+
+    private void listen() {
+        boolean connectedBefore = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                if (connectedBefore) {
+                    dispatch(InvalidationEvent.all(null));
+                }
+                connectedBefore = true;
+                log.info("Listening for cache invalidations on channel '{}'", channel);
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications =
+                            pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Cache invalidation listener disconnected: {}", e.getMessage());
+                    sleepBeforeReconnect();
+                }
+            }
+        }
+    }
+
+    private void receive(String payload) {
+        try {
+            dispatch(InvalidationEvent.fromPayload(payload));
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring cache invalidation: {}", e.getMessage());
+        }
+    }
+
+    private void dispatch(InvalidationEvent event) {
+        for (Consumer<InvalidationEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                log.error("Cache invalidation listener failed for {}", event, e);
+            }
+        }
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -19,8 +19,17 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
-}
-
-
-
 
+    // Порции импорта пользователей; очередь ограничена, так как каждая
+    // задача держит в ней не больше threads исполнителей
+    @Bean(name = "importExecutor")
+    public Executor importExecutor(ImportProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getThreads());
+        executor.setMaxPoolSize(properties.getThreads());
+        executor.setQueueCapacity(properties.getMaxActiveJobs() * properties.getThreads());
+        executor.setThreadNamePrefix("UserImport-");
+        executor.initialize();
+        return executor;
+    }
+}
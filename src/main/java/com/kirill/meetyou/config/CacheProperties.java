@@ -0,0 +1,68 @@
+package com.kirill.meetyou.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.cache")
+public class CacheProperties {
+    private Spec users = new Spec(10_000, Duration.ofSeconds(10));
+    // Отрицательные результаты: несуществующие id и свободные email
+    private Spec negative = new Spec(100_000, Duration.ofSeconds(30));
+    private OffHeap offHeap = new OffHeap();
+    private Invalidation invalidation = new Invalidation();
+    private WarmUp warmUp = new WarmUp();
+
+    // Размер и время жизни для одного типа записей кэша
+    @Getter
+    @Setter
+    public static class Spec {
+        private long maximumSize;
+        private Duration ttl;
+        // Если задано (меньше ttl), горячие записи перезагружаются асинхронно заранее
+        private Duration refreshAfter;
+
+        public Spec() {
+            // Пустой конструктор для биндинга свойств
+        }
+
+        public Spec(long maximumSize, Duration ttl) {
+            this.maximumSize = maximumSize;
+            this.ttl = ttl;
+        }
+    }
+
+    // Второй уровень вне кучи: снимки, вытесненные из основного кэша, остаются здесь
+    @Getter
+    @Setter
+    public static class OffHeap {
+        private boolean enabled;
+        private DataSize capacity = DataSize.ofMegabytes(256);
+        private int segments = 16;
+    }
+
+    // Рассылка инвалидаций между узлами: loopback (один процесс) или postgres
+    @Getter
+    @Setter
+    public static class Invalidation {
+        private String transport = "loopback";
+        private String channel = "user_cache_invalidation";
+    }
+
+    // Сохранение горячих id при остановке и прогрев кэша ими при старте
+    @Getter
+    @Setter
+    public static class WarmUp {
+        private boolean enabled;
+        private Path file = Path.of("cache", "user-cache-hot-keys.bin");
+        private int limit = 5_000;
+        private int batchSize = 1_000;
+    }
+}
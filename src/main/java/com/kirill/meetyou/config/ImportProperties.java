@@ -0,0 +1,26 @@
+package com.kirill.meetyou.config;
+
+import java.nio.file.Path;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.import")
+public class ImportProperties {
+    // Здесь хранятся состояние, данные и ошибки задач импорта
+    private Path directory = Path.of("imports");
+    // Строк в одной транзакции
+    private int chunkSize = 1000;
+    // Потоков, обрабатывающих порции всех задач
+    private int threads = 4;
+    private int maxActiveJobs = 4;
+    private int maxRows = 1_000_000;
+    // Порций в очереди между разбором и записью при потоковом импорте
+    private int streamQueueBatches = 4;
+    // Сколько завершённых задач хранить, более старые удаляются
+    private int maxRetainedJobs = 100;
+}
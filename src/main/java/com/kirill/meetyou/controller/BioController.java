@@ -5,8 +5,10 @@ import com.kirill.meetyou.dto.BioDto.Response;
 import com.kirill.meetyou.dto.BioDto.UpdateBioRequest;
 import com.kirill.meetyou.dto.BioDto.UpdateInterestFactRequest;
 import com.kirill.meetyou.service.BioService;
+import com.kirill.meetyou.utils.ContentHash;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -58,10 +60,17 @@ public class BioController {
 
     @GetMapping("/bioall")
     @Operation(summary = "Получить полную биографию",
-            description = "Возвращает полную информацию о биографии, включая интересный факт")
-    @ApiResponse(responseCode = "200", description = "Полная биография успешно получена")
+            description = "Возвращает полную информацию о биографии, включая интересный факт."
+                    + " С заголовком If-None-Match отвечает 304, если биография не менялась")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Полная биография успешно получена"),
+        @ApiResponse(responseCode = "304", description = "Биография не изменилась")
+    })
     public ResponseEntity<Response> getFullBio(@PathVariable Long userId) {
-        return ResponseEntity.ok(bioService.getFullBioByUserId(userId));
+        Response bio = bioService.getFullBioByUserId(userId);
+        // При совпадении с If-None-Match Spring отвечает 304, не сериализуя тело
+        String etag = new ContentHash().add(bio.getBio()).add(bio.getInterestFact()).etag();
+        return ResponseEntity.ok().eTag(etag).body(bio);
     }
 
     @PutMapping("/bio")
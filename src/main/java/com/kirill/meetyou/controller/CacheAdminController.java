@@ -0,0 +1,57 @@
+package com.kirill.meetyou.controller;
+
+import com.kirill.meetyou.cache.CacheStats;
+import com.kirill.meetyou.cache.LatencyHistogram;
+import com.kirill.meetyou.cache.UserCache;
+import com.kirill.meetyou.dto.CacheStatsResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/cache")
+@RequiredArgsConstructor
+@Tag(name = "Администрирование кэша", description = "Статистика кэша пользователей")
+public class CacheAdminController {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final UserCache userCache;
+
+    @Operation(summary = "Статистика кэша пользователей",
+            description = "Размер, доля попаданий, вытеснения и время загрузки из базы")
+    @ApiResponse(responseCode = "200", description = "Статистика успешно получена")
+    @GetMapping("/users")
+    public ResponseEntity<CacheStatsResponse> getUserCacheStats() {
+        CacheStats stats = userCache.stats();
+        LatencyHistogram latency = userCache.loadLatency();
+        CacheStats offHeap = userCache.offHeapStats();
+
+        return ResponseEntity.ok(CacheStatsResponse.builder()
+                .name("users")
+                .size(userCache.size())
+                .maximumSize(userCache.maximumSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictionCount(stats.evictionCount())
+                .expiredCount(stats.expiredCount())
+                .loadSuccessCount(stats.loadSuccessCount())
+                .loadFailureCount(stats.loadFailureCount())
+                .averageLoadMillis(stats.averageLoadPenalty() / NANOS_PER_MILLI)
+                .loadP50Millis(latency.percentileNanos(0.5) / NANOS_PER_MILLI)
+                .loadP95Millis(latency.percentileNanos(0.95) / NANOS_PER_MILLI)
+                .loadP99Millis(latency.percentileNanos(0.99) / NANOS_PER_MILLI)
+                .loadMaxMillis(latency.maxNanos() / NANOS_PER_MILLI)
+                .offHeapEnabled(userCache.isOffHeapEnabled())
+                .offHeapSize(userCache.offHeapSize())
+                .offHeapHitCount(offHeap.hitCount())
+                .offHeapMissCount(offHeap.missCount())
+                .offHeapEvictionCount(offHeap.evictionCount())
+                .build());
+    }
+}
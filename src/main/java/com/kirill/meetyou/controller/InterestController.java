@@ -1,12 +1,17 @@
 package com.kirill.meetyou.controller;
 
+import com.kirill.meetyou.dto.InterestAssignment;
+import com.kirill.meetyou.dto.InterestAssignmentResult;
+import com.kirill.meetyou.dto.UserSnapshot;
 import com.kirill.meetyou.model.Interest;
 import com.kirill.meetyou.service.InterestService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import java.util.Set;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -16,15 +21,16 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
-@RequestMapping("/api/users/{userId}/interests")
+@RequestMapping("/api/users")
 @RequiredArgsConstructor
 @Tag(name = "Управление интересами", description = "API для управления интересами пользователей")
 public class InterestController {
     private final InterestService interestService;
 
-    @PostMapping
+    @PostMapping("/{userId}/interests")
     @Operation(summary = "Добавить интерес",
             description = "Добавляет новый интерес для указанного пользователя")
     @ApiResponse(responseCode = "200", description = "Интерес успешно добавлен")
@@ -34,7 +40,7 @@ public class InterestController {
         interestService.addInterestToUser(userId, interestName);
     }
 
-    @DeleteMapping
+    @DeleteMapping("/{userId}/interests")
     @Operation(summary = "Удалить интерес",
             description = "Удаляет интерес у указанного пользователя")
     @ApiResponse(responseCode = "200", description = "Интерес успешно удален")
@@ -44,15 +50,24 @@ public class InterestController {
         interestService.removeInterestFromUser(userId, interestName);
     }
 
-    @GetMapping
+    @GetMapping("/{userId}/interests")
     @Operation(summary = "Получить интересы пользователя",
-            description = "Возвращает все интересы указанного пользователя")
-    @ApiResponse(responseCode = "200", description = "Интересы успешно получены")
-    public Set<Interest> getUserInterests(@PathVariable Long userId) {
-        return interestService.getUserInterests(userId);
+            description = "Возвращает все интересы указанного пользователя по возрастанию id."
+                    + " С заголовком If-None-Match отвечает 304, если интересы не менялись")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Интересы успешно получены"),
+        @ApiResponse(responseCode = "304", description = "Интересы не изменились")
+    })
+    public ResponseEntity<List<Interest>> getUserInterests(@PathVariable Long userId,
+                                                           WebRequest request) {
+        UserSnapshot snapshot = interestService.getUserInterestsSnapshot(userId);
+        if (request.checkNotModified(snapshot.interestsEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(snapshot.interestsEtag()).body(snapshot.interests());
     }
 
-    @PutMapping("/{interestId}")
+    @PutMapping("/{userId}/interests/{interestId}")
     @Operation(summary = "Обновить интерес",
             description = "Обновляет интерес пользователя")
     @ApiResponse(responseCode = "200", description = "Интерес успешно обновлен")
@@ -63,4 +78,20 @@ public class InterestController {
         return interestService.updateInterest(userId, interestId, updatedInterest);
     }
 
+    @PutMapping("/interests")
+    @Operation(summary = "Массово назначить интересы",
+            description = "Для каждого пользователя задаёт полный набор интересов: недостающие"
+                    + " добавляются (новые интересы создаются), лишние удаляются. Результат"
+                    + " - по строке на каждый элемент запроса")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Запрос обработан, итог в результатах"),
+        @ApiResponse(responseCode = "400", description = "Пустой или слишком большой запрос"),
+        @ApiResponse(responseCode = "409", description = "Интерес одновременно создан другим"
+                + " запросом")
+    })
+    public List<InterestAssignmentResult> assignInterests(
+            @RequestBody List<InterestAssignment> assignments) {
+        return interestService.assignInterests(assignments);
+    }
+
 }
@@ -2,6 +2,7 @@ package com.kirill.meetyou.controller;
 
 import com.kirill.meetyou.model.Photo;
 import com.kirill.meetyou.service.PhotoService;
+import com.kirill.meetyou.utils.ContentHash;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -71,13 +72,18 @@ public class PhotoController {
     }
 
     @Operation(summary = "Получить все фотографии",
-            description = "Возвращает все фотографии указанного пользователя")
-    @ApiResponse(responseCode = "200", description = "Список фотографий успешно получен")
+            description = "Возвращает все фотографии указанного пользователя. С заголовком"
+                    + " If-None-Match отвечает 304, если список не менялся")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Список фотографий успешно получен"),
+        @ApiResponse(responseCode = "304", description = "Список фотографий не изменился")
+    })
     @GetMapping
     public ResponseEntity<List<Photo>> getAllPhotos(
             @PathVariable Long userId) {
         List<Photo> photos = photoService.getAllUserPhotos(userId);
-        return ResponseEntity.ok(photos);
+        // При совпадении с If-None-Match Spring отвечает 304, не сериализуя тело
+        return ResponseEntity.ok().eTag(etag(photos)).body(photos);
     }
 
     @Operation(summary = "Получить фотографию по ID",
@@ -156,4 +162,14 @@ public class PhotoController {
                     .body(Map.of(ERROR_KEY, e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    // Хэш по тем же полям, что попадают в JSON фотографии
+    private static String etag(List<Photo> photos) {
+        ContentHash hash = new ContentHash().add(photos.size());
+        for (Photo photo : photos) {
+            hash.add(photo.getId()).add(photo.getPhotoUrl()).add(photo.getIsMain())
+                    .add(photo.getUploadDate());
+        }
+        return hash.etag();
+    }
+}
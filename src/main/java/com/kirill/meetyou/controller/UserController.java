@@ -1,18 +1,26 @@
 package com.kirill.meetyou.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kirill.meetyou.dto.BulkResponse;
 import com.kirill.meetyou.dto.UserCreateDto;
+import com.kirill.meetyou.dto.UserMatch;
+import com.kirill.meetyou.dto.UserPageResponse;
+import com.kirill.meetyou.dto.UserSnapshot;
+import com.kirill.meetyou.dto.UserSummary;
 import com.kirill.meetyou.dto.UserUpdateDto;
 import com.kirill.meetyou.model.User;
-import com.kirill.meetyou.repository.UserRepository;
 import com.kirill.meetyou.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Set;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -20,38 +28,77 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping(path = "api/users")
 @RequiredArgsConstructor
 public class UserController {
+    private static final String NDJSON = "application/x-ndjson";
+
     private final UserService userService;
-    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
 
-    @Operation(summary = "Получить всех пользователей",
-            description = "Возвращает список всех пользователей системы")
-    @ApiResponse(responseCode = "200",
-            description = "Список пользователей успешно получен")
+    @Operation(summary = "Получить страницу пользователей",
+            description = "Возвращает пользователей по возрастанию id. Для следующей"
+                    + " страницы передайте nextCursor из предыдущего ответа. Необязательные"
+                    + " minAge/maxAge ограничивают возраст (включительно)")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Страница успешно получена"),
+        @ApiResponse(responseCode = "400", description = "Некорректный курсор, размер"
+                + " или диапазон возраста")
+    })
     @GetMapping
-    public ResponseEntity<List<User>> findAll() {
-        return ResponseEntity.ok(userService.findAll());
+    public ResponseEntity<UserPageResponse> findPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge) {
+        return ResponseEntity.ok(userService.findPage(cursor, limit, minAge, maxAge));
+    }
+
+    @Operation(summary = "Выгрузить всех пользователей потоком",
+            description = "Отдаёт пользователей в формате NDJSON (по одному JSON"
+                    + " на строку) по мере чтения из базы")
+    @ApiResponse(responseCode = "200", description = "Выгрузка начата")
+    @GetMapping(path = "/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        StreamingResponseBody body = out -> userService.streamAll(user -> {
+            try {
+                // writeValue(out, ...) закрыл бы поток ответа после первой записи
+                out.write(objectMapper.writeValueAsBytes(user));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
 
     @Operation(summary = "Получить пользователя по ID",
-            description = "Возвращает информацию о пользователе по его идентификатору")
+            description = "Возвращает информацию о пользователе по его идентификатору."
+                    + " С заголовком If-None-Match отвечает 304, если пользователь не менялся")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "Пользователь успешно найден"),
+        @ApiResponse(responseCode = "304", description = "Пользователь не изменился"),
         @ApiResponse(responseCode = "404", description = "Пользователь не найден")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<User> getById(@PathVariable Long id) {
-        return ResponseEntity.ok(userService.findById(id)
+    public ResponseEntity<User> getById(@PathVariable Long id, WebRequest request) {
+        UserSnapshot snapshot = userService.findSnapshot(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
-                        "Юзер с id: " + id + " не найден")));
+                        "Юзер с id: " + id + " не найден"));
+        // ETag берётся из кэша вместе со снимком: на 304 пользователь не собирается
+        if (request.checkNotModified(snapshot.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(snapshot.etag()).body(snapshot.toUser());
     }
 
     @Operation(summary = "Создать пользователя",
@@ -83,15 +130,26 @@ public class UserController {
     }
 
     @Operation(summary = "Обновить пользователя",
-            description = "Обновляет информацию о пользователе (email и/или имя)")
-    @ApiResponse(responseCode = "200", description = "Пользователь успешно обновлен")
+            description = "Обновляет информацию о пользователе (email и/или имя)."
+                    + " С заголовком If-Match (ETag из GET) изменение применяется, только"
+                    + " если пользователь не менялся. Новая версия возвращается в ETag")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Пользователь успешно обновлен"),
+        @ApiResponse(responseCode = "404", description = "Пользователь не найден"),
+        @ApiResponse(responseCode = "409", description = "Пользователь одновременно"
+                + " изменяется другими запросами"),
+        @ApiResponse(responseCode = "412", description = "Версия из If-Match устарела")
+    })
     @PutMapping(path = "{id}", consumes = "application/json")
     public ResponseEntity<Void> update(
             @PathVariable Long id,
-            @RequestBody UserUpdateDto dto
+            @RequestBody UserUpdateDto dto,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
-        userService.update(id, dto);
-        return ResponseEntity.ok().build();
+        // If-Match: * - любая версия; слабые метки со строгим сравнением не совпадают
+        String expected = ifMatch == null || ifMatch.trim().equals("*") ? null : ifMatch.trim();
+        User updated = userService.update(id, dto, expected);
+        return ResponseEntity.ok().eTag(UserSnapshot.from(updated).etag()).build();
     }
 
 
@@ -101,9 +159,9 @@ public class UserController {
     @ApiResponse(responseCode = "200",
             description = "Список пользователей успешно получен")
     @GetMapping("/by-interest")
-    public ResponseEntity<List<User>> getUsersByInterest(
+    public ResponseEntity<List<UserSummary>> getUsersByInterest(
             @RequestParam String interestType) {
-        return ResponseEntity.ok(userRepository.findUsersByInterestType(interestType));
+        return ResponseEntity.ok(userService.findByInterest(interestType));
     }
 
     @Operation(summary = "Поиск по всем интересам",
@@ -113,14 +171,13 @@ public class UserController {
         @ApiResponse(responseCode = "400", description = "Не указаны интересы для поиска")
     })
     @GetMapping("/by-all-interests")
-    public ResponseEntity<List<User>> getUsersByAllInterests(
+    public ResponseEntity<List<UserSummary>> getUsersByAllInterests(
             @RequestParam(required = false) Set<String> interestTypes) {
         if (interestTypes == null || interestTypes.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     "Не указаны интересы для поиска");
         }
-        return ResponseEntity.ok(userRepository.findUsersByAllInterestTypes(interestTypes,
-                interestTypes.size()));
+        return ResponseEntity.ok(userService.findByAllInterests(interestTypes));
     }
 
     @Operation(summary = "Поиск по любому из интересов",
@@ -131,12 +188,27 @@ public class UserController {
         @ApiResponse(responseCode = "400", description = "Не указаны интересы для поиска")
     })
     @GetMapping("/by-any-interest")
-    public ResponseEntity<List<User>> getUsersByAnyInterest(
+    public ResponseEntity<List<UserSummary>> getUsersByAnyInterest(
             @RequestParam Set<String> interestTypes) {
         if (interestTypes == null || interestTypes.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     "Не указаны интересы для поиска");
         }
-        return ResponseEntity.ok(userRepository.findUsersByAnyInterestTypes(interestTypes));
+        return ResponseEntity.ok(userService.findByAnyInterest(interestTypes));
+    }
+
+    @Operation(summary = "Лучшие совпадения по интересам",
+            description = "Возвращает до limit пользователей с наибольшей долей общих"
+                    + " интересов (коэффициент Жаккара), лучшие первыми")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Список совпадений успешно получен"),
+        @ApiResponse(responseCode = "400", description = "Некорректный ID или limit"),
+        @ApiResponse(responseCode = "404", description = "Пользователь не найден"),
+        @ApiResponse(responseCode = "503", description = "Индекс интересов ещё строится")
+    })
+    @GetMapping("/{id}/matches")
+    public ResponseEntity<List<UserMatch>> getBestMatches(
+            @PathVariable Long id, @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(userService.findBestMatches(id, limit));
     }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.kirill.meetyou.controller;
+
+import com.kirill.meetyou.dto.BulkRowResult;
+import com.kirill.meetyou.dto.ImportJob;
+import com.kirill.meetyou.dto.UserCreateDto;
+import com.kirill.meetyou.service.UserImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.io.InputStream;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/users/imports")
+@RequiredArgsConstructor
+@Tag(name = "Импорт пользователей", description = "Фоновое массовое создание пользователей")
+public class UserImportController {
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+    private static final int MAX_ERRORS_PAGE = 1000;
+
+    private final UserImportService importService;
+
+    @Operation(summary = "Запустить импорт пользователей",
+            description = "Принимает список пользователей и сразу возвращает задачу."
+                    + " Строки сохраняются порциями в фоне")
+    @ApiResponses({
+        @ApiResponse(responseCode = "202", description = "Задача импорта создана"),
+        @ApiResponse(responseCode = "413", description = "Слишком много строк"),
+        @ApiResponse(responseCode = "429", description = "Слишком много активных задач")
+    })
+    @PostMapping
+    public ResponseEntity<ImportJob> submit(@RequestBody List<UserCreateDto> userDtos) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(importService.submit(userDtos));
+    }
+
+    @Operation(summary = "Потоковый импорт пользователей",
+            description = "Принимает NDJSON (объект на строку) или CSV с заголовком"
+                    + " name,email,birth и разбирает тело по мере чтения, поэтому размер"
+                    + " импорта не ограничен памятью. Ответ приходит после обработки всех строк")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Импорт завершён, ошибки строк"
+                + " доступны по /errors"),
+        @ApiResponse(responseCode = "429", description = "Слишком много активных задач")
+    })
+    @PostMapping(path = "/stream", consumes = {NDJSON, CSV})
+    public ImportJob importStream(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                  InputStream body) {
+        return importService.importStream(body, "csv".equals(contentType.getSubtype()));
+    }
+
+    @Operation(summary = "Получить статус импорта",
+            description = "Возвращает состояние задачи и число обработанных строк")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Статус успешно получен"),
+        @ApiResponse(responseCode = "404", description = "Задача не найдена")
+    })
+    @GetMapping("/{id}")
+    public ImportJob getJob(@PathVariable String id) {
+        return importService.getJob(id);
+    }
+
+    @Operation(summary = "Получить ошибки импорта",
+            description = "Возвращает строки, которые не удалось создать")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Ошибки успешно получены"),
+        @ApiResponse(responseCode = "404", description = "Задача не найдена")
+    })
+    @GetMapping("/{id}/errors")
+    public List<BulkRowResult> getErrors(@PathVariable String id,
+                                         @RequestParam(defaultValue = "0") int offset,
+                                         @RequestParam(defaultValue = "100") int limit) {
+        if (offset < 0 || limit < 1 || limit > MAX_ERRORS_PAGE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit должен быть от 1 до " + MAX_ERRORS_PAGE + ", offset не меньше 0");
+        }
+        return importService.getErrors(id, offset, limit);
+    }
+}
@@ -10,4 +10,5 @@ public class BulkResponse {
     private int successCount;
     private int failCount;
     private List<String> errors;  // Сообщения об ошибках
+    private List<BulkRowResult> results;  // По строке на каждый элемент запроса
 }
\ No newline at end of file
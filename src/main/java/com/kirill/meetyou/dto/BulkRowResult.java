@@ -0,0 +1,19 @@
+package com.kirill.meetyou.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Результат по одной строке массовой операции
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRowResult {
+    private int index;      // Позиция строки в запросе
+    private String email;
+    private boolean success;
+    private Long id;        // id созданного пользователя
+    private String error;
+}
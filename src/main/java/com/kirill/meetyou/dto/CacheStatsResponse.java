@@ -0,0 +1,30 @@
+package com.kirill.meetyou.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class CacheStatsResponse {
+    private String name;
+    private long size;
+    private long maximumSize;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long evictionCount;
+    private long expiredCount;
+    private long loadSuccessCount;
+    private long loadFailureCount;
+    // Время загрузки из базы, мс
+    private double averageLoadMillis;
+    private double loadP50Millis;
+    private double loadP95Millis;
+    private double loadP99Millis;
+    private double loadMaxMillis;
+    private boolean offHeapEnabled;
+    private long offHeapSize;
+    private long offHeapHitCount;
+    private long offHeapMissCount;
+    private long offHeapEvictionCount;
+}
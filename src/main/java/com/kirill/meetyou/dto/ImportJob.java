@@ -0,0 +1,24 @@
+package com.kirill.meetyou.dto;
+
+import com.kirill.meetyou.enums.ImportJobStatus;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.TreeSet;
+import lombok.Data;
+
+// Состояние задачи импорта; сохраняется на диск после каждой порции
+@Data
+public class ImportJob {
+    private String id;
+    private ImportJobStatus status;
+    private int totalRows;
+    private int chunkSize;
+    private int totalChunks;
+    private int processedRows;
+    private int successCount;
+    private int failCount;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+    private String error;
+    private Set<Integer> completedChunks = new TreeSet<>();
+}
@@ -0,0 +1,10 @@
+package com.kirill.meetyou.dto;
+
+import java.util.List;
+
+/**
+ * Желаемый набор интересов пользователя для массового назначения. Интересы
+ * не из списка у пользователя удаляются, пустой список удаляет все.
+ */
+public record InterestAssignment(Long userId, List<String> interests) {
+}
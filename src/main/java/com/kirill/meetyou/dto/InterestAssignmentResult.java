@@ -0,0 +1,18 @@
+package com.kirill.meetyou.dto;
+
+/**
+ * Результат по одному пользователю массового назначения интересов:
+ * сколько связей добавлено и удалено, либо причина отказа.
+ */
+public record InterestAssignmentResult(int index, Long userId, boolean success, int added,
+                                       int removed, String error) {
+
+    public static InterestAssignmentResult applied(int index, long userId, int added,
+                                                   int removed) {
+        return new InterestAssignmentResult(index, userId, true, added, removed, null);
+    }
+
+    public static InterestAssignmentResult failed(int index, Long userId, String error) {
+        return new InterestAssignmentResult(index, userId, false, 0, 0, error);
+    }
+}
@@ -0,0 +1,10 @@
+package com.kirill.meetyou.dto;
+
+// Пара пользователь - интерес для пакетной загрузки интересов к списку
+public interface UserInterestRow {
+    Long getUserId();
+
+    Long getInterestId();
+
+    String getInterestType();
+}
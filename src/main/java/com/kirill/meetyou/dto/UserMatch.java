@@ -0,0 +1,8 @@
+package com.kirill.meetyou.dto;
+
+/**
+ * Пользователь из поиска лучших совпадений: {@code sharedInterests} общих
+ * интересов, {@code score} - коэффициент Жаккара от 0 до 1.
+ */
+public record UserMatch(UserSummary user, int sharedInterests, double score) {
+}
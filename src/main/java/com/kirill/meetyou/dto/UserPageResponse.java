@@ -0,0 +1,12 @@
+package com.kirill.meetyou.dto;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class UserPageResponse {
+    private List<UserSummary> items;
+    private String nextCursor;  // null, если страница последняя
+}
@@ -0,0 +1,16 @@
+package com.kirill.meetyou.dto;
+
+import java.time.LocalDate;
+
+// Проекция для списков: только колонки users, без ленивых коллекций сущности
+public interface UserRow {
+    Long getId();
+
+    String getName();
+
+    String getEmail();
+
+    LocalDate getBirth();
+
+    Integer getAge();
+}
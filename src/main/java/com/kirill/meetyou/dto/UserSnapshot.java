@@ -0,0 +1,113 @@
+package com.kirill.meetyou.dto;
+
+import com.kirill.meetyou.model.Interest;
+import com.kirill.meetyou.model.User;
+import com.kirill.meetyou.utils.ContentHash;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Неизменяемый снимок пользователя для UserCache. В отличие от сущности не
+ * держит ленивые коллекции (друзья, фото, сообщения), поэтому не тянет за собой
+ * граф объектов и не ходит в базу при сериализации. Интересы хранятся
+ * параллельными массивами id/названий, отсортированными по id; массивы не
+ * копируются при чтении, поэтому изменять их нельзя. {@code version} - версия
+ * строки на момент снимка, по ней кэш не даёт старому снимку затереть новый.
+ *
+ * <p>{@code interestsHash} и {@code hash} - хэши JSON-представлений списка
+ * интересов и пользователя целиком (без version). Считаются один раз при
+ * создании снимка и живут в кэше вместе с ним, из них получаются ETag.
+ */
+public record UserSnapshot(long id, long version, String name, String email, LocalDate birth,
+                           Integer age, long[] interestIds, String[] interestTypes,
+                           long interestsHash, long hash) {
+
+    private static final long[] NO_IDS = new long[0];
+    private static final String[] NO_TYPES = new String[0];
+
+    public UserSnapshot(long id, long version, String name, String email, LocalDate birth,
+                        Integer age, long[] interestIds, String[] interestTypes) {
+        this(id, version, name, email, birth, age, interestIds, interestTypes,
+                interestsHash(interestIds, interestTypes));
+    }
+
+    private UserSnapshot(long id, long version, String name, String email, LocalDate birth,
+                         Integer age, long[] interestIds, String[] interestTypes,
+                         long interestsHash) {
+        this(id, version, name, email, birth, age, interestIds, interestTypes, interestsHash,
+                new ContentHash().add(id).add(name).add(email).add(birth).add(age)
+                        .add(interestsHash).value());
+    }
+
+    public static UserSnapshot from(User user) {
+        Set<Interest> interests = user.getInterests();
+        long[] ids = NO_IDS;
+        String[] types = NO_TYPES;
+        if (interests != null && !interests.isEmpty()) {
+            Interest[] sorted = interests.toArray(new Interest[0]);
+            Arrays.sort(sorted, Comparator.comparing(Interest::getId,
+                    Comparator.nullsLast(Comparator.naturalOrder())));
+            ids = new long[sorted.length];
+            types = new String[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                ids[i] = sorted[i].getId() == null ? 0L : sorted[i].getId();
+                types[i] = sorted[i].getInterestType();
+            }
+        }
+        long version = user.getVersion() == null ? 0L : user.getVersion();
+        return new UserSnapshot(user.getId(), version, user.getName(), user.getEmail(),
+                user.getBirth(), user.getAge(), ids, types);
+    }
+
+    public int interestCount() {
+        return interestIds.length;
+    }
+
+    public String etag() {
+        return ContentHash.etag(hash);
+    }
+
+    public String interestsEtag() {
+        return ContentHash.etag(interestsHash);
+    }
+
+    // Отсоединённые интересы в порядке id - в том же, по которому считался хэш
+    public List<Interest> interests() {
+        List<Interest> interests = new ArrayList<>(interestIds.length);
+        for (int i = 0; i < interestIds.length; i++) {
+            Interest interest = new Interest();
+            interest.setId(interestIds[i]);
+            interest.setInterestType(interestTypes[i]);
+            interests.add(interest);
+        }
+        return interests;
+    }
+
+    // Отсоединённый пользователь без друзей, фото и сообщений. Интересы - в
+    // LinkedHashSet в порядке id: у Interest хэш по identity, и в HashSet
+    // порядок в JSON менялся бы от вызова к вызову при том же ETag
+    public User toUser() {
+        User user = new User();
+        user.setId(id);
+        user.setVersion(version);
+        user.setName(name);
+        user.setEmail(email);
+        user.setBirth(birth);
+        user.setAge(age);
+        user.setInterests(new LinkedHashSet<>(interests()));
+        return user;
+    }
+
+    private static long interestsHash(long[] ids, String[] types) {
+        ContentHash hash = new ContentHash().add(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            hash.add(ids[i]).add(types[i]);
+        }
+        return hash.value();
+    }
+}
@@ -0,0 +1,21 @@
+package com.kirill.meetyou.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Пользователь в ответах-списках. JSON совпадает с сериализацией сущности User
+ * (id, name, email, birth, age, interests), но собирается из проекций: строки
+ * users одним запросом и интересы всей страницы другим, без запроса на строку.
+ */
+public record UserSummary(Long id, String name, String email, LocalDate birth, Integer age,
+                          List<InterestItem> interests) {
+
+    public static UserSummary from(UserRow row, List<InterestItem> interests) {
+        return new UserSummary(row.getId(), row.getName(), row.getEmail(), row.getBirth(),
+                row.getAge(), interests);
+    }
+
+    public record InterestItem(Long id, String interestType) {
+    }
+}
@@ -0,0 +1,8 @@
+package com.kirill.meetyou.enums;
+
+public enum ImportJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
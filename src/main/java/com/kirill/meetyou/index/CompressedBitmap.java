@@ -0,0 +1,357 @@
+package com.kirill.meetyou.index;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Сжатое множество 32-битных беззнаковых чисел в духе Roaring. Старшие 16 бит
+ * значения выбирают контейнер, младшие хранятся в нём. Разреженный контейнер -
+ * отсортированный char[] (до {@value #ARRAY_MAX} значений, 2 байта на элемент),
+ * плотный - битовая карта на 65536 бит (8 КБ). Пересечение и объединение идут
+ * контейнер к контейнеру, и у непересекающихся диапазонов ключей работы нет.
+ *
+ * <p>Не потокобезопасен: синхронизацию обеспечивает владелец. Результаты
+ * {@link #and} и {@link #or} не делят контейнеры с аргументами.
+ */
+final class CompressedBitmap {
+    static final long MAX_VALUE = 0xFFFF_FFFFL;
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    boolean add(long value) {
+        char key = highBits(value);
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new Container());
+        }
+        return containers[index].add((char) value);
+    }
+
+    boolean remove(long value) {
+        int index = Arrays.binarySearch(keys, 0, size, highBits(value));
+        if (index < 0 || !containers[index].remove((char) value)) {
+            return false;
+        }
+        if (containers[index].cardinality == 0) {
+            removeContainer(index);
+        }
+        return true;
+    }
+
+    boolean contains(long value) {
+        int index = Arrays.binarySearch(keys, 0, size, highBits(value));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    // Значения по возрастанию
+    void forEach(LongConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach((long) keys[i] << 16, consumer);
+        }
+    }
+
+    long[] toArray() {
+        long[] values = new long[(int) cardinality()];
+        int[] position = {0};
+        forEach(value -> values[position[0]++] = value);
+        return values;
+    }
+
+    static CompressedBitmap and(CompressedBitmap left, CompressedBitmap right) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < left.size && j < right.size) {
+            if (left.keys[i] < right.keys[j]) {
+                i++;
+            } else if (left.keys[i] > right.keys[j]) {
+                j++;
+            } else {
+                Container container = Container.and(left.containers[i], right.containers[j]);
+                if (container.cardinality > 0) {
+                    result.appendContainer(left.keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    static CompressedBitmap or(CompressedBitmap left, CompressedBitmap right) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < left.size || j < right.size) {
+            if (j == right.size || (i < left.size && left.keys[i] < right.keys[j])) {
+                result.appendContainer(left.keys[i], left.containers[i].copy());
+                i++;
+            } else if (i == left.size || left.keys[i] > right.keys[j]) {
+                result.appendContainer(right.keys[j], right.containers[j].copy());
+                j++;
+            } else {
+                result.appendContainer(left.keys[i],
+                        Container.or(left.containers[i], right.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    private static char highBits(long value) {
+        if (value < 0 || value > MAX_VALUE) {
+            throw new IllegalArgumentException("Value out of 32-bit range: " + value);
+        }
+        return (char) (value >>> 16);
+    }
+
+    private void insertContainer(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    // Ключи при построении результатов идут по возрастанию
+    private void appendContainer(char key, Container container) {
+        insertContainer(size, key, container);
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    /**
+     * Младшие 16 бит значений одного диапазона. Хранятся либо в {@code values}
+     * (отсортированы, занято первых {@code cardinality}), либо в {@code bits}.
+     */
+    private static final class Container {
+        private char[] values = new char[4];
+        private long[] bits;
+        private int cardinality;
+
+        boolean add(char value) {
+            if (bits != null) {
+                long mask = 1L << value;
+                if ((bits[value >>> 6] & mask) != 0) {
+                    return false;
+                }
+                bits[value >>> 6] |= mask;
+                cardinality++;
+                return true;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX) {
+                toBits();
+                return add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char value) {
+            if (bits != null) {
+                long mask = 1L << value;
+                if ((bits[value >>> 6] & mask) == 0) {
+                    return false;
+                }
+                bits[value >>> 6] &= ~mask;
+                if (--cardinality <= ARRAY_MAX) {
+                    toValues();
+                }
+                return true;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+            return true;
+        }
+
+        boolean contains(char value) {
+            if (bits != null) {
+                return (bits[value >>> 6] & (1L << value)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        void forEach(long base, LongConsumer consumer) {
+            if (bits == null) {
+                for (int i = 0; i < cardinality; i++) {
+                    consumer.accept(base | values[i]);
+                }
+                return;
+            }
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                long remaining = bits[word];
+                while (remaining != 0) {
+                    consumer.accept(base | ((long) word << 6)
+                            | Long.numberOfTrailingZeros(remaining));
+                    remaining &= remaining - 1;
+                }
+            }
+        }
+
+        Container copy() {
+            Container copy = new Container();
+            copy.cardinality = cardinality;
+            if (bits != null) {
+                copy.bits = bits.clone();
+                copy.values = null;
+            } else {
+                copy.values = Arrays.copyOf(values, Math.max(cardinality, 1));
+            }
+            return copy;
+        }
+
+        static Container and(Container left, Container right) {
+            Container result = new Container();
+            if (left.bits != null && right.bits != null) {
+                long[] bits = new long[BITMAP_WORDS];
+                int cardinality = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    bits[i] = left.bits[i] & right.bits[i];
+                    cardinality += Long.bitCount(bits[i]);
+                }
+                result.bits = bits;
+                result.values = null;
+                result.cardinality = cardinality;
+                if (cardinality <= ARRAY_MAX) {
+                    result.toValues();
+                }
+                return result;
+            }
+            if (left.bits != null || right.bits != null) {
+                // Разреженный проверяем по битам плотного
+                Container sparse = left.bits == null ? left : right;
+                Container dense = left.bits == null ? right : left;
+                result.values = new char[Math.max(sparse.cardinality, 1)];
+                for (int i = 0; i < sparse.cardinality; i++) {
+                    if (dense.contains(sparse.values[i])) {
+                        result.values[result.cardinality++] = sparse.values[i];
+                    }
+                }
+                return result;
+            }
+            result.values = new char[Math.max(Math.min(left.cardinality, right.cardinality), 1)];
+            int i = 0;
+            int j = 0;
+            while (i < left.cardinality && j < right.cardinality) {
+                if (left.values[i] < right.values[j]) {
+                    i++;
+                } else if (left.values[i] > right.values[j]) {
+                    j++;
+                } else {
+                    result.values[result.cardinality++] = left.values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+
+        static Container or(Container left, Container right) {
+            if (left.bits == null && right.bits == null
+                    && left.cardinality + right.cardinality <= ARRAY_MAX) {
+                Container result = new Container();
+                result.values = new char[Math.max(left.cardinality + right.cardinality, 1)];
+                int i = 0;
+                int j = 0;
+                while (i < left.cardinality || j < right.cardinality) {
+                    char next;
+                    if (j == right.cardinality
+                            || (i < left.cardinality && left.values[i] < right.values[j])) {
+                        next = left.values[i++];
+                    } else if (i == left.cardinality || left.values[i] > right.values[j]) {
+                        next = right.values[j++];
+                    } else {
+                        next = left.values[i++];
+                        j++;
+                    }
+                    result.values[result.cardinality++] = next;
+                }
+                return result;
+            }
+            Container result = left.copy();
+            result.toBits();
+            if (right.bits != null) {
+                int cardinality = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    result.bits[i] |= right.bits[i];
+                    cardinality += Long.bitCount(result.bits[i]);
+                }
+                result.cardinality = cardinality;
+            } else {
+                for (int i = 0; i < right.cardinality; i++) {
+                    result.add(right.values[i]);
+                }
+            }
+            if (result.cardinality <= ARRAY_MAX) {
+                result.toValues();
+            }
+            return result;
+        }
+
+        private void toBits() {
+            if (bits != null) {
+                return;
+            }
+            bits = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        private void toValues() {
+            char[] sorted = new char[Math.max(cardinality, 1)];
+            int position = 0;
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                long remaining = bits[word];
+                while (remaining != 0) {
+                    sorted[position++] = (char) ((word << 6)
+                            | Long.numberOfTrailingZeros(remaining));
+                    remaining &= remaining - 1;
+                }
+            }
+            values = sorted;
+            bits = null;
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package com.kirill.meetyou.index;
+
+import com.kirill.meetyou.cache.InterestDictionary;
+import com.kirill.meetyou.cache.UserCache;
+import com.kirill.meetyou.cache.invalidation.InvalidationBus;
+import com.kirill.meetyou.cache.invalidation.InvalidationEvent;
+import com.kirill.meetyou.repository.UserInterestRepository;
+import com.kirill.meetyou.utils.AfterCommit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Инвертированный индекс интерес -> id пользователей в памяти. Для каждого
+ * интереса хранится {@link CompressedBitmap}, поэтому поиск "все из" и "любой
+ * из" сводится к пересечению и объединению битовых карт, а база нужна только
+ * чтобы загрузить найденных пользователей. Интересы задаются int-кодами из
+ * {@link InterestDictionary}, битовые карты лежат в списке по коду.
+ *
+ * <p>Строится при старте из user_interest. Изменения этого узла вносятся
+ * InterestService после фиксации транзакции, изменения других узлов приходят
+ * через {@link InvalidationBus}: по событию перечитываются интересы одного
+ * пользователя, по событию "сбросить всё" индекс строится заново. Пока индекс
+ * не построен, методы поиска возвращают {@code null} и вызывающий идёт в базу.
+ *
+ * <p>Для ранжирования по сходству рядом хранится обратное отображение
+ * пользователь -> отсортированный массив кодов его интересов. Массивы не
+ * изменяются на месте, при записи подменяются целиком.
+ */
+@Slf4j
+@Component
+public class InterestIndex {
+    private static final long[] NO_USERS = new long[0];
+    // Кандидатов на одну задачу параллельной оценки
+    private static final int SCORE_CHUNK = 16_384;
+
+    private final UserInterestRepository userInterestRepository;
+    private final InterestDictionary interestDictionary;
+    private final UserCache userCache;
+    private final Executor taskExecutor;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Индекс в списке - код интереса, null - у интереса нет пользователей
+    private List<CompressedBitmap> usersByCode = new ArrayList<>();
+    private Map<Long, int[]> interestsByUser = new HashMap<>();
+    private volatile boolean ready;
+    // Пользователи, изменённые во время перестройки: после неё перечитываются
+    private volatile Set<Long> changedDuringRebuild;
+
+    public InterestIndex(UserInterestRepository userInterestRepository,
+                         InterestDictionary interestDictionary, UserCache userCache,
+                         @Qualifier("taskExecutor") Executor taskExecutor,
+                         InvalidationBus invalidationBus) {
+        this.userInterestRepository = userInterestRepository;
+        this.interestDictionary = interestDictionary;
+        this.userCache = userCache;
+        this.taskExecutor = taskExecutor;
+        invalidationBus.subscribe(this::onInvalidation);
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void build() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("Failed to build interest index, searching in database. Error: {}",
+                    e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Читает все связи заново и подменяет индекс целиком. Названия интересов
+     * заодно обновляются в словаре. Поиск во время перестройки работает по
+     * старой версии.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        Set<Long> changed = ConcurrentHashMap.newKeySet();
+        changedDuringRebuild = changed;
+        try {
+            Map<Long, String> types = userInterestRepository.findAllInterestTypes();
+            types.forEach(interestDictionary::register);
+            List<CompressedBitmap> users = new ArrayList<>();
+            Map<Long, int[]> interests = new HashMap<>();
+            long[] links = {0};
+            userInterestRepository.forEachLink((userId, interestId) -> {
+                InterestDictionary.Entry interest = interestDictionary.get(interestId);
+                if (interest == null) {
+                    // Интерес создан уже после чтения названий
+                    changed.add(userId);
+                    return;
+                }
+                bitmap(users, interest.code()).add(userId);
+                interests.put(userId, withCode(interests.get(userId), interest.code()));
+                links[0]++;
+            });
+
+            lock.writeLock().lock();
+            try {
+                usersByCode = users;
+                interestsByUser = interests;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Interest index built: {} interests, {} links in {} ms", types.size(),
+                    links[0], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            changedDuringRebuild = null;
+        }
+        changed.forEach(this::reloadUser);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Id пользователей, у которых есть все интересы с кодами {@code codes}, по
+     * возрастанию. {@code null}, если индекс не готов.
+     */
+    public long[] findUsersWithAll(int... codes) {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            List<CompressedBitmap> bitmaps = new ArrayList<>(codes.length);
+            for (int code : codes) {
+                CompressedBitmap users = usersOf(code);
+                if (users == null) {
+                    return NO_USERS;
+                }
+                bitmaps.add(users);
+            }
+            // Начинаем с самого редкого интереса: дальше пересекать почти нечего
+            bitmaps.sort(Comparator.comparingLong(CompressedBitmap::cardinality));
+            CompressedBitmap result = null;
+            for (CompressedBitmap users : bitmaps) {
+                result = result == null ? users : CompressedBitmap.and(result, users);
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result == null ? NO_USERS : result.toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Id пользователей, у которых есть хотя бы один интерес с кодом из
+     * {@code codes}, по возрастанию. {@code null}, если индекс не готов.
+     */
+    public long[] findUsersWithAny(int... codes) {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            CompressedBitmap result = null;
+            for (int code : codes) {
+                CompressedBitmap users = usersOf(code);
+                if (users != null) {
+                    result = result == null ? users : CompressedBitmap.or(result, users);
+                }
+            }
+            return result == null ? NO_USERS : result.toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * До {@code limit} пользователей, чьи интересы больше всего похожи на
+     * интересы {@code userId} по коэффициенту Жаккара, лучшие первыми.
+     * Кандидаты - объединение битовых карт интересов пользователя, для каждого
+     * пересекаются отсортированные массивы кодов. Кандидаты делятся на порции
+     * по {@value #SCORE_CHUNK}, порции оцениваются параллельно в общем пуле, у
+     * каждой своя куча из {@code limit} лучших, затем кучи сливаются.
+     * {@code null}, если индекс не готов.
+     */
+    public List<InterestMatch> findBestMatches(long userId, int limit) {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            // Запись ждёт снятия блокировки, поэтому потоки пула читают те же карты
+            int[] own = interestsByUser.get(userId);
+            if (own == null) {
+                return List.of();
+            }
+            CompressedBitmap candidates = null;
+            for (int code : own) {
+                CompressedBitmap users = usersOf(code);
+                if (users != null) {
+                    candidates = candidates == null ? users
+                            : CompressedBitmap.or(candidates, users);
+                }
+            }
+            long[] ids = candidates == null ? NO_USERS : candidates.toArray();
+            int chunks = (ids.length + SCORE_CHUNK - 1) / SCORE_CHUNK;
+            return IntStream.range(0, chunks).parallel()
+                    .mapToObj(chunk -> score(userId, own, ids, chunk * SCORE_CHUNK,
+                            Math.min(ids.length, (chunk + 1) * SCORE_CHUNK), limit))
+                    .reduce(TopMatches::merge)
+                    .map(TopMatches::toList)
+                    .orElse(List.of());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Новый интерес к этому моменту уже в словаре: его регистрация тоже после коммита,
+    // но раньше
+    public void add(long userId, long interestId) {
+        AfterCommit.run(() -> {
+            InterestDictionary.Entry interest = interestDictionary.get(interestId);
+            if (interest == null) {
+                reloadUser(userId);
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                bitmap(usersByCode, interest.code()).add(userId);
+                interestsByUser.put(userId, withCode(interestsByUser.get(userId),
+                        interest.code()));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            markChanged(userId);
+        });
+    }
+
+    public void remove(long userId, long interestId) {
+        AfterCommit.run(() -> {
+            InterestDictionary.Entry interest = interestDictionary.get(interestId);
+            if (interest == null) {
+                // Интерес незнаком - значит, и в индекс он не попадал
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                removeLink(userId, interest.code());
+            } finally {
+                lock.writeLock().unlock();
+            }
+            markChanged(userId);
+        });
+    }
+
+    public void removeUser(long userId) {
+        AfterCommit.run(() -> replaceUser(userId, new int[0]));
+    }
+
+    // Весь набор интересов пользователя сразу - для массового назначения
+    public void replace(long userId, Collection<Long> interestIds) {
+        long[] ids = interestIds.stream().mapToLong(Long::longValue).toArray();
+        AfterCommit.run(() -> {
+            int[] codes = new int[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                InterestDictionary.Entry interest = interestDictionary.get(ids[i]);
+                if (interest == null) {
+                    reloadUser(userId);
+                    return;
+                }
+                codes[i] = interest.code();
+            }
+            Arrays.sort(codes);
+            replaceUser(userId, codes);
+        });
+    }
+
+    // Интересы пользователя из базы заменяют то, что о нём знает индекс
+    void reloadUser(long userId) {
+        List<Map.Entry<Long, String>> interests =
+                userInterestRepository.findInterestsOfUser(userId);
+        int[] codes = new int[interests.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = interestDictionary.register(interests.get(i).getKey(),
+                    interests.get(i).getValue()).code();
+        }
+        Arrays.sort(codes);
+        replaceUser(userId, codes);
+    }
+
+    private void replaceUser(long userId, int[] codes) {
+        lock.writeLock().lock();
+        try {
+            int[] previous = interestsByUser.get(userId);
+            if (previous != null) {
+                for (int code : previous) {
+                    if (Arrays.binarySearch(codes, code) < 0) {
+                        removeLink(userId, code);
+                    }
+                }
+            }
+            for (int code : codes) {
+                bitmap(usersByCode, code).add(userId);
+            }
+            if (codes.length == 0) {
+                interestsByUser.remove(userId);
+            } else {
+                interestsByUser.put(userId, codes);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        markChanged(userId);
+    }
+
+    private void onInvalidation(InvalidationEvent event) {
+        // Коды интересов при переименовании не меняются, это дело словаря
+        if (userCache.nodeId().equals(event.origin()) || event.isInterest()) {
+            return;
+        }
+        if (!ready) {
+            // Индекс ещё строится: пользователя перечитаем сразу после
+            if (!event.isAll()) {
+                markChanged(event.userId());
+            }
+            return;
+        }
+        Runnable reload = event.isAll() ? this::rebuild : () -> reloadUser(event.userId());
+        try {
+            // Шина доставляет события в своём потоке, в базу из него не ходим
+            taskExecutor.execute(() -> {
+                try {
+                    reload.run();
+                } catch (Exception e) {
+                    log.warn("Failed to sync interest index. Error: {}", e.getMessage(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Interest index sync rejected, index may be stale until rebuild");
+        }
+    }
+
+    private CompressedBitmap usersOf(int code) {
+        return code >= 0 && code < usersByCode.size() ? usersByCode.get(code) : null;
+    }
+
+    private void removeLink(long userId, int code) {
+        CompressedBitmap users = usersOf(code);
+        if (users != null && users.remove(userId) && users.isEmpty()) {
+            usersByCode.set(code, null);
+        }
+        int[] codes = withoutCode(interestsByUser.get(userId), code);
+        if (codes == null) {
+            interestsByUser.remove(userId);
+        } else {
+            interestsByUser.put(userId, codes);
+        }
+    }
+
+    private TopMatches score(long userId, int[] own, long[] candidates, int from, int to,
+                             int limit) {
+        TopMatches top = new TopMatches(limit);
+        for (int i = from; i < to; i++) {
+            long candidate = candidates[i];
+            if (candidate == userId) {
+                continue;
+            }
+            int[] other = interestsByUser.get(candidate);
+            if (other == null) {
+                continue;
+            }
+            int shared = sharedCount(own, other);
+            top.offer(candidate, shared, own.length + other.length - shared);
+        }
+        return top;
+    }
+
+    // Размер пересечения двух отсортированных массивов
+    static int sharedCount(int[] left, int[] right) {
+        int shared = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                shared++;
+                i++;
+                j++;
+            }
+        }
+        return shared;
+    }
+
+    private static CompressedBitmap bitmap(List<CompressedBitmap> usersByCode, int code) {
+        while (usersByCode.size() <= code) {
+            usersByCode.add(null);
+        }
+        CompressedBitmap users = usersByCode.get(code);
+        if (users == null) {
+            users = new CompressedBitmap();
+            usersByCode.set(code, users);
+        }
+        return users;
+    }
+
+    // Новый отсортированный массив с добавленным кодом; исходный не меняется
+    private static int[] withCode(int[] codes, int code) {
+        if (codes == null) {
+            return new int[] {code};
+        }
+        int index = Arrays.binarySearch(codes, code);
+        if (index >= 0) {
+            return codes;
+        }
+        index = -index - 1;
+        int[] result = new int[codes.length + 1];
+        System.arraycopy(codes, 0, result, 0, index);
+        result[index] = code;
+        System.arraycopy(codes, index, result, index + 1, codes.length - index);
+        return result;
+    }
+
+    // null, если кодов не осталось
+    private static int[] withoutCode(int[] codes, int code) {
+        int index = codes == null ? -1 : Arrays.binarySearch(codes, code);
+        if (index < 0) {
+            return codes;
+        }
+        if (codes.length == 1) {
+            return null;
+        }
+        int[] result = new int[codes.length - 1];
+        System.arraycopy(codes, 0, result, 0, index);
+        System.arraycopy(codes, index + 1, result, index, result.length - index);
+        return result;
+    }
+
+    private void markChanged(long userId) {
+        Set<Long> changed = changedDuringRebuild;
+        if (changed != null) {
+            changed.add(userId);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.kirill.meetyou.index;
+
+/**
+ * Кандидат из {@link InterestIndex#findBestMatches}: {@code shared} общих
+ * интересов из {@code union} интересов у двух пользователей вместе.
+ */
+public record InterestMatch(long userId, int shared, int union) {
+
+    // Коэффициент Жаккара |A ∩ B| / |A ∪ B|
+    public double score() {
+        return union == 0 ? 0 : (double) shared / union;
+    }
+}
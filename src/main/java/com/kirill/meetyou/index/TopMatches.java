@@ -0,0 +1,120 @@
+package com.kirill.meetyou.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ограниченная куча лучших {@code capacity} кандидатов на примитивных
+ * массивах. В корне худший из отобранных, поэтому кандидат хуже корня
+ * отбрасывается за одно сравнение, а память не зависит от числа кандидатов.
+ *
+ * <p>Порядок: больше Жаккар (сравнивается перекрёстным умножением, без
+ * double), затем больше общих интересов, затем меньший id.
+ */
+final class TopMatches {
+    private final long[] userIds;
+    private final int[] shared;
+    private final int[] unions;
+    private int size;
+
+    TopMatches(int capacity) {
+        userIds = new long[capacity];
+        shared = new int[capacity];
+        unions = new int[capacity];
+    }
+
+    void offer(long userId, int sharedCount, int union) {
+        if (size < userIds.length) {
+            set(size, userId, sharedCount, union);
+            siftUp(size++);
+        } else if (size > 0 && compare(userId, sharedCount, union, 0) > 0) {
+            set(0, userId, sharedCount, union);
+            siftDown(0);
+        }
+    }
+
+    TopMatches merge(TopMatches other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.userIds[i], other.shared[i], other.unions[i]);
+        }
+        return this;
+    }
+
+    // Лучшие первыми
+    List<InterestMatch> toList() {
+        List<InterestMatch> matches = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            matches.add(new InterestMatch(userIds[i], shared[i], unions[i]));
+        }
+        matches.sort((left, right) -> compare(right.userId(), right.shared(), right.union(),
+                left.userId(), left.shared(), left.union()));
+        return matches;
+    }
+
+    private int compare(long userId, int sharedCount, int union, int slot) {
+        return compare(userId, sharedCount, union, userIds[slot], shared[slot], unions[slot]);
+    }
+
+    // > 0, если первый кандидат лучше второго
+    static int compare(long leftId, int leftShared, int leftUnion,
+                       long rightId, int rightShared, int rightUnion) {
+        int byScore = Long.compare((long) leftShared * rightUnion,
+                (long) rightShared * leftUnion);
+        if (byScore != 0) {
+            return byScore;
+        }
+        if (leftShared != rightShared) {
+            return Integer.compare(leftShared, rightShared);
+        }
+        return Long.compare(rightId, leftId);
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (compare(parent, slot) <= 0) {
+                return;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot) {
+        while (true) {
+            int worst = slot;
+            int left = 2 * slot + 1;
+            int right = left + 1;
+            if (left < size && compare(left, worst) < 0) {
+                worst = left;
+            }
+            if (right < size && compare(right, worst) < 0) {
+                worst = right;
+            }
+            if (worst == slot) {
+                return;
+            }
+            swap(slot, worst);
+            slot = worst;
+        }
+    }
+
+    private int compare(int leftSlot, int rightSlot) {
+        return compare(userIds[leftSlot], shared[leftSlot], unions[leftSlot],
+                userIds[rightSlot], shared[rightSlot], unions[rightSlot]);
+    }
+
+    private void set(int slot, long userId, int sharedCount, int union) {
+        userIds[slot] = userId;
+        shared[slot] = sharedCount;
+        unions[slot] = union;
+    }
+
+    private void swap(int left, int right) {
+        long userId = userIds[left];
+        int sharedCount = shared[left];
+        int union = unions[left];
+        set(left, userIds[right], shared[right], unions[right]);
+        set(right, userId, sharedCount, union);
+    }
+}
@@ -1,15 +1,19 @@
 package com.kirill.meetyou.model;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.kirill.meetyou.utils.InterestKey;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import java.util.HashSet;
 import java.util.Set;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -19,13 +23,25 @@ import lombok.Setter;
 @Setter
 public class Interest {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "interests_seq")
+    @SequenceGenerator(name = "interests_seq", sequenceName = "interests_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "interest_type", unique = true, nullable = false)
     private String interestType;
 
+    // Выставляется вместе с interestType, по нему идут все поиски по названию
+    @Column(name = "interest_key", unique = true, nullable = false)
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private String interestKey;
+
     @ManyToMany(mappedBy = "interests")
     @JsonBackReference
     private Set<User> users = new HashSet<>();
+
+    public void setInterestType(String interestType) {
+        this.interestType = interestType;
+        this.interestKey = InterestKey.normalize(interestType);
+    }
 }
\ No newline at end of file
@@ -7,12 +7,15 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -20,14 +23,16 @@ import java.util.List;
 import java.util.Set;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.OptimisticLock;
 
 @Setter
 @Getter
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_birth", columnList = "birth"))
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "name")
@@ -36,6 +41,11 @@ public class User {
     private LocalDate birth;
     private Integer age;
 
+    // Клиенту версия отдаётся в ETag, а не в теле
+    @Version
+    @JsonIgnore
+    private Long version;
+
     @OneToMany(mappedBy = "sender", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
     private List<Message> sentMessages = new ArrayList<>();
@@ -50,6 +60,8 @@ public class User {
             joinColumns = @JoinColumn(name = "user_id"),
             inverseJoinColumns = @JoinColumn(name = "friend_id")
     )
+    // Дружба не входит в профиль и не должна конфликтовать с его правкой
+    @OptimisticLock(excluded = true)
     @JsonIgnore
     private Set<User> friends = new HashSet<>();
 
@@ -88,6 +100,7 @@ public class User {
                 + ", email='" + email + '\''
                 + ", birth=" + birth
                 + ", age=" + age
+                + ", version=" + version
                 + '}';
     }
 
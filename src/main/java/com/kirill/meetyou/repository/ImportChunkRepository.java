@@ -0,0 +1,38 @@
+package com.kirill.meetyou.repository;
+
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Отметки о сохранённых порциях импорта (таблица import_chunks). Пишутся в
+ * транзакции порции, так что отметка есть ровно тогда, когда есть её строки.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImportChunkRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    // errors - ошибки строк порции в JSON, null если их нет
+    public record Chunk(int chunk, int successCount, int failCount, String errors) {
+    }
+
+    public void save(String jobId, Chunk chunk) {
+        jdbcTemplate.update("INSERT INTO import_chunks"
+                + " (job_id, chunk, success_count, fail_count, errors) VALUES (?, ?, ?, ?, ?)",
+                jobId, chunk.chunk(), chunk.successCount(), chunk.failCount(), chunk.errors());
+    }
+
+    public List<Chunk> findByJob(String jobId) {
+        return jdbcTemplate.query("SELECT chunk, success_count, fail_count, errors"
+                        + " FROM import_chunks WHERE job_id = ? ORDER BY chunk",
+                (resultSet, row) -> new Chunk(resultSet.getInt(1), resultSet.getInt(2),
+                        resultSet.getInt(3), resultSet.getString(4)),
+                jobId);
+    }
+
+    public void deleteByJob(String jobId) {
+        jdbcTemplate.update("DELETE FROM import_chunks WHERE job_id = ?", jobId);
+    }
+}
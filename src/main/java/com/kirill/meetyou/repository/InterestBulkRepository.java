@@ -0,0 +1,69 @@
+package com.kirill.meetyou.repository;
+
+import com.kirill.meetyou.model.Interest;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Пакетное создание интересов для массового назначения. Работает в текущей
+ * транзакции Spring (тот же DataSource).
+ */
+@Repository
+@RequiredArgsConstructor
+public class InterestBulkRepository {
+    // Должен совпадать с allocationSize генератора interests_seq в Interest
+    static final int ID_ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Создаёт интересы из {@code typesByKey} (ключ -> название), которых ещё
+     * нет, и возвращает интересы по всем этим ключам. Ключ, уже занятый в том
+     * числе параллельной транзакцией, пропускается через ON CONFLICT (после её
+     * фиксации), и возвращается существующий интерес с его названием. Ключей,
+     * чей интерес успели удалить или переименовать, в результате нет.
+     */
+    public List<Interest> insertMissing(Map<String, String> typesByKey) {
+        if (typesByKey.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = PooledIds.allocate(jdbcTemplate, "interests_seq", ID_ALLOCATION_SIZE,
+                typesByKey.size());
+        List<Object[]> rows = new ArrayList<>(typesByKey.size());
+        typesByKey.forEach((key, interestType) ->
+                rows.add(new Object[] {ids.get(rows.size()), interestType, key}));
+        jdbcTemplate.batchUpdate("INSERT INTO interests (id, interest_type, interest_key)"
+                + " VALUES (?, ?, ?) ON CONFLICT (interest_key) DO NOTHING", rows);
+        return findByKeys(typesByKey.keySet().toArray());
+    }
+
+    private List<Interest> findByKeys(Object[] keys) {
+        return jdbcTemplate.execute((Connection connection) -> {
+            Array array = connection.createArrayOf("text", keys);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id, interest_type FROM interests WHERE interest_key = ANY(?)")) {
+                statement.setArray(1, array);
+                List<Interest> interests = new ArrayList<>(keys.length);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        Interest interest = new Interest();
+                        interest.setId(resultSet.getLong(1));
+                        interest.setInterestType(resultSet.getString(2));
+                        interests.add(interest);
+                    }
+                }
+                return interests;
+            } finally {
+                array.free();
+            }
+        });
+    }
+}
@@ -4,12 +4,7 @@ import com.kirill.meetyou.model.Interest;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+// Поиск по названию - только через InterestKey.normalize, по уникальному индексу interest_key
 public interface InterestRepository extends JpaRepository<Interest, Long> {
-    Optional<Interest> findByInterestType(String interestType);
-
-    Optional<Interest> findByInterestTypeIgnoreCase(String interestType);
-
-    boolean existsByInterestTypeIgnoreCase(String interestType);
-
-    boolean existsByInterestType(String interestType);
+    Optional<Interest> findByInterestKey(String interestKey);
 }
\ No newline at end of file
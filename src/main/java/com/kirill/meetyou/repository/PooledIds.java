@@ -0,0 +1,35 @@
+package com.kirill.meetyou.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Id для вставок в обход Hibernate. Берутся блоками из той же
+ * последовательности и так же, как их выделяет генератор Hibernate (pooled-lo):
+ * значение последовательности - начало блока из {@code allocationSize} id.
+ * Поэтому с id, выданными через JPA, они не пересекаются.
+ */
+final class PooledIds {
+
+    private PooledIds() {
+    }
+
+    // Один запрос на все блоки вместо nextval на каждую строку
+    static List<Long> allocate(JdbcTemplate jdbcTemplate, String sequence, int allocationSize,
+                               int count) {
+        List<Long> ids = new ArrayList<>(count);
+        if (count == 0) {
+            return ids;
+        }
+        int blocks = (count + allocationSize - 1) / allocationSize;
+        List<Long> starts = jdbcTemplate.queryForList("SELECT nextval('" + sequence
+                + "') FROM generate_series(1, ?)", Long.class, blocks);
+        for (long start : starts) {
+            for (int i = 0; i < allocationSize && ids.size() < count; i++) {
+                ids.add(start + i);
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,154 @@
+package com.kirill.meetyou.repository;
+
+import com.kirill.meetyou.model.User;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Множественные операции над users в обход Hibernate: без загрузки сущностей в
+ * контекст и с пакетами по {@value #BATCH_SIZE} строк. Работает в текущей
+ * транзакции Spring (тот же DataSource).
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserBulkRepository {
+    static final int BATCH_SIZE = 1_000;
+    // Должен совпадать с allocationSize генератора users_seq в User
+    static final int ID_ALLOCATION_SIZE = 50;
+    private static final String INSERT_SQL =
+            "INSERT INTO users (id, name, email, birth, age) VALUES (?, ?, ?, ?, ?)";
+
+    // Условие совпадает с выражением индекса idx_users_birthday. Версию
+    // поднимаем, чтобы параллельная правка через JPA не вернула старый возраст
+    private static final String UPDATE_AGES_SQL = "UPDATE users"
+            + " SET age = ? - EXTRACT(YEAR FROM birth)::int, version = version + 1"
+            + " WHERE age IS DISTINCT FROM ? - EXTRACT(YEAR FROM birth)::int"
+            + " AND EXTRACT(MONTH FROM birth) = ? AND EXTRACT(DAY FROM birth) = ?"
+            + " RETURNING id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Один запрос на весь набор: массив вместо IN-списка не упирается в лимит параметров
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+        return jdbcTemplate.execute((Connection connection) -> {
+            Array array = connection.createArrayOf("text", emails.toArray());
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT email FROM users WHERE email = ANY(?)")) {
+                statement.setArray(1, array);
+                Set<String> existing = new HashSet<>();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        existing.add(resultSet.getString(1));
+                    }
+                }
+                return existing;
+            } finally {
+                array.free();
+            }
+        });
+    }
+
+    /**
+     * Вставляет пользователей пакетами по {@value #BATCH_SIZE} и возвращает
+     * их id в порядке {@code users}. Id берутся блоками из users_seq так же, как
+     * их выделяет Hibernate (pooled-lo), см. {@link PooledIds}.
+     */
+    public List<Long> insertAll(List<User> users) {
+        List<Long> ids = allocateIds(users.size());
+        for (int from = 0; from < users.size(); from += BATCH_SIZE) {
+            int offset = from;
+            List<User> batch = users.subList(from, Math.min(from + BATCH_SIZE, users.size()));
+            jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int i) throws SQLException {
+                    User user = batch.get(i);
+                    statement.setLong(1, ids.get(offset + i));
+                    statement.setString(2, user.getName());
+                    statement.setString(3, user.getEmail());
+                    statement.setDate(4, Date.valueOf(user.getBirth()));
+                    if (user.getAge() == null) {
+                        statement.setNull(5, Types.INTEGER);
+                    } else {
+                        statement.setInt(5, user.getAge());
+                    }
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batch.size();
+                }
+            });
+        }
+        return ids;
+    }
+
+    private List<Long> allocateIds(int count) {
+        return PooledIds.allocate(jdbcTemplate, "users_seq", ID_ALLOCATION_SIZE, count);
+    }
+
+    /**
+     * Блокирует строки пользователей из {@code ids} до конца транзакции и
+     * возвращает те, что существуют. Блокировки берутся по возрастанию id,
+     * поэтому два пересекающихся пакета не ждут друг друга по кругу.
+     */
+    public Set<Long> lockExisting(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> existing = new HashSet<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id FROM users WHERE id = ANY(?) ORDER BY id FOR UPDATE");
+            statement.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            return statement;
+        }, (RowCallbackHandler) resultSet -> existing.add(resultSet.getLong(1)));
+        return existing;
+    }
+
+    // Связи меняются в обход JPA, а версия - как при изменении коллекции через Hibernate
+    public void incrementVersions(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE users SET version = version + 1 WHERE id = ANY(?)");
+            statement.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            return statement;
+        });
+    }
+
+    /**
+     * Пересчитывает age у родившихся в один из дней {@code birthdays} и
+     * возвращает id изменённых строк. Строки с уже верным возрастом не
+     * трогаются, поэтому повторный запуск (или запуск на нескольких узлах)
+     * ничего не меняет.
+     */
+    public List<Long> updateAges(int year, List<MonthDay> birthdays) {
+        List<Long> ids = new ArrayList<>();
+        for (MonthDay birthday : birthdays) {
+            ids.addAll(jdbcTemplate.queryForList(UPDATE_AGES_SQL, Long.class, year, year,
+                    birthday.getMonthValue(), birthday.getDayOfMonth()));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,113 @@
+package com.kirill.meetyou.repository;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Прямой доступ к связям user_interest через JDBC, без загрузки сущностей.
+ * Нужен индексу интересов (при старте он читает всю таблицу, а не по одному
+ * пользователю) и массовому назначению интересов, которое пишет связи пакетами
+ * по {@value #BATCH_SIZE} в текущей транзакции Spring.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserInterestRepository {
+    // Строк за один запрос к серверу при потоковом чтении всей таблицы
+    static final int FETCH_SIZE = 10_000;
+    static final int BATCH_SIZE = 1_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @FunctionalInterface
+    public interface LinkConsumer {
+        void accept(long userId, long interestId);
+    }
+
+    public record Link(long userId, long interestId) {
+    }
+
+    /**
+     * Передаёт все связи в {@code consumer} по мере чтения. PostgreSQL отдаёт
+     * строки курсором порциями по {@value #FETCH_SIZE} только внутри транзакции,
+     * иначе вся таблица оказалась бы в памяти драйвера.
+     */
+    @Transactional(readOnly = true)
+    public void forEachLink(LinkConsumer consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT user_id, interest_id FROM user_interest");
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) resultSet ->
+                consumer.accept(resultSet.getLong(1), resultSet.getLong(2)));
+    }
+
+    public Map<Long, String> findAllInterestTypes() {
+        Map<Long, String> types = new HashMap<>();
+        jdbcTemplate.query("SELECT id, interest_type FROM interests",
+                (RowCallbackHandler) resultSet ->
+                        types.put(resultSet.getLong(1), resultSet.getString(2)));
+        return types;
+    }
+
+    // Пары id/название интересов одного пользователя
+    public List<Map.Entry<Long, String>> findInterestsOfUser(long userId) {
+        return jdbcTemplate.query("SELECT i.id, i.interest_type FROM user_interest ui"
+                        + " JOIN interests i ON i.id = ui.interest_id WHERE ui.user_id = ?",
+                (resultSet, row) -> Map.entry(resultSet.getLong(1), resultSet.getString(2)),
+                userId);
+    }
+
+    // Пользователи, у которых есть интерес: их снимки хранят его название
+    public List<Long> findUserIdsByInterestId(long interestId) {
+        return jdbcTemplate.queryForList(
+                "SELECT user_id FROM user_interest WHERE interest_id = ?", Long.class, interestId);
+    }
+
+    // id интересов для каждого из пользователей одним запросом; без интересов - пустой набор
+    public Map<Long, Set<Long>> findInterestIdsByUserIds(Collection<Long> userIds) {
+        Map<Long, Set<Long>> interests = new HashMap<>();
+        for (Long userId : userIds) {
+            interests.put(userId, new HashSet<>());
+        }
+        if (userIds.isEmpty()) {
+            return interests;
+        }
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT user_id, interest_id FROM user_interest WHERE user_id = ANY(?)");
+            statement.setArray(1, connection.createArrayOf("bigint", userIds.toArray()));
+            return statement;
+        }, (RowCallbackHandler) resultSet -> interests.get(resultSet.getLong(1))
+                .add(resultSet.getLong(2)));
+        return interests;
+    }
+
+    public void insertLinks(Collection<Link> links) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO user_interest (user_id, interest_id) VALUES (?, ?)",
+                links, BATCH_SIZE, (statement, link) -> {
+                    statement.setLong(1, link.userId());
+                    statement.setLong(2, link.interestId());
+                });
+    }
+
+    public void deleteLinks(Collection<Link> links) {
+        jdbcTemplate.batchUpdate(
+                "DELETE FROM user_interest WHERE user_id = ? AND interest_id = ?",
+                links, BATCH_SIZE, (statement, link) -> {
+                    statement.setLong(1, link.userId());
+                    statement.setLong(2, link.interestId());
+                });
+    }
+}
@@ -1,34 +1,75 @@
 package com.kirill.meetyou.repository;
 
+import com.kirill.meetyou.dto.UserInterestRow;
+import com.kirill.meetyou.dto.UserRow;
 import com.kirill.meetyou.model.User;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 public interface UserRepository extends JpaRepository<User, Long> {
+    // Колонки проекции UserRow для запросов-списков
+    String ROW_COLUMNS = "u.id AS id, u.name AS name, u.email AS email, u.birth AS birth,"
+            + " u.age AS age";
+
     @Query(value = "SELECT * FROM users WHERE email = :email", nativeQuery = true)
     Optional<User> findByEmail(String email);
 
-    // Поиск пользователей по названию интереса (без учета регистра)
-    @Query("SELECT DISTINCT u FROM User u JOIN u.interests i WHERE"
-            + " LOWER(i.interestType) = LOWER(:interestType)")
-    List<User> findUsersByInterestType(@Param("interestType") String interestType);
-
-    // Поиск пользователей, у которых есть ВСЕ указанные интересы (без учета регистра)
-    @Query("SELECT u FROM User u JOIN u.interests i WHERE LOWER(i.interestType) IN "
-            + "(SELECT LOWER(it) FROM Interest it WHERE it IN :interestTypes) "
-            + "GROUP BY u HAVING COUNT(DISTINCT i) = :interestCount")
-    List<User> findUsersByAllInterestTypes(
-            @Param("interestTypes") Set<String> interestTypes,
+    // Загрузка вместе с интересами, чтобы снимок для кэша собирался и вне сессии
+    @EntityGraph(attributePaths = "interests")
+    Optional<User> findWithInterestsById(Long id);
+
+    // Пакетная загрузка одним запросом (прогрев кэша)
+    @EntityGraph(attributePaths = "interests")
+    List<User> findWithInterestsByIdIn(Collection<Long> ids);
+
+    // Keyset-пагинация: следующая страница после id, без OFFSET
+    List<UserRow> findRowsByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // То же с фильтром по дате рождения (диапазон возраста, индекс idx_users_birth)
+    List<UserRow> findRowsByIdGreaterThanAndBirthBetweenOrderByIdAsc(Long id, LocalDate bornFrom,
+                                                                    LocalDate bornTo, Limit limit);
+
+    // Потоковое чтение курсором PostgreSQL, порциями по fetch size
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT " + ROW_COLUMNS + " FROM User u ORDER BY u.id")
+    Stream<UserRow> streamRowsOrderedById();
+
+    // Строки по id, найденным в InterestIndex
+    List<UserRow> findRowsByIdInOrderByIdAsc(Collection<Long> ids);
+
+    // Интересы сразу для набора пользователей: один запрос на страницу, а не на строку
+    @Query("SELECT u.id AS userId, i.id AS interestId, i.interestType AS interestType"
+            + " FROM User u JOIN u.interests i WHERE u.id IN :userIds")
+    List<UserInterestRow> findInterestRowsByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    // Поиск пользователей по id интереса (название разрешает InterestDictionary)
+    @Query("SELECT DISTINCT " + ROW_COLUMNS + " FROM User u JOIN u.interests i"
+            + " WHERE i.id = :interestId ORDER BY u.id")
+    List<UserRow> findRowsByInterestId(@Param("interestId") Long interestId);
+
+    // Поиск пользователей, у которых есть ВСЕ указанные интересы
+    @Query("SELECT " + ROW_COLUMNS + " FROM User u JOIN u.interests i"
+            + " WHERE i.id IN :interestIds"
+            + " GROUP BY u.id, u.name, u.email, u.birth, u.age"
+            + " HAVING COUNT(DISTINCT i.id) = :interestCount ORDER BY u.id")
+    List<UserRow> findRowsByAllInterestIds(
+            @Param("interestIds") Set<Long> interestIds,
             @Param("interestCount") long interestCount);
 
-    // Поиск пользователей, у которых есть ЛЮБОЙ из указанных интересов (без учета регистра)
-    @Query("SELECT DISTINCT u FROM User u JOIN u.interests i "
-            + "WHERE LOWER(i.interestType) IN (SELECT LOWER(it) "
-            + "FROM Interest it WHERE it IN :interestTypes)")
-    List<User> findUsersByAnyInterestTypes(
-            @Param("interestTypes") Set<String> interestTypes);
-}
\ No newline at end of file
+    // Поиск пользователей, у которых есть ЛЮБОЙ из указанных интересов
+    @Query("SELECT DISTINCT " + ROW_COLUMNS + " FROM User u JOIN u.interests i"
+            + " WHERE i.id IN :interestIds ORDER BY u.id")
+    List<UserRow> findRowsByAnyInterestIds(@Param("interestIds") Set<Long> interestIds);
+}
@@ -0,0 +1,108 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.utils.InterestKey;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Приводит interests.interest_key к {@link InterestKey#normalize}. Свёртку
+ * регистра в SQL не повторить, поэтому V004 заполняет столбец временными
+ * ключами, а настоящие считает приложение при старте. Интересы, чьи названия
+ * дают один ключ, сливаются в интерес с меньшим id: связи переносятся без
+ * повторов. Когда все ключи верны, дело ограничивается одним чтением таблицы.
+ */
+@Slf4j
+@Component
+public class InterestKeyBackfill {
+    private static final String SELECT_SQL =
+            "SELECT id, interest_type, interest_key FROM interests ORDER BY id";
+    private static final String MOVE_LINKS_SQL = "INSERT INTO user_interest"
+            + " (user_id, interest_id) SELECT ui.user_id, ? FROM user_interest ui"
+            + " WHERE ui.interest_id = ? AND NOT EXISTS (SELECT 1 FROM user_interest kept"
+            + " WHERE kept.user_id = ui.user_id AND kept.interest_id = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public InterestKeyBackfill(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    private record Row(long id, String type, String key) {
+    }
+
+    // Раньше словаря интересов: он загружает уже исправленные ключи
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationStartedEvent.class)
+    public void backfill() {
+        try {
+            if (readInterests(SELECT_SQL).stream().allMatch(InterestKeyBackfill::isCurrent)) {
+                return;
+            }
+            // Параллельно стартующий узел ждёт блокировки и перечитает уже исправленное
+            transactionTemplate.executeWithoutResult(status ->
+                    repair(readInterests(SELECT_SQL + " FOR UPDATE")));
+        } catch (Exception e) {
+            log.warn("Failed to backfill interest keys, name lookups may miss. Error: {}",
+                    e.getMessage(), e);
+        }
+    }
+
+    private void repair(List<Row> rows) {
+        Map<String, Long> keepIds = new HashMap<>();
+        List<Object[]> merges = new ArrayList<>();
+        List<Object[]> placeholders = new ArrayList<>();
+        List<Object[]> keys = new ArrayList<>();
+        for (Row row : rows) {
+            String key = InterestKey.normalize(row.type());
+            Long keepId = keepIds.putIfAbsent(key, row.id());
+            if (keepId != null) {
+                merges.add(new Object[] {row.id(), keepId});
+            } else if (!key.equals(row.key())) {
+                placeholders.add(new Object[] {placeholder(row.id()), row.id()});
+                keys.add(new Object[] {key, row.id()});
+            }
+        }
+
+        for (Object[] merge : merges) {
+            jdbcTemplate.update(MOVE_LINKS_SQL, merge[1], merge[0], merge[1]);
+        }
+        List<Object[]> mergedIds = merges.stream().map(merge -> new Object[] {merge[0]}).toList();
+        jdbcTemplate.batchUpdate("DELETE FROM user_interest WHERE interest_id = ?", mergedIds);
+        jdbcTemplate.batchUpdate("DELETE FROM interests WHERE id = ?", mergedIds);
+        // Через временные ключи: иначе обмен ключами между строками упрётся в
+        // уникальный индекс на промежуточном шаге
+        jdbcTemplate.batchUpdate("UPDATE interests SET interest_key = ? WHERE id = ?",
+                placeholders);
+        jdbcTemplate.batchUpdate("UPDATE interests SET interest_key = ? WHERE id = ?", keys);
+        log.info("Interest keys backfilled: {} updated, {} merged", keys.size(), merges.size());
+    }
+
+    private List<Row> readInterests(String sql) {
+        return jdbcTemplate.query(sql, (resultSet, row) -> new Row(resultSet.getLong(1),
+                resultSet.getString(2), resultSet.getString(3)));
+    }
+
+    private static boolean isCurrent(Row row) {
+        return InterestKey.normalize(row.type()).equals(row.key());
+    }
+
+    // Ключ не начинается с пробела (normalize обрезает края), так что с
+    // настоящими временный не совпадёт; тот же вид у ключей из V004
+    private static String placeholder(long id) {
+        return " " + id;
+    }
+}
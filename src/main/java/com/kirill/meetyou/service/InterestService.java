@@ -1,13 +1,32 @@
 package com.kirill.meetyou.service;
 
+import com.kirill.meetyou.cache.InterestDictionary;
 import com.kirill.meetyou.cache.UserCache;
+import com.kirill.meetyou.dto.InterestAssignment;
+import com.kirill.meetyou.dto.InterestAssignmentResult;
+import com.kirill.meetyou.dto.UserSnapshot;
+import com.kirill.meetyou.index.InterestIndex;
 import com.kirill.meetyou.model.Interest;
 import com.kirill.meetyou.model.User;
+import com.kirill.meetyou.repository.InterestBulkRepository;
 import com.kirill.meetyou.repository.InterestRepository;
+import com.kirill.meetyou.repository.UserBulkRepository;
+import com.kirill.meetyou.repository.UserInterestRepository;
 import com.kirill.meetyou.repository.UserRepository;
+import com.kirill.meetyou.utils.AfterCommit;
+import com.kirill.meetyou.utils.InterestKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -22,10 +41,16 @@ public class InterestService {
     private static final String INTEREST_NOT_FOUND = "Интерес не найден";
     private static final String INTEREST_ADDED = "Интерес '%s' добавлен пользователю %d";
     private static final String INTEREST_REMOVED = "Интерес '%s' удален у пользователя %d";
+    static final int MAX_ASSIGNMENTS = 1_000;
 
     private final UserRepository userRepository;
     private final InterestRepository interestRepository;
     private final UserCache userCache;
+    private final InterestIndex interestIndex;
+    private final InterestDictionary interestDictionary;
+    private final UserInterestRepository userInterestRepository;
+    private final UserBulkRepository userBulkRepository;
+    private final InterestBulkRepository interestBulkRepository;
 
     @Transactional
     public void addInterestToUser(Long userId, String interestType) {
@@ -34,10 +59,9 @@ public class InterestService {
         validateInterestName(interestType);
         User user = getUserById(userId);
 
-        Interest interest = interestRepository.findByInterestTypeIgnoreCase(interestType)
-                .orElseGet(() -> createNewInterest(interestType));
+        Interest interest = findOrCreateInterest(interestType);
 
-        if (user.getInterests().contains(interest)) {
+        if (hasInterest(user, interest.getId())) {
             log.warn("Попытка добавить существующий интерес: {}", interestType);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     "У пользователя уже есть этот интерес");
@@ -46,6 +70,7 @@ public class InterestService {
         user.getInterests().add(interest);
         User updatedUser = userRepository.save(user);
         userCache.put(userId, updatedUser);
+        interestIndex.add(userId, interest.getId());
 
         log.info(String.format(INTEREST_ADDED, interestType, userId));
     }
@@ -56,17 +81,17 @@ public class InterestService {
 
         validateInterestName(interestName);
         User user = getUserById(userId);
-        Interest interest = getInterestByNameIgnoreCase(interestName);
+        InterestDictionary.Entry interest = getKnownInterest(interestName);
 
-        if (!user.getInterests().contains(interest)) {
+        if (!user.getInterests().removeIf(candidate -> isInterest(candidate, interest.id()))) {
             log.warn("Попытка удалить отсутствующий интерес: {}", interestName);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     "У пользователя нет этого интереса");
         }
 
-        user.getInterests().remove(interest);
         User updatedUser = userRepository.save(user);
         userCache.put(userId, updatedUser);
+        interestIndex.remove(userId, interest.id());
 
         log.info(String.format(INTEREST_REMOVED, interestName, userId));
     }
@@ -85,14 +110,21 @@ public class InterestService {
                     + " не принадлежит пользователю");
         }
 
-        // Проверка, не используется ли новое имя другим интересом
-        if (interestRepository.existsByInterestType(updatedInterest.getInterestType())
-                && !existingInterest.getInterestType().equals(updatedInterest.getInterestType())) {
+        // Проверка, не используется ли новое имя другим интересом (смена регистра - можно)
+        InterestDictionary.Entry sameName =
+                interestDictionary.resolve(updatedInterest.getInterestType());
+        if (sameName != null && sameName.id() != interestId) {
             throw new ResponseStatusException(HttpStatus.CONFLICT, INTEREST_ALREADY_EXISTS);
         }
 
         existingInterest.setInterestType(updatedInterest.getInterestType().trim());
-        return interestRepository.save(existingInterest);
+        Interest savedInterest = interestRepository.save(existingInterest);
+        // Название интереса есть в снимке каждого его владельца, а не только
+        // вызывающего: сбрасываем всех, на этом узле и на остальных
+        List<Long> holderIds = userInterestRepository.findUserIdsByInterestId(interestId);
+        AfterCommit.run(() -> userCache.removeAll(holderIds));
+        interestDictionary.registerAfterCommit(interestId, savedInterest.getInterestType());
+        return savedInterest;
     }
 
     @Transactional
@@ -113,16 +145,119 @@ public class InterestService {
         user.getInterests().remove(oldInterest);
 
         // Ищем или создаем новый интерес
-        Interest newInterest = interestRepository.findByInterestType(newInterestName)
-                .orElseGet(() -> createNewInterest(newInterestName));
+        Interest newInterest = findOrCreateInterest(newInterestName);
 
         // Добавляем новый интерес пользователю
         user.getInterests().add(newInterest);
 
         userRepository.save(user);
         userCache.put(userId, user);
+        interestIndex.remove(userId, interestId);
+        interestIndex.add(userId, newInterest.getId());
     }
 
+    /**
+     * Приводит интересы каждого пользователя к заданному набору. Строки
+     * пользователей блокируются и читаются одним запросом вместе с текущими
+     * связями, недостающие интересы создаются, разница пишется пакетами INSERT и
+     * DELETE в user_interest. Кэш и индекс обновляются по разу на пользователя,
+     * у которого что-то поменялось. Ошибка в строке не мешает остальным.
+     */
+    @Transactional
+    public List<InterestAssignmentResult> assignInterests(List<InterestAssignment> assignments) {
+        if (assignments == null || assignments.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Список"
+                    + " назначений не может быть пустым");
+        }
+        if (assignments.size() > MAX_ASSIGNMENTS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "За один запрос"
+                    + " можно назначить интересы не более чем " + MAX_ASSIGNMENTS
+                    + " пользователям");
+        }
+
+        InterestAssignmentResult[] results = new InterestAssignmentResult[assignments.size()];
+        // Пользователь -> названия интересов по ключу, в порядке запроса
+        Map<Long, Map<String, String>> desired = new LinkedHashMap<>();
+        Map<Long, Integer> rows = new HashMap<>();
+        for (int i = 0; i < assignments.size(); i++) {
+            InterestAssignment assignment = assignments.get(i);
+            String error = validateAssignment(assignment, desired.keySet());
+            if (error != null) {
+                results[i] = InterestAssignmentResult.failed(i,
+                        assignment == null ? null : assignment.userId(), error);
+                continue;
+            }
+            Map<String, String> types = new LinkedHashMap<>();
+            for (String interestType : assignment.interests()) {
+                types.putIfAbsent(InterestKey.normalize(interestType), interestType.trim());
+            }
+            desired.put(assignment.userId(), types);
+            rows.put(assignment.userId(), i);
+        }
+
+        Set<Long> existing = userBulkRepository.lockExisting(desired.keySet());
+        desired.keySet().removeIf(userId -> {
+            if (existing.contains(userId)) {
+                return false;
+            }
+            results[rows.get(userId)] = InterestAssignmentResult.failed(rows.get(userId),
+                    userId, USER_NOT_FOUND);
+            return true;
+        });
+
+        Map<String, Long> interestIds = resolveOrCreateInterests(desired.values());
+        Map<Long, Set<Long>> current =
+                userInterestRepository.findInterestIdsByUserIds(desired.keySet());
+        List<UserInterestRepository.Link> toInsert = new ArrayList<>();
+        List<UserInterestRepository.Link> toDelete = new ArrayList<>();
+        Map<Long, Set<Long>> changed = new LinkedHashMap<>();
+        desired.forEach((userId, types) -> {
+            Set<Long> target = new HashSet<>();
+            for (String key : types.keySet()) {
+                target.add(interestIds.get(key));
+            }
+            Set<Long> before = current.get(userId);
+            int added = 0;
+            int removed = 0;
+            for (Long interestId : target) {
+                if (!before.contains(interestId)) {
+                    toInsert.add(new UserInterestRepository.Link(userId, interestId));
+                    added++;
+                }
+            }
+            for (Long interestId : before) {
+                if (!target.contains(interestId)) {
+                    toDelete.add(new UserInterestRepository.Link(userId, interestId));
+                    removed++;
+                }
+            }
+            if (added + removed > 0) {
+                changed.put(userId, target);
+            }
+            results[rows.get(userId)] = InterestAssignmentResult.applied(rows.get(userId),
+                    userId, added, removed);
+        });
+
+        if (!toDelete.isEmpty()) {
+            userInterestRepository.deleteLinks(toDelete);
+        }
+        if (!toInsert.isEmpty()) {
+            userInterestRepository.insertLinks(toInsert);
+        }
+        if (!changed.isEmpty()) {
+            userBulkRepository.incrementVersions(changed.keySet());
+            // Сбрасываем после коммита: иначе параллельное чтение успеет положить
+            // в кэш снимок со старыми интересами
+            Set<Long> changedIds = changed.keySet();
+            AfterCommit.run(() -> userCache.removeAll(changedIds));
+            changed.forEach(interestIndex::replace);
+        }
+
+        log.info("Bulk interest assignment: {} of {} users changed, {} links added,"
+                + " {} removed", changed.size(), assignments.size(), toInsert.size(),
+                toDelete.size());
+        return Arrays.asList(results);
+    }
 
     @Transactional(readOnly = true)
     public Set<Interest> getUserInterests(Long userId) {
@@ -130,33 +265,125 @@ public class InterestService {
         return getUserById(userId).getInterests();
     }
 
-    private User getUserById(Long userId) {
-        return userRepository.findById(userId)
+    /**
+     * Интересы из снимка UserCache вместе с готовым хэшем списка: повторный
+     * запрос с тем же ETag не ходит в базу и не сериализует ответ.
+     */
+    public UserSnapshot getUserInterestsSnapshot(Long userId) {
+        return userCache.getOrLoad(userId, userRepository::findWithInterestsById)
                 .orElseThrow(() -> {
                     log.warn(USER_NOT_FOUND + ": {}", userId);
                     return new ResponseStatusException(HttpStatus.NOT_FOUND, USER_NOT_FOUND);
                 });
     }
 
-    // В InterestService.java добавить новый метод для поиска интереса без учета регистра
-    private Interest getInterestByNameIgnoreCase(String interestName) {
-        return interestRepository.findByInterestTypeIgnoreCase(interestName)
+    private User getUserById(Long userId) {
+        return userRepository.findById(userId)
                 .orElseThrow(() -> {
-                    log.warn(INTEREST_NOT_FOUND + ": {}", interestName);
-                    return new ResponseStatusException(HttpStatus.NOT_FOUND, INTEREST_NOT_FOUND);
+                    log.warn(USER_NOT_FOUND + ": {}", userId);
+                    return new ResponseStatusException(HttpStatus.NOT_FOUND, USER_NOT_FOUND);
                 });
     }
 
-    // И обновить метод createNewInterest, чтобы проверял существование интереса без учета регистра
+    // Поиск без учёта регистра через словарь интересов
+    private InterestDictionary.Entry getKnownInterest(String interestName) {
+        InterestDictionary.Entry interest = interestDictionary.resolve(interestName);
+        if (interest == null) {
+            log.warn(INTEREST_NOT_FOUND + ": {}", interestName);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, INTEREST_NOT_FOUND);
+        }
+        return interest;
+    }
+
+    // Известный словарю интерес - ссылка по id без запроса, иначе создаём новый
+    private Interest findOrCreateInterest(String interestType) {
+        InterestDictionary.Entry interest = interestDictionary.resolve(interestType);
+        if (interest == null) {
+            return createNewInterest(interestType);
+        }
+        return interestRepository.getReferenceById(interest.id());
+    }
+
+    // Интерес с тем же ключом успел создать параллельный запрос - его не пустит
+    // уникальный индекс interest_key
     private Interest createNewInterest(String interestType) {
-        if (interestRepository.existsByInterestTypeIgnoreCase(interestType)) {
+        Interest newInterest = new Interest();
+        newInterest.setInterestType(interestType.trim());
+        try {
+            Interest savedInterest = interestRepository.saveAndFlush(newInterest);
+            interestDictionary.registerAfterCommit(savedInterest.getId(),
+                    savedInterest.getInterestType());
+            return savedInterest;
+        } catch (DataIntegrityViolationException e) {
             log.warn(INTEREST_ALREADY_EXISTS + ": {}", interestType);
             throw new ResponseStatusException(HttpStatus.CONFLICT, INTEREST_ALREADY_EXISTS);
         }
+    }
 
-        Interest newInterest = new Interest();
-        newInterest.setInterestType(interestType.trim());
-        return interestRepository.save(newInterest);
+    /**
+     * id интересов по ключам из всех наборов. Известные словарю разрешаются в
+     * памяти, остальные создаются одной пачкой. Интерес, который параллельно
+     * создал другой запрос, берётся готовым, а не роняет весь пакет.
+     */
+    private Map<String, Long> resolveOrCreateInterests(Collection<Map<String, String>> sets) {
+        Map<String, Long> ids = new HashMap<>();
+        Map<String, String> missing = new LinkedHashMap<>();
+        for (Map<String, String> types : sets) {
+            types.forEach((key, interestType) -> {
+                if (ids.containsKey(key) || missing.containsKey(key)) {
+                    return;
+                }
+                InterestDictionary.Entry interest = interestDictionary.resolve(interestType);
+                if (interest != null) {
+                    ids.put(key, interest.id());
+                } else {
+                    missing.put(key, interestType);
+                }
+            });
+        }
+        if (missing.isEmpty()) {
+            return ids;
+        }
+        for (Interest interest : interestBulkRepository.insertMissing(missing)) {
+            ids.put(interest.getInterestKey(), interest.getId());
+            interestDictionary.registerAfterCommit(interest.getId(), interest.getInterestType());
+        }
+        if (!ids.keySet().containsAll(missing.keySet())) {
+            // Найденный по ключу интерес успели удалить или переименовать
+            log.warn("Interests changed concurrently: {}", missing.keySet());
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Интересы изменены"
+                    + " параллельным запросом, повторите назначение");
+        }
+        return ids;
+    }
+
+    private static String validateAssignment(InterestAssignment assignment,
+                                             Set<Long> seenUserIds) {
+        if (assignment == null || assignment.userId() == null || assignment.userId() <= 0) {
+            return "Некорректный ID пользователя";
+        }
+        if (seenUserIds.contains(assignment.userId())) {
+            return "Пользователь повторяется в запросе";
+        }
+        if (assignment.interests() == null) {
+            return "Список интересов не задан";
+        }
+        for (String interestType : assignment.interests()) {
+            if (interestType == null || interestType.trim().isEmpty()) {
+                return "Название интереса не может быть пустым";
+            }
+        }
+        return null;
+    }
+
+    // Сравнение по id: ссылка из getReferenceById и загруженный интерес - разные объекты
+    private static boolean hasInterest(User user, Long interestId) {
+        return user.getInterests().stream()
+                .anyMatch(interest -> isInterest(interest, interestId));
+    }
+
+    private static boolean isInterest(Interest interest, long interestId) {
+        return interest.getId() != null && interest.getId() == interestId;
     }
 
     private void validateInterestName(String interestName) {
@@ -166,4 +393,4 @@ public class InterestService {
                     "Название интереса не может быть пустым");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.cache.UserCache;
+import com.kirill.meetyou.repository.UserBulkRepository;
+import com.kirill.meetyou.utils.AfterCommit;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Ночное обновление хранимого age. Возраст меняется только в день рождения,
+ * поэтому задача трогает лишь именинников (по индексу месяц/день), а не всю
+ * таблицу. Фильтр по возрасту на age не опирается, см. UserService.findPage.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserAgeService {
+    private static final MonthDay LEAP_DAY = MonthDay.of(Month.FEBRUARY, 29);
+
+    private final UserBulkRepository userBulkRepository;
+    private final UserCache cache;
+
+    @Scheduled(cron = "${app.users.age-refresh-cron:0 5 0 * * *}")
+    @Transactional
+    public void refreshAges() {
+        refreshAges(LocalDate.now());
+    }
+
+    @Transactional
+    public int refreshAges(LocalDate today) {
+        List<Long> ids = userBulkRepository.updateAges(today.getYear(), birthdays(today));
+        // После коммита: иначе параллельное чтение успеет положить в кэш старый возраст
+        AfterCommit.run(() -> cache.removeAll(ids));
+        log.info("Updated age for {} users with birthday on {}", ids.size(), today);
+        return ids.size();
+    }
+
+    // Родившимся 29 февраля в невисокосный год возраст прибавляется 1 марта,
+    // так же считает Period.between при создании
+    static List<MonthDay> birthdays(LocalDate today) {
+        List<MonthDay> birthdays = new ArrayList<>(2);
+        birthdays.add(MonthDay.from(today));
+        if (!today.isLeapYear() && today.getMonth() == Month.MARCH && today.getDayOfMonth() == 1) {
+            birthdays.add(LEAP_DAY);
+        }
+        return birthdays;
+    }
+}
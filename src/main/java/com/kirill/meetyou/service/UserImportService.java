@@ -0,0 +1,721 @@
+package com.kirill.meetyou.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.kirill.meetyou.config.ImportProperties;
+import com.kirill.meetyou.dto.BulkRowResult;
+import com.kirill.meetyou.dto.ImportJob;
+import com.kirill.meetyou.dto.UserCreateDto;
+import com.kirill.meetyou.enums.ImportJobStatus;
+import com.kirill.meetyou.repository.ImportChunkRepository;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Фоновый импорт пользователей. Задача делится на порции по
+ * {@code app.import.chunk-size} корректных строк, каждая порция сохраняется в
+ * своей транзакции на отдельном пуле потоков. Состояние задачи, исходные данные
+ * и ошибки по строкам лежат в {@code app.import.directory/<id>}, поэтому после
+ * перезапуска незавершённые задачи продолжаются с первой несохранённой порции.
+ * Вместе со строками порции в той же транзакции пишется отметка в
+ * import_chunks: если узел упал между коммитом и записью job.json, при
+ * продолжении порция с итогами и ошибками берётся оттуда и не повторяется.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+    private static final String JOB_FILE = "job.json";
+    private static final String PAYLOAD_FILE = "payload.json";
+    private static final String ERRORS_FILE = "errors.ndjson";
+    private static final CsvMapper CSV_MAPPER = CsvMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    // Незавершённые задачи после перезапуска ждут свободного места
+    private final Queue<ImportJob> waiting = new ConcurrentLinkedQueue<>();
+    private final UserService userService;
+    private final ImportChunkRepository chunkRepository;
+    private final ImportProperties properties;
+    private final Executor executor;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    public UserImportService(UserService userService, ImportChunkRepository chunkRepository,
+                             ImportProperties properties,
+                             @Qualifier("importExecutor") Executor executor,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper) {
+        this.userService = userService;
+        this.chunkRepository = chunkRepository;
+        this.properties = properties;
+        this.executor = executor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+    }
+
+    public ImportJob submit(List<UserCreateDto> userDtos) {
+        if (userDtos == null || userDtos.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Список"
+                    + " пользователей не может быть пустым");
+        }
+        if (userDtos.size() > properties.getMaxRows()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Слишком много строк в импорте, максимум " + properties.getMaxRows());
+        }
+        acquireSlot();
+        ImportJob job = newJob(ImportJobStatus.PENDING);
+        job.setTotalRows(userDtos.size());
+
+        // Проверяем весь импорт сразу: повтор email в разных порциях
+        // внутри одной транзакции уже не поймать
+        List<BulkRowResult> rejected = new ArrayList<>();
+        int[] validRows = validRows(userDtos, rejected);
+        job.setTotalChunks(chunkCount(validRows.length, job.getChunkSize()));
+        job.setProcessedRows(rejected.size());
+        job.setFailCount(rejected.size());
+
+        try {
+            Path dir = jobDir(job.getId());
+            Files.createDirectories(dir);
+            objectMapper.writeValue(dir.resolve(PAYLOAD_FILE).toFile(), userDtos);
+            appendErrors(job, rejected);
+            saveJob(job);
+        } catch (IOException e) {
+            releaseSlot();
+            log.error("Failed to save import job {}: {}", job.getId(), e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Не удалось сохранить задачу импорта");
+        }
+
+        jobs.put(job.getId(), job);
+        log.info("Import job {} submitted: {} rows, {} rejected, {} chunks", job.getId(),
+                job.getTotalRows(), rejected.size(), job.getTotalChunks());
+        if (!start(new ImportRun(job, userDtos, validRows))) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Слишком много активных задач импорта, повторите позже");
+        }
+        return snapshot(job);
+    }
+
+    /**
+     * Импорт из NDJSON или CSV без загрузки всего тела запроса в память. Строки
+     * разбираются потоковым парсером Jackson и проверяются в потоке запроса,
+     * готовые порции через ограниченную очередь получает один исполнитель,
+     * который сохраняет каждую в своей транзакции. Пока очередь заполнена,
+     * разбор ждёт, и чтение тела запроса приостанавливается. Порции пишутся по
+     * очереди, поэтому email из уже сохранённой порции найдёт проверка в базе.
+     * Тело запроса не сохраняется: после перезапуска такая задача получает
+     * статус FAILED, а processedRows показывает, докуда дошёл импорт.
+     */
+    public ImportJob importStream(InputStream body, boolean csv) {
+        acquireSlot();
+        ImportJob job = newJob(ImportJobStatus.RUNNING);
+        try {
+            Files.createDirectories(jobDir(job.getId()));
+            saveJob(job);
+        } catch (IOException e) {
+            releaseSlot();
+            log.error("Failed to save import job {}: {}", job.getId(), e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Не удалось сохранить задачу импорта");
+        }
+        jobs.put(job.getId(), job);
+
+        BlockingQueue<StreamBatch> queue =
+                new ArrayBlockingQueue<>(properties.getStreamQueueBatches());
+        CompletableFuture<Void> writer;
+        try {
+            writer = CompletableFuture.runAsync(() -> writeBatches(job, queue), executor);
+        } catch (RejectedExecutionException e) {
+            releaseSlot();
+            fail(job, "Очередь импорта переполнена");
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Слишком много активных задач импорта, повторите позже");
+        }
+
+        String error = null;
+        try (MappingIterator<UserCreateDto> rows = openReader(body, csv)) {
+            readBatches(job, rows, queue, writer);
+        } catch (IOException e) {
+            error = "Ошибка чтения данных: " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "Импорт прерван";
+        } catch (CompletionException | IllegalStateException e) {
+            error = e.getMessage();
+        }
+        // Уже разобранные порции дописываются и при ошибке разбора
+        try {
+            if (!writer.isDone()) {
+                enqueue(queue, StreamBatch.END, writer);
+            }
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "Импорт прерван";
+        } catch (CompletionException | IllegalStateException e) {
+            error = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+        }
+
+        if (error == null) {
+            finish(job);
+        } else {
+            releaseSlot();
+            fail(job, error);
+        }
+        return snapshot(job);
+    }
+
+    public ImportJob getJob(String id) {
+        return snapshot(findJob(id));
+    }
+
+    // Ошибки по строкам в порядке обработки порций
+    public List<BulkRowResult> getErrors(String id, int offset, int limit) {
+        ImportJob job = findJob(id);
+        List<BulkRowResult> errors = new ArrayList<>();
+        synchronized (job) {
+            Path file = jobDir(id).resolve(ERRORS_FILE);
+            if (!Files.exists(file)) {
+                return errors;
+            }
+            try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+                for (String line : lines.skip(offset).limit(limit).toList()) {
+                    errors.add(objectMapper.readValue(line, BulkRowResult.class));
+                }
+            } catch (IOException e) {
+                log.error("Failed to read errors of import job {}: {}", id, e.getMessage());
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                        "Не удалось прочитать ошибки импорта");
+            }
+        }
+        return errors;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeJobs() {
+        Path root = properties.getDirectory();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path dir : dirs.toList()) {
+                Path jobFile = dir.resolve(JOB_FILE);
+                if (Files.exists(jobFile)) {
+                    ImportJob job = objectMapper.readValue(jobFile.toFile(), ImportJob.class);
+                    jobs.put(job.getId(), job);
+                    if (!isFinished(job)) {
+                        waiting.add(job);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to read import jobs: {}", e.getMessage());
+        }
+        // Не больше maxActiveJobs сразу, остальные стартуют по мере завершения
+        startWaiting();
+        evictFinished();
+    }
+
+    private void startWaiting() {
+        while (!waiting.isEmpty() && tryAcquireSlot()) {
+            ImportJob job = waiting.poll();
+            if (job == null) {
+                releaseSlot();
+                return;
+            }
+            resume(job);
+        }
+    }
+
+    // Вызывается с уже занятым местом; освобождает его, если задача не стартовала
+    private void resume(ImportJob job) {
+        List<UserCreateDto> userDtos;
+        try {
+            userDtos = objectMapper.readValue(
+                    jobDir(job.getId()).resolve(PAYLOAD_FILE).toFile(),
+                    new TypeReference<List<UserCreateDto>>() { });
+            restoreChunks(job);
+        } catch (IOException | DataAccessException e) {
+            releaseSlot();
+            fail(job, "Данные задачи импорта недоступны: " + e.getMessage());
+            return;
+        }
+        log.info("Resuming import job {}: {} of {} chunks done", job.getId(),
+                job.getCompletedChunks().size(), job.getTotalChunks());
+        // Проверка детерминирована, поэтому границы порций совпадут с исходными
+        start(new ImportRun(job, userDtos, validRows(userDtos, new ArrayList<>())));
+    }
+
+    // Порции, закоммиченные до падения, но не попавшие в job.json
+    private void restoreChunks(ImportJob job) throws IOException {
+        synchronized (job) {
+            int restored = 0;
+            for (ImportChunkRepository.Chunk chunk : chunkRepository.findByJob(job.getId())) {
+                if (!job.getCompletedChunks().add(chunk.chunk())) {
+                    continue;
+                }
+                job.setProcessedRows(job.getProcessedRows() + chunk.successCount()
+                        + chunk.failCount());
+                job.setSuccessCount(job.getSuccessCount() + chunk.successCount());
+                job.setFailCount(job.getFailCount() + chunk.failCount());
+                if (chunk.errors() != null) {
+                    appendErrors(job, objectMapper.readValue(chunk.errors(),
+                            new TypeReference<List<BulkRowResult>>() { }));
+                }
+                restored++;
+            }
+            if (restored > 0) {
+                saveJob(job);
+                log.info("Import job {}: {} chunks restored from database", job.getId(),
+                        restored);
+            }
+        }
+    }
+
+    // false, если пул не принял ни одного исполнителя: задача получает FAILED,
+    // её место освобождается
+    private boolean start(ImportRun run) {
+        if (run.pendingChunks.length == 0) {
+            finish(run.job);
+            return true;
+        }
+        int workers = Math.min(properties.getThreads(), run.pendingChunks.length);
+        int started = 0;
+        try {
+            for (; started < workers; started++) {
+                executor.execute(() -> drain(run));
+            }
+        } catch (RejectedExecutionException e) {
+            if (started == 0) {
+                releaseSlot();
+                fail(run.job, "Очередь импорта переполнена");
+                return false;
+            }
+            // Хотя бы один исполнитель есть, он доберёт оставшиеся порции
+            log.warn("Import job {} started with {} of {} workers: {}", run.job.getId(),
+                    started, workers, e.getMessage());
+        }
+        return true;
+    }
+
+    // Исполнитель забирает порции задачи, пока они не кончатся
+    private void drain(ImportRun run) {
+        int next;
+        while ((next = run.nextChunk.getAndIncrement()) < run.pendingChunks.length) {
+            processChunk(run, run.pendingChunks[next]);
+        }
+    }
+
+    private void processChunk(ImportRun run, int chunk) {
+        int chunkSize = run.job.getChunkSize();
+        int from = chunk * chunkSize;
+        int[] indexes = Arrays.copyOfRange(run.validRows, from,
+                Math.min(from + chunkSize, run.validRows.length));
+        List<UserCreateDto> rows = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            rows.add(run.userDtos.get(index));
+        }
+
+        if (recordChunk(run.job, chunk, insertChunk(run.job, chunk, rows, indexes))) {
+            finish(run.job);
+        }
+    }
+
+    // Сохраняет порцию и отметку о ней в отдельной транзакции; при ошибке базы
+    // все её строки неудачны
+    private List<BulkRowResult> insertChunk(ImportJob job, int chunk, List<UserCreateDto> rows,
+                                            int[] indexes) {
+        try {
+            return transactionTemplate.execute(status -> {
+                List<BulkRowResult> results = userService.createRows(rows, indexes);
+                chunkRepository.save(job.getId(), chunkRecord(chunk, results));
+                return results;
+            });
+        } catch (RuntimeException e) {
+            log.error("Import job {} chunk {} failed: {}", job.getId(), chunk, e.getMessage());
+            List<BulkRowResult> results = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                results.add(UserService.failedRow(indexes[i], rows.get(i),
+                        "Порция не сохранена: " + e.getMessage()));
+            }
+            return results;
+        }
+    }
+
+    private ImportChunkRepository.Chunk chunkRecord(int chunk, List<BulkRowResult> results) {
+        List<BulkRowResult> failed = results.stream().filter(r -> !r.isSuccess()).toList();
+        try {
+            String errors = failed.isEmpty() ? null : objectMapper.writeValueAsString(failed);
+            return new ImportChunkRepository.Chunk(chunk, results.size() - failed.size(),
+                    failed.size(), errors);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Учитывает результат порции; true, если это была последняя порция задачи
+    private boolean recordChunk(ImportJob job, int chunk, List<BulkRowResult> results) {
+        List<BulkRowResult> failed = results.stream().filter(r -> !r.isSuccess()).toList();
+        synchronized (job) {
+            job.setStatus(ImportJobStatus.RUNNING);
+            job.setProcessedRows(job.getProcessedRows() + results.size());
+            job.setSuccessCount(job.getSuccessCount() + results.size() - failed.size());
+            job.setFailCount(job.getFailCount() + failed.size());
+            job.getCompletedChunks().add(chunk);
+            try {
+                appendErrors(job, failed);
+                saveJob(job);
+            } catch (IOException e) {
+                log.error("Failed to save state of import job {}: {}", job.getId(),
+                        e.getMessage());
+            }
+            return job.getCompletedChunks().size() == job.getTotalChunks();
+        }
+    }
+
+    // Разбирает и проверяет строки, отдавая порции в очередь на запись
+    private void readBatches(ImportJob job, MappingIterator<UserCreateDto> rows,
+                             BlockingQueue<StreamBatch> queue, CompletableFuture<Void> writer)
+            throws IOException, InterruptedException {
+        int chunkSize = job.getChunkSize();
+        StreamBatch batch = new StreamBatch(0);
+        Set<String> emails = new HashSet<>();
+        int index = 0;
+        while (rows.hasNextValue()) {
+            UserCreateDto dto = null;
+            String error;
+            try {
+                dto = rows.nextValue();
+                error = UserService.validateBulkRow(dto, emails);
+            } catch (JsonMappingException e) {
+                // Ошибка типа в одной строке: парсер пропускает её и продолжает
+                error = "Некорректная строка: " + e.getOriginalMessage();
+            }
+            if (error == null) {
+                batch.indexes.add(index);
+                batch.rows.add(dto);
+            } else {
+                batch.rejected.add(UserService.failedRow(index, dto, error));
+            }
+            index++;
+            if (batch.size() == chunkSize) {
+                submitBatch(job, batch, index, queue, writer);
+                batch = new StreamBatch(batch.chunk + 1);
+                emails.clear();
+            }
+        }
+        if (batch.size() > 0) {
+            submitBatch(job, batch, index, queue, writer);
+        }
+    }
+
+    private void submitBatch(ImportJob job, StreamBatch batch, int rowsRead,
+                             BlockingQueue<StreamBatch> queue, CompletableFuture<Void> writer)
+            throws InterruptedException {
+        synchronized (job) {
+            job.setTotalRows(rowsRead);
+            job.setTotalChunks(batch.chunk + 1);
+        }
+        enqueue(queue, batch, writer);
+    }
+
+    // Ждёт места в очереди, пока исполнитель записи жив
+    private static void enqueue(BlockingQueue<StreamBatch> queue, StreamBatch batch,
+                                CompletableFuture<Void> writer) throws InterruptedException {
+        while (!queue.offer(batch, 1, TimeUnit.SECONDS)) {
+            if (writer.isDone()) {
+                writer.join();
+                throw new IllegalStateException("Запись порций импорта остановлена");
+            }
+        }
+    }
+
+    private void writeBatches(ImportJob job, BlockingQueue<StreamBatch> queue) {
+        try {
+            StreamBatch batch;
+            while ((batch = queue.take()) != StreamBatch.END) {
+                List<BulkRowResult> results = new ArrayList<>(batch.rejected);
+                if (!batch.rows.isEmpty()) {
+                    int[] indexes = batch.indexes.stream().mapToInt(Integer::intValue).toArray();
+                    results.addAll(insertChunk(job, batch.chunk, batch.rows, indexes));
+                }
+                recordChunk(job, batch.chunk, results);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Импорт прерван", e);
+        }
+    }
+
+    private MappingIterator<UserCreateDto> openReader(InputStream body, boolean csv)
+            throws IOException {
+        if (csv) {
+            return CSV_MAPPER.readerFor(UserCreateDto.class)
+                    .with(CsvSchema.emptySchema().withHeader())
+                    .readValues(body);
+        }
+        return objectMapper.readerFor(UserCreateDto.class).readValues(body);
+    }
+
+    private void finish(ImportJob job) {
+        synchronized (job) {
+            job.setStatus(ImportJobStatus.COMPLETED);
+            job.setFinishedAt(LocalDateTime.now());
+            persistFinished(job);
+        }
+        log.info("Import job {} completed: {} created, {} failed", job.getId(),
+                job.getSuccessCount(), job.getFailCount());
+        releaseSlot();
+        evictFinished();
+    }
+
+    private void fail(ImportJob job, String error) {
+        synchronized (job) {
+            job.setStatus(ImportJobStatus.FAILED);
+            job.setError(error);
+            job.setFinishedAt(LocalDateTime.now());
+            persistFinished(job);
+        }
+        log.error("Import job {} failed: {}", job.getId(), error);
+    }
+
+    // Исходные данные и отметки порций завершённой задачи больше не нужны
+    private void persistFinished(ImportJob job) {
+        try {
+            saveJob(job);
+            Files.deleteIfExists(jobDir(job.getId()).resolve(PAYLOAD_FILE));
+        } catch (IOException e) {
+            log.error("Failed to save state of import job {}: {}", job.getId(),
+                    e.getMessage());
+            return;
+        }
+        try {
+            chunkRepository.deleteByJob(job.getId());
+        } catch (DataAccessException e) {
+            log.warn("Failed to delete chunks of import job {}: {}", job.getId(),
+                    e.getMessage());
+        }
+    }
+
+    // Храним не больше maxRetainedJobs завершённых задач, начиная с самых новых
+    private void evictFinished() {
+        List<ImportJob> finished = jobs.values().stream()
+                .filter(this::isFinished)
+                .sorted(Comparator.comparing(ImportJob::getFinishedAt,
+                        Comparator.nullsFirst(Comparator.naturalOrder())))
+                .toList();
+        for (int i = 0; i < finished.size() - properties.getMaxRetainedJobs(); i++) {
+            String id = finished.get(i).getId();
+            jobs.remove(id);
+            try {
+                FileSystemUtils.deleteRecursively(jobDir(id));
+            } catch (IOException e) {
+                log.warn("Failed to delete import job {}: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    private boolean isFinished(ImportJob job) {
+        synchronized (job) {
+            return job.getStatus() == ImportJobStatus.COMPLETED
+                    || job.getStatus() == ImportJobStatus.FAILED;
+        }
+    }
+
+    private void acquireSlot() {
+        if (!tryAcquireSlot()) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Слишком много активных задач импорта, повторите позже");
+        }
+    }
+
+    private boolean tryAcquireSlot() {
+        if (activeJobs.incrementAndGet() > properties.getMaxActiveJobs()) {
+            activeJobs.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    // Освободившееся место получает задача, ждущая продолжения после перезапуска
+    private void releaseSlot() {
+        activeJobs.decrementAndGet();
+        startWaiting();
+    }
+
+    private ImportJob newJob(ImportJobStatus status) {
+        ImportJob job = new ImportJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setStatus(status);
+        job.setChunkSize(properties.getChunkSize());
+        job.setCreatedAt(LocalDateTime.now());
+        return job;
+    }
+
+    private ImportJob findJob(String id) {
+        ImportJob job = jobs.get(id);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Задача импорта не найдена");
+        }
+        return job;
+    }
+
+    // Копия для ответа: сама задача меняется потоками импорта
+    private ImportJob snapshot(ImportJob job) {
+        synchronized (job) {
+            ImportJob copy = new ImportJob();
+            copy.setId(job.getId());
+            copy.setStatus(job.getStatus());
+            copy.setTotalRows(job.getTotalRows());
+            copy.setChunkSize(job.getChunkSize());
+            copy.setTotalChunks(job.getTotalChunks());
+            copy.setProcessedRows(job.getProcessedRows());
+            copy.setSuccessCount(job.getSuccessCount());
+            copy.setFailCount(job.getFailCount());
+            copy.setCreatedAt(job.getCreatedAt());
+            copy.setFinishedAt(job.getFinishedAt());
+            copy.setError(job.getError());
+            copy.setCompletedChunks(new TreeSet<>(job.getCompletedChunks()));
+            return copy;
+        }
+    }
+
+    private Path jobDir(String id) {
+        return properties.getDirectory().resolve(id);
+    }
+
+    // Состояние пишется во временный файл и подменяется атомарно
+    private void saveJob(ImportJob job) throws IOException {
+        Path file = jobDir(job.getId()).resolve(JOB_FILE);
+        Path tmp = file.resolveSibling(JOB_FILE + ".tmp");
+        objectMapper.writeValue(tmp.toFile(), job);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void appendErrors(ImportJob job, List<BulkRowResult> failed) throws IOException {
+        if (failed.isEmpty()) {
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(
+                jobDir(job.getId()).resolve(ERRORS_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (BulkRowResult result : failed) {
+                writer.write(objectMapper.writeValueAsString(result));
+                writer.newLine();
+            }
+        }
+    }
+
+    // Индексы корректных строк; ошибки остальных добавляются в rejected
+    private static int[] validRows(List<UserCreateDto> userDtos, List<BulkRowResult> rejected) {
+        Set<String> emails = new HashSet<>();
+        int[] valid = new int[userDtos.size()];
+        int count = 0;
+        for (int i = 0; i < userDtos.size(); i++) {
+            UserCreateDto dto = userDtos.get(i);
+            String error = UserService.validateBulkRow(dto, emails);
+            if (error == null) {
+                valid[count++] = i;
+            } else {
+                rejected.add(UserService.failedRow(i, dto, error));
+            }
+        }
+        return Arrays.copyOf(valid, count);
+    }
+
+    private static int chunkCount(int rows, int chunkSize) {
+        return (rows + chunkSize - 1) / chunkSize;
+    }
+
+    // Данные выполняющейся задачи, которые не сохраняются в job.json
+    private static final class ImportRun {
+        private final ImportJob job;
+        private final List<UserCreateDto> userDtos;
+        private final int[] validRows;
+        private final int[] pendingChunks;
+        private final AtomicInteger nextChunk = new AtomicInteger();
+
+        ImportRun(ImportJob job, List<UserCreateDto> userDtos, int[] validRows) {
+            this.job = job;
+            this.userDtos = userDtos;
+            this.validRows = validRows;
+            synchronized (job) {
+                this.pendingChunks = IntStream.range(0, job.getTotalChunks())
+                        .filter(chunk -> !job.getCompletedChunks().contains(chunk))
+                        .toArray();
+            }
+        }
+    }
+
+    // Порция потокового импорта: корректные строки с их номерами и отклонённые строки
+    private static final class StreamBatch {
+        private static final StreamBatch END = new StreamBatch(-1);
+
+        private final int chunk;
+        private final List<Integer> indexes = new ArrayList<>();
+        private final List<UserCreateDto> rows = new ArrayList<>();
+        private final List<BulkRowResult> rejected = new ArrayList<>();
+
+        StreamBatch(int chunk) {
+            this.chunk = chunk;
+        }
+
+        int size() {
+            return rows.size() + rejected.size();
+        }
+    }
+}
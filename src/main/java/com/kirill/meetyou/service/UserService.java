@@ -1,45 +1,252 @@
 package com.kirill.meetyou.service;
 
+import com.kirill.meetyou.cache.InterestDictionary;
 import com.kirill.meetyou.cache.UserCache;
 import com.kirill.meetyou.dto.BulkResponse;
+import com.kirill.meetyou.dto.BulkRowResult;
 import com.kirill.meetyou.dto.UserCreateDto;
+import com.kirill.meetyou.dto.UserInterestRow;
+import com.kirill.meetyou.dto.UserMatch;
+import com.kirill.meetyou.dto.UserPageResponse;
+import com.kirill.meetyou.dto.UserRow;
+import com.kirill.meetyou.dto.UserSnapshot;
+import com.kirill.meetyou.dto.UserSummary;
 import com.kirill.meetyou.dto.UserUpdateDto;
+import com.kirill.meetyou.index.InterestIndex;
+import com.kirill.meetyou.index.InterestMatch;
 import com.kirill.meetyou.model.User;
+import com.kirill.meetyou.repository.UserBulkRepository;
 import com.kirill.meetyou.repository.UserRepository;
+import com.kirill.meetyou.utils.InterestKey;
+import com.kirill.meetyou.utils.KeysetCursor;
 import java.time.LocalDate;
 import java.time.Period;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 @Slf4j
 @Service
 public class UserService {
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_AGE = 150;
+    // Пользователей на один запрос интересов (и на порцию при выгрузке)
+    private static final int INTEREST_BATCH_SIZE = 500;
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
+    private static final long UPDATE_BACKOFF_MILLIS = 5;
+    private static final int MAX_MATCHES = 100;
+
     private final UserRepository userRepository;
     private final UserCache cache;
+    private final UserBulkRepository userBulkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final InterestIndex interestIndex;
+    private final InterestDictionary interestDictionary;
 
-    public UserService(UserRepository userRepository, UserCache cache) {
+    public UserService(UserRepository userRepository, UserCache cache,
+                       UserBulkRepository userBulkRepository,
+                       PlatformTransactionManager transactionManager,
+                       InterestIndex interestIndex, InterestDictionary interestDictionary) {
         this.userRepository = userRepository;
         this.cache = cache;
+        this.userBulkRepository = userBulkRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.interestIndex = interestIndex;
+        this.interestDictionary = interestDictionary;
+    }
+
+    // Прогреваем кэш до того, как приложение сообщит о готовности принимать трафик
+    @EventListener(ApplicationStartedEvent.class)
+    public void warmUpCache() {
+        try {
+            cache.warmUp(userRepository::findWithInterestsByIdIn);
+        } catch (Exception e) {
+            log.warn("Failed to warm up user cache. Error: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Страница пользователей по возрастанию id. Вместо OFFSET ищем с последнего
+     * отданного id, поэтому стоимость не растёт с номером страницы.
+     */
+    public UserPageResponse findPage(String cursor, int limit) {
+        return findPage(cursor, limit, null, null);
     }
 
-    public List<User> findAll() {
+    /**
+     * Страница пользователей, чей возраст попадает в [minAge, maxAge]. Возраст
+     * переводится в диапазон дат рождения, поэтому фильтр идёт по индексу birth
+     * и не зависит от хранимого age.
+     */
+    public UserPageResponse findPage(String cursor, int limit, Integer minAge, Integer maxAge) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Размер страницы"
+                    + " должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        validateAgeRange(minAge, maxAge);
+        long afterId = KeysetCursor.decode(cursor);
         try {
-            log.debug("Fetching all users");
-            return userRepository.findAll();
+            log.debug("Fetching users after id {}, limit {}, age {}..{}", afterId, limit,
+                    minAge, maxAge);
+            // Берём на одну запись больше, чтобы понять, есть ли следующая страница
+            List<UserRow> rows;
+            if (minAge == null && maxAge == null) {
+                rows = userRepository.findRowsByIdGreaterThanOrderByIdAsc(afterId,
+                        Limit.of(limit + 1));
+            } else {
+                LocalDate today = LocalDate.now();
+                // Возраст не меньше minAge - родился не позже, чем minAge лет назад;
+                // не больше maxAge - позже, чем maxAge + 1 лет назад
+                LocalDate bornTo = minAge == null ? today : today.minusYears(minAge);
+                LocalDate bornFrom = today.minusYears((maxAge == null ? MAX_AGE : maxAge) + 1L)
+                        .plusDays(1);
+                rows = userRepository.findRowsByIdGreaterThanAndBirthBetweenOrderByIdAsc(afterId,
+                        bornFrom, bornTo, Limit.of(limit + 1));
+            }
+            boolean hasNext = rows.size() > limit;
+            List<UserRow> items = hasNext ? rows.subList(0, limit) : rows;
+            return UserPageResponse.builder()
+                    .items(withInterests(items))
+                    .nextCursor(hasNext ? KeysetCursor.encode(items.get(limit - 1).getId())
+                            : null)
+                    .build();
         } catch (Exception e) {
-            log.error("Failed to fetch all users. Error: {}", e.getMessage(), e);
+            log.error("Failed to fetch users page. Error: {}", e.getMessage(), e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Ошибка"
                     + " при получении пользователей");
         }
     }
 
+    /**
+     * Передаёт всех пользователей в {@code consumer} по мере чтения курсора.
+     * Читаются только колонки users, интересы подгружаются одним запросом на
+     * порцию из {@value #INTEREST_BATCH_SIZE} пользователей, поэтому память не
+     * зависит от размера таблицы.
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<UserSummary> consumer) {
+        List<UserRow> batch = new ArrayList<>(INTEREST_BATCH_SIZE);
+        try (Stream<UserRow> rows = userRepository.streamRowsOrderedById()) {
+            rows.forEach(row -> {
+                batch.add(row);
+                if (batch.size() == INTEREST_BATCH_SIZE) {
+                    withInterests(batch).forEach(consumer);
+                    batch.clear();
+                }
+            });
+        }
+        withInterests(batch).forEach(consumer);
+    }
+
+    // Названия разрешает InterestDictionary: интереса нет - нет и пользователей,
+    // в базу не ходим. Поиск идёт по InterestIndex, а пока он не построен - в базе по id
+    public List<UserSummary> findByInterest(String interestType) {
+        InterestDictionary.Entry interest = interestDictionary.resolve(interestType);
+        if (interest == null) {
+            return List.of();
+        }
+        long[] ids = interestIndex.findUsersWithAll(interest.code());
+        if (ids == null) {
+            return withInterests(userRepository.findRowsByInterestId(interest.id()));
+        }
+        return loadSummaries(ids);
+    }
+
+    public List<UserSummary> findByAllInterests(Set<String> interestTypes) {
+        List<InterestDictionary.Entry> interests = resolveInterests(interestTypes);
+        if (interests.contains(null)) {
+            return List.of();
+        }
+        long[] ids = interestIndex.findUsersWithAll(codes(interests));
+        if (ids == null) {
+            return withInterests(userRepository.findRowsByAllInterestIds(ids(interests),
+                    interests.size()));
+        }
+        return loadSummaries(ids);
+    }
+
+    public List<UserSummary> findByAnyInterest(Set<String> interestTypes) {
+        List<InterestDictionary.Entry> interests = new ArrayList<>(
+                resolveInterests(interestTypes));
+        interests.removeIf(Objects::isNull);
+        if (interests.isEmpty()) {
+            return List.of();
+        }
+        long[] ids = interestIndex.findUsersWithAny(codes(interests));
+        if (ids == null) {
+            return withInterests(userRepository.findRowsByAnyInterestIds(ids(interests)));
+        }
+        return loadSummaries(ids);
+    }
+
+    /**
+     * До {@code limit} пользователей с самыми похожими на {@code id} интересами,
+     * лучшие первыми. Ранжирует InterestIndex, из базы загружаются только
+     * найденные пользователи. Без индекса пришлось бы сравнивать со всей
+     * таблицей, поэтому пока он строится, отвечаем 503.
+     */
+    public List<UserMatch> findBestMatches(Long id, int limit) {
+        validateUserId(id);
+        if (limit < 1 || limit > MAX_MATCHES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Число совпадений"
+                    + " должно быть от 1 до " + MAX_MATCHES);
+        }
+        if (findSnapshot(id).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Пользователь не найден");
+        }
+        List<InterestMatch> matches = interestIndex.findBestMatches(id, limit);
+        if (matches == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Индекс"
+                    + " интересов ещё строится, повторите позже");
+        }
+        long[] ids = matches.stream().mapToLong(InterestMatch::userId).sorted().toArray();
+        Map<Long, UserSummary> users = new HashMap<>();
+        for (UserSummary user : loadSummaries(ids)) {
+            users.put(user.id(), user);
+        }
+        List<UserMatch> result = new ArrayList<>(matches.size());
+        for (InterestMatch match : matches) {
+            // Пользователя могли удалить между ранжированием и загрузкой
+            UserSummary user = users.get(match.userId());
+            if (user != null) {
+                result.add(new UserMatch(user, match.shared(), match.score()));
+            }
+        }
+        return result;
+    }
+
     public Optional<User> findById(Long id) {
+        return findSnapshot(id).map(UserSnapshot::toUser);
+    }
+
+    /**
+     * Снимок пользователя из кэша вместе с готовым хэшем представления: по нему
+     * проверяется If-None-Match без сборки и сериализации пользователя.
+     */
+    public Optional<UserSnapshot> findSnapshot(Long id) {
         try {
             if (id == null || id <= 0) {
                 log.warn("Invalid user ID requested: {}", id);
@@ -47,15 +254,9 @@ public class UserService {
                         + " ID пользователя");
             }
 
-            User cachedUser = cache.get(id);
-            if (cachedUser != null) {
-                log.info("User {} retrieved from cache", id);
-                return Optional.of(cachedUser);
-            }
-
-            Optional<User> userOptional = userRepository.findById(id);
-            userOptional.ifPresent(user -> cache.put(id, user));
-            return userOptional;
+            // Одновременные промахи по одному id дают один запрос в базу,
+            // несуществующие id какое-то время отвечаются из кэша
+            return cache.getOrLoad(id, userRepository::findWithInterestsById);
         } catch (Exception e) {
             log.error("Failed to find user with ID: {}. Error: {}", id, e.getMessage(), e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Ошибка"
@@ -87,6 +288,7 @@ public class UserService {
 
             userRepository.deleteById(id);
             cache.remove(id);
+            interestIndex.removeUser(id);
         } catch (Exception e) {
             log.error("Failed to delete user. Error: {}", e.getMessage(), e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Ошибка"
@@ -94,78 +296,185 @@ public class UserService {
         }
     }
 
-    @Transactional
     public User update(Long id, UserUpdateDto dto) {
-        try {
-            validateUserId(id);
-
-            User user = userRepository.findById(id)
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, ""
-                            + "Пользователь"
-                            + " не найден"));
+        return update(id, dto, null);
+    }
 
-            if (dto.getEmail() != null && !dto.getEmail().trim().equals(user.getEmail())) {
-                if (dto.getEmail().trim().isEmpty() || dto.getEmail().equalsIgnoreCase("null")) {
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный email");
+    /**
+     * Обновляет email и/или имя без блокировок. Hibernate сверяет version при
+     * записи; если строку успел изменить другой запрос, попытка повторяется на
+     * свежих данных, всего до {@code MAX_UPDATE_ATTEMPTS} раз.
+     * {@code expectedETag} - ETag из If-Match: если текущее представление
+     * пользователя другое, отвечаем 412 без повтора, т.к. клиент правил уже
+     * устаревшее состояние.
+     */
+    public User update(Long id, UserUpdateDto dto, String expectedETag) {
+        validateUserId(id);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                User updatedUser = transactionTemplate.execute(status ->
+                        applyUpdate(id, dto, expectedETag));
+                // В кэш только после фиксации: откаченная попытка его не трогает
+                cache.put(id, updatedUser);
+                return updatedUser;
+            } catch (OptimisticLockingFailureException e) {
+                if (expectedETag != null) {
+                    throw versionMismatch();
                 }
-                if (userRepository.findByEmail(dto.getEmail()).isPresent()) {
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Email"
-                            + " уже используется");
+                if (attempt == MAX_UPDATE_ATTEMPTS) {
+                    log.warn("Failed to update user {} after {} version conflicts", id, attempt);
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "Пользователь"
+                            + " одновременно изменяется другими запросами, повторите позже");
                 }
-                user.setEmail(dto.getEmail().trim());
+                backOff(attempt);
+            } catch (ResponseStatusException e) {
+                throw e;
+            } catch (Exception e) {
+                log.error("Failed to update"
+                        + " user. Error: {}", e.getMessage(), e);
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                        "Ошибка при обновлении пользователя");
             }
+        }
+    }
 
-            if (dto.getName() != null) {
-                if (dto.getName().trim().isEmpty()) {
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Имя"
-                            + " не может быть пустым");
-                }
-                user.setName(dto.getName().trim());
+    private User applyUpdate(Long id, UserUpdateDto dto, String expectedETag) {
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, ""
+                        + "Пользователь"
+                        + " не найден"));
+        if (expectedETag != null && !expectedETag.equals(UserSnapshot.from(user).etag())) {
+            throw versionMismatch();
+        }
+
+        if (dto.getEmail() != null && !dto.getEmail().trim().equals(user.getEmail())) {
+            if (dto.getEmail().trim().isEmpty() || dto.getEmail().equalsIgnoreCase("null")) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный email");
+            }
+            if (cache.isEmailTaken(dto.getEmail(), this::emailExists)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Email"
+                        + " уже используется");
             }
+            user.setEmail(dto.getEmail().trim());
+        }
 
-            User updatedUser = userRepository.save(user);
-            cache.put(id, updatedUser);
-            return updatedUser;
-        } catch (Exception e) {
-            log.error("Failed to update"
-                    + " user. Error: {}", e.getMessage(), e);
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
-                    "Ошибка при обновлении пользователя");
+        if (dto.getName() != null) {
+            if (dto.getName().trim().isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Имя"
+                        + " не может быть пустым");
+            }
+            user.setName(dto.getName().trim());
         }
+
+        // flush внутри транзакции, чтобы конфликт версий всплыл здесь, а не при commit.
+        // Интересы подгружаем заранее: снимок для кэша строится уже после транзакции
+        User savedUser = userRepository.saveAndFlush(user);
+        Hibernate.initialize(savedUser.getInterests());
+        return savedUser;
     }
 
+    private static ResponseStatusException versionMismatch() {
+        return new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Пользователь"
+                + " был изменён другим запросом, получите актуальную версию");
+    }
+
+    // Случайная пауза разводит конкурирующие запросы, чтобы они не столкнулись снова
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, UPDATE_BACKOFF_MILLIS << attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Обновление пользователя прервано");
+        }
+    }
+
+    /**
+     * Массовое создание в одной транзакции. Для каждой строки запроса
+     * возвращается свой результат, см. {@link #createRows}.
+     */
     @Transactional
     public BulkResponse bulkCreate(List<UserCreateDto> userDtos) {
-        BulkResponse.BulkResponseBuilder response = BulkResponse.builder()
-                .successCount(0)
-                .failCount(0)
-                .errors(new ArrayList<>());
-
         if (userDtos == null || userDtos.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Список"
                     + " пользователей не может быть пустым");
         }
 
-        for (UserCreateDto dto : userDtos) {
-            try {
-                User user = new User();
-                user.setEmail(dto.getEmail());
-                user.setName(dto.getName());
-                user.setBirth(dto.getBirth());
-                validateUserForCreation(user);
-                user.setAge(Period.between(dto.getBirth(), LocalDate.now()).getYears());
-
-                User saved = userRepository.save(user);
-                cache.put(saved.getId(), saved);
-                response.successCount(response.build().getSuccessCount() + 1);
-            } catch (Exception e) {
-                response.failCount(response.build().getFailCount() + 1);
-                response.errors(List.of("Ошибка для email "
-                        + dto.getEmail() + ": " + e.getMessage()));
+        List<BulkRowResult> results = createRows(userDtos,
+                IntStream.range(0, userDtos.size()).toArray());
+
+        List<String> errors = new ArrayList<>();
+        for (BulkRowResult result : results) {
+            if (!result.isSuccess()) {
+                errors.add(bulkErrorMessage(result));
+            }
+        }
+        return BulkResponse.builder()
+                .successCount(results.size() - errors.size())
+                .failCount(errors.size())
+                .errors(errors)
+                .results(results)
+                .build();
+    }
+
+    /**
+     * Создаёт пользователей в текущей транзакции: строки проверяются в памяти,
+     * занятые email ищутся одним запросом, корректные строки вставляются
+     * пакетами JDBC. {@code indexes[i]} - номер строки {@code dtos.get(i)} в
+     * исходном запросе, он попадает в результат.
+     */
+    public List<BulkRowResult> createRows(List<UserCreateDto> dtos, int[] indexes) {
+        BulkRowResult[] results = new BulkRowResult[dtos.size()];
+        List<Integer> validRows = new ArrayList<>();
+        Set<String> batchEmails = new HashSet<>();
+        for (int i = 0; i < dtos.size(); i++) {
+            UserCreateDto dto = dtos.get(i);
+            String error = validateBulkRow(dto, batchEmails);
+            if (error != null) {
+                results[i] = failedRow(indexes[i], dto, error);
+            } else {
+                validRows.add(i);
             }
         }
 
-        return response.build();
+        Set<String> existing = userBulkRepository.findExistingEmails(batchEmails);
+        List<User> toInsert = new ArrayList<>(validRows.size());
+        List<Integer> insertedRows = new ArrayList<>(validRows.size());
+        LocalDate today = LocalDate.now();
+        for (int row : validRows) {
+            UserCreateDto dto = dtos.get(row);
+            if (existing.contains(dto.getEmail())) {
+                results[row] = failedRow(indexes[row], dto,
+                        "Пользователь с таким email уже существует");
+                continue;
+            }
+            User user = new User();
+            user.setName(dto.getName().trim());
+            user.setEmail(dto.getEmail());
+            user.setBirth(dto.getBirth());
+            user.setAge(Period.between(dto.getBirth(), today).getYears());
+            toInsert.add(user);
+            insertedRows.add(row);
+        }
+
+        List<Long> ids = userBulkRepository.insertAll(toInsert);
+        for (int i = 0; i < ids.size(); i++) {
+            int row = insertedRows.get(i);
+            results[row] = BulkRowResult.builder()
+                    .index(indexes[row])
+                    .email(toInsert.get(i).getEmail())
+                    .success(true)
+                    .id(ids.get(i))
+                    .build();
+        }
+        cache.forgetMissing(ids, toInsert.stream().map(User::getEmail).toList());
+        log.info("Bulk created {} of {} users", ids.size(), dtos.size());
+        return Arrays.asList(results);
+    }
+
+    static String bulkErrorMessage(BulkRowResult result) {
+        return "Ошибка при создании пользователя с email " + result.getEmail()
+                + ": " + result.getError();
     }
 
     // === Helpers ===
@@ -181,7 +490,7 @@ public class UserService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Email обязателен");
         }
 
-        if (userRepository.findByEmail(user.getEmail()).isPresent()) {
+        if (cache.isEmailTaken(user.getEmail(), this::emailExists)) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     "Пользователь с таким email уже существует");
         }
@@ -195,6 +504,112 @@ public class UserService {
         }
     }
 
+    private boolean emailExists(String email) {
+        return userRepository.findByEmail(email).isPresent();
+    }
+
+    // Те же правила, что в validateUserForCreation, но без запроса в базу
+    static String validateBulkRow(UserCreateDto dto, Set<String> batchEmails) {
+        if (dto == null) {
+            return "Пользователь не может быть null";
+        }
+        String email = dto.getEmail();
+        if (email == null || email.trim().isEmpty() || email.equalsIgnoreCase("null")) {
+            return "Email обязателен";
+        }
+        if (dto.getName() == null || dto.getName().trim().isEmpty()) {
+            return "Имя обязательно";
+        }
+        if (dto.getBirth() == null || dto.getBirth().isAfter(LocalDate.now())) {
+            return "Некорректная дата рождения";
+        }
+        if (!batchEmails.add(email)) {
+            return "Email повторяется в запросе";
+        }
+        return null;
+    }
+
+    static BulkRowResult failedRow(int index, UserCreateDto dto, String error) {
+        return BulkRowResult.builder()
+                .index(index)
+                .email(dto == null ? null : dto.getEmail())
+                .success(false)
+                .error(error)
+                .build();
+    }
+
+    // Пользователи по id из индекса (по возрастанию), порциями по INTEREST_BATCH_SIZE:
+    // запрос строк и запрос интересов на порцию
+    private List<UserSummary> loadSummaries(long[] ids) {
+        List<UserSummary> result = new ArrayList<>(ids.length);
+        for (int from = 0; from < ids.length; from += INTEREST_BATCH_SIZE) {
+            List<Long> batch = new ArrayList<>(INTEREST_BATCH_SIZE);
+            for (int i = from; i < Math.min(from + INTEREST_BATCH_SIZE, ids.length); i++) {
+                batch.add(ids[i]);
+            }
+            result.addAll(withInterests(userRepository.findRowsByIdInOrderByIdAsc(batch)));
+        }
+        return result;
+    }
+
+    // Интересы всех строк за ceil(n / INTEREST_BATCH_SIZE) запросов вместо запроса на строку
+    private List<UserSummary> withInterests(List<UserRow> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<UserSummary.InterestItem>> interests = new HashMap<>();
+        for (int from = 0; from < rows.size(); from += INTEREST_BATCH_SIZE) {
+            List<Long> ids = rows.subList(from, Math.min(from + INTEREST_BATCH_SIZE, rows.size()))
+                    .stream().map(UserRow::getId).toList();
+            for (UserInterestRow row : userRepository.findInterestRowsByUserIds(ids)) {
+                interests.computeIfAbsent(row.getUserId(), id -> new ArrayList<>())
+                        .add(new UserSummary.InterestItem(row.getInterestId(),
+                                row.getInterestType()));
+            }
+        }
+        List<UserSummary> summaries = new ArrayList<>(rows.size());
+        for (UserRow row : rows) {
+            List<UserSummary.InterestItem> items = interests.getOrDefault(row.getId(), List.of());
+            if (items.size() > 1) {
+                items.sort(Comparator.comparing(UserSummary.InterestItem::id));
+            }
+            summaries.add(UserSummary.from(row, items));
+        }
+        return summaries;
+    }
+
+    // По одному элементу на ключ названия, null - такого интереса нет
+    private List<InterestDictionary.Entry> resolveInterests(Set<String> interestTypes) {
+        Map<String, InterestDictionary.Entry> interests = new HashMap<>();
+        for (String interestType : interestTypes) {
+            interests.put(InterestKey.normalize(interestType),
+                    interestDictionary.resolve(interestType));
+        }
+        return new ArrayList<>(interests.values());
+    }
+
+    private static int[] codes(List<InterestDictionary.Entry> interests) {
+        return interests.stream().mapToInt(InterestDictionary.Entry::code).toArray();
+    }
+
+    private static Set<Long> ids(List<InterestDictionary.Entry> interests) {
+        Set<Long> ids = new HashSet<>();
+        for (InterestDictionary.Entry interest : interests) {
+            ids.add(interest.id());
+        }
+        return ids;
+    }
+
+    private static void validateAgeRange(Integer minAge, Integer maxAge) {
+        if ((minAge != null && (minAge < 0 || minAge > MAX_AGE))
+                || (maxAge != null && (maxAge < 0 || maxAge > MAX_AGE))
+                || (minAge != null && maxAge != null && minAge > maxAge)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Некорректный диапазон возраста: допустимо от 0 до " + MAX_AGE
+                            + ", minAge не больше maxAge");
+        }
+    }
+
     private void validateUserId(Long id) {
         if (id == null || id <= 0) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
@@ -0,0 +1,40 @@
+package com.kirill.meetyou.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Откладывает действие до коммита текущей транзакции, чтобы кэши, индексы и
+ * рассылка инвалидаций не видели данных, которые потом откатятся. Вне
+ * транзакции действие выполняется сразу.
+ *
+ * <p>Действие, отложенное изнутри другого такого действия, тоже выполняется
+ * сразу: коммит уже прошёл, а синхронизации, зарегистрированные во время
+ * afterCommit, Spring не вызывает.
+ */
+public final class AfterCommit {
+    private static final ThreadLocal<Boolean> COMMITTED = new ThreadLocal<>();
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && COMMITTED.get() == null) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            COMMITTED.set(Boolean.TRUE);
+                            try {
+                                action.run();
+                            } finally {
+                                COMMITTED.remove();
+                            }
+                        }
+                    });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.kirill.meetyou.utils;
+
+/**
+ * 64-битный хэш FNV-1a по полям представления для сильных ETag. Считается по
+ * значениям полей, а не по сериализованному JSON, поэтому для ответа 304 тело
+ * строить не нужно. Результат не зависит от узла и перезапуска.
+ *
+ * <p>Перед каждой строкой пишется её длина, а null кодируется отдельно, чтобы
+ * ("ab", "c"), ("a", "bc") и (null, "") давали разные хэши.
+ */
+public final class ContentHash {
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+    private static final long NULL_MARKER = -1L;
+
+    private long value = OFFSET_BASIS;
+
+    public ContentHash add(long field) {
+        for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+            value = (value ^ ((field >>> shift) & 0xff)) * PRIME;
+        }
+        return this;
+    }
+
+    public ContentHash add(Object field) {
+        if (field == null) {
+            value = (value ^ NULL_MARKER) * PRIME;
+            return this;
+        }
+        String text = field.toString();
+        value = (value ^ text.length()) * PRIME;
+        for (int i = 0; i < text.length(); i++) {
+            value = (value ^ text.charAt(i)) * PRIME;
+        }
+        return this;
+    }
+
+    public long value() {
+        return value;
+    }
+
+    public String etag() {
+        return etag(value);
+    }
+
+    // Сильный ETag в кавычках, как требует заголовок
+    public static String etag(long hash) {
+        return "\"" + Long.toHexString(hash) + "\"";
+    }
+}
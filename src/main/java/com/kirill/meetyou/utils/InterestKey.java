@@ -0,0 +1,36 @@
+package com.kirill.meetyou.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Ключ названия интереса для поиска без учёта регистра: NFKC (совместимые
+ * формы вроде полноширинных букв и неразрывного пробела сводятся к обычным),
+ * без пробельных символов по краям, со свёрткой регистра. Хранится в
+ * interests.interest_key под уникальным индексом.
+ *
+ * <p>Единственное определение ключа: в SQL его не повторяем, lower() в
+ * PostgreSQL зависит от локали базы и регистр не сворачивает. Ключи в базе
+ * заполняет и исправляет InterestKeyBackfill при старте приложения.
+ *
+ * <p>Свёртка - верхний регистр целой строки (в нём ß становится SS), затем
+ * нижний по отдельным символам, без контекстных правил: ς и σ дают одно σ.
+ * Не зависит от локали JVM. После свёртки NFKC повторяется, так как смена
+ * регистра может разложить составной символ.
+ */
+public final class InterestKey {
+
+    private InterestKey() {
+    }
+
+    public static String normalize(String interestType) {
+        if (interestType == null) {
+            return null;
+        }
+        String upper = Normalizer.normalize(interestType, Normalizer.Form.NFKC).strip()
+                .toUpperCase(Locale.ROOT);
+        StringBuilder folded = new StringBuilder(upper.length());
+        upper.codePoints().map(Character::toLowerCase).forEach(folded::appendCodePoint);
+        return Normalizer.normalize(folded, Normalizer.Form.NFKC);
+    }
+}
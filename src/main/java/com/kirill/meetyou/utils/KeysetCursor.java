@@ -0,0 +1,40 @@
+package com.kirill.meetyou.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Непрозрачный курсор для keyset-пагинации: id последней отданной записи,
+ * закодированный в base64url с версией формата. Клиент передаёт его обратно
+ * как есть и не должен разбирать.
+ */
+public final class KeysetCursor {
+    private static final String PREFIX = "v1:";
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // Пустой курсор - начало выборки
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor),
+                    StandardCharsets.US_ASCII);
+            if (!value.startsWith(PREFIX)) {
+                throw new IllegalArgumentException(value);
+            }
+            return Long.parseLong(value.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный курсор");
+        }
+    }
+}
@@ -0,0 +1,42 @@
+-- Переход с IDENTITY на последовательности с шагом 50 (allocationSize в сущностях).
+-- Hibernate берёт из последовательности начало блока (pooled-lo) и раздаёт id
+-- блока без обращения к базе, поэтому вставки снова уходят JDBC-пакетами.
+-- Скрипт повторяемый, применяется до запуска новой версии:
+--   psql -d MeetYou -f V001__id_sequences.sql
+
+BEGIN;
+
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS photos_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS messages_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS interests_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS bio_seq START WITH 1 INCREMENT BY 50;
+
+-- IDENTITY (или serial) больше не генерирует id; вставки мимо Hibernate
+-- получают id из той же последовательности через DEFAULT
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE photos ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE messages ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE interests ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE bio ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+ALTER TABLE users ALTER COLUMN id SET DEFAULT nextval('users_seq');
+ALTER TABLE photos ALTER COLUMN id SET DEFAULT nextval('photos_seq');
+ALTER TABLE messages ALTER COLUMN id SET DEFAULT nextval('messages_seq');
+ALTER TABLE interests ALTER COLUMN id SET DEFAULT nextval('interests_seq');
+ALTER TABLE bio ALTER COLUMN id SET DEFAULT nextval('bio_seq');
+
+ALTER SEQUENCE users_seq OWNED BY users.id;
+ALTER SEQUENCE photos_seq OWNED BY photos.id;
+ALTER SEQUENCE messages_seq OWNED BY messages.id;
+ALTER SEQUENCE interests_seq OWNED BY interests.id;
+ALTER SEQUENCE bio_seq OWNED BY bio.id;
+
+-- Следующий блок начинается после уже существующих id
+SELECT setval('users_seq', COALESCE(MAX(id), 0) + 1, false) FROM users;
+SELECT setval('photos_seq', COALESCE(MAX(id), 0) + 1, false) FROM photos;
+SELECT setval('messages_seq', COALESCE(MAX(id), 0) + 1, false) FROM messages;
+SELECT setval('interests_seq', COALESCE(MAX(id), 0) + 1, false) FROM interests;
+SELECT setval('bio_seq', COALESCE(MAX(id), 0) + 1, false) FROM bio;
+
+COMMIT;
@@ -0,0 +1,16 @@
+-- Индексы для возрастных запросов:
+--   idx_users_birth    - фильтр minAge/maxAge, переведённый в диапазон дат рождения;
+--   idx_users_birthday - ночной пересчёт age только у сегодняшних именинников.
+-- Выражения должны совпадать с запросом в UserBulkRepository.updateAges.
+--   psql -d MeetYou -f V002__users_birth_indexes.sql
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_birth ON users (birth);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_birthday
+    ON users ((EXTRACT(MONTH FROM birth)), (EXTRACT(DAY FROM birth)));
+
+-- Возраст мог устареть ещё до появления ночной задачи: выравниваем один раз
+UPDATE users
+SET age = date_part('year', age(current_date, birth))::int
+WHERE birth IS NOT NULL
+  AND age IS DISTINCT FROM date_part('year', age(current_date, birth))::int;
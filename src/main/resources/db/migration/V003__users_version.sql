@@ -0,0 +1,5 @@
+-- Версия строки для оптимистической блокировки (@Version в User).
+-- Существующим строкам достаётся 0, DEFAULT нужен и вставкам в обход JPA.
+--   psql -d MeetYou -f V003__users_version.sql
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
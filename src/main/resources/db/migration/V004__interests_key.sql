@@ -0,0 +1,23 @@
+-- Ключ для поиска интересов без учёта регистра (InterestKey.normalize):
+-- NFKC, без пробелов по краям, со свёрткой регистра. LOWER(interest_type) в
+-- условиях не попадал в индекс, по interest_key поиск идёт по уникальному.
+--
+-- Сам ключ здесь не считается: lower() зависит от локали базы и не
+-- сворачивает регистр (ß, конечная ς), а ключ должен совпадать с тем, что
+-- пишет приложение. Столбец заполняется временными уникальными значениями
+-- (пробел и id), настоящие ключи при старте записывает InterestKeyBackfill;
+-- интересы, которые отличались только регистром или пробелами, он же
+-- сливает в интерес с меньшим id. Применяется при остановленном приложении,
+-- до запуска новой версии (ddl-auto=validate):
+--   psql -d MeetYou -f V004__interests_key.sql
+
+BEGIN;
+
+ALTER TABLE interests ADD COLUMN IF NOT EXISTS interest_key varchar(255);
+
+UPDATE interests SET interest_key = ' ' || id WHERE interest_key IS NULL;
+
+ALTER TABLE interests ALTER COLUMN interest_key SET NOT NULL;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_interests_interest_key ON interests (interest_key);
+
+COMMIT;
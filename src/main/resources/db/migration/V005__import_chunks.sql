@@ -0,0 +1,15 @@
+-- Сохранённые порции задач импорта пользователей (UserImportService). Строка
+-- вставляется в транзакции самой порции, поэтому после падения узла между
+-- коммитом и записью job.json продолжение импорта узнаёт о порции отсюда и не
+-- повторяет её. В errors - ошибки строк порции (JSON), счётчики нужны для
+-- итогов задачи. Строки задачи удаляются, когда она завершается.
+--   psql -d MeetYou -f V005__import_chunks.sql
+
+CREATE TABLE IF NOT EXISTS import_chunks (
+    job_id varchar(36) NOT NULL,
+    chunk integer NOT NULL,
+    success_count integer NOT NULL,
+    fail_count integer NOT NULL,
+    errors text,
+    PRIMARY KEY (job_id, chunk)
+);
@@ -0,0 +1,118 @@
+package com.kirill.meetyou.benchmark;
+
+import com.kirill.meetyou.model.User;
+import com.kirill.meetyou.repository.UserBulkRepository;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Массовая вставка 10 тыс. и 100 тыс. пользователей: прежний путь (запрос
+ * email и INSERT на каждую строку) против {@link UserBulkRepository} (один
+ * запрос email = ANY и пакеты JDBC по 1000). Нужна PostgreSQL со схемой
+ * приложения; вставленные строки удаляются после каждого замера.
+ * Запуск: {@code java -Dbench.jdbc.url=jdbc:postgresql://localhost:5432/MeetYou
+ * -Dbench.jdbc.user=root -Dbench.jdbc.password=... -cp <test-classpath>
+ * com.kirill.meetyou.benchmark.BulkInsertBenchmark}
+ */
+public final class BulkInsertBenchmark {
+    private static final int[] SIZES = {10_000, 100_000};
+    private static final String EMAIL_PREFIX = "bulk-bench-";
+
+    private BulkInsertBenchmark() {
+    }
+
+    public static void main(String[] args) throws SQLException {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("bench.jdbc.url"),
+                System.getProperty("bench.jdbc.user"),
+                System.getProperty("bench.jdbc.password"));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        UserBulkRepository bulkRepository = new UserBulkRepository(jdbcTemplate);
+        TransactionTemplate transaction =
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        for (int size : SIZES) {
+            List<User> users = users(size);
+
+            cleanUp(jdbcTemplate);
+            long start = System.nanoTime();
+            try (Connection connection = dataSource.getConnection()) {
+                rowByRow(connection, users);
+            }
+            long rowByRowMillis = (System.nanoTime() - start) / 1_000_000;
+
+            cleanUp(jdbcTemplate);
+            start = System.nanoTime();
+            transaction.executeWithoutResult(status -> {
+                Set<String> existing = bulkRepository.findExistingEmails(
+                        users.stream().map(User::getEmail).collect(Collectors.toSet()));
+                if (!existing.isEmpty()) {
+                    throw new IllegalStateException("Unexpected existing emails");
+                }
+                bulkRepository.insertAll(users);
+            });
+            long bulkMillis = (System.nanoTime() - start) / 1_000_000;
+            cleanUp(jdbcTemplate);
+
+            System.out.printf("%,7d rows: row-by-row %,7d ms (%,8.0f rows/s),"
+                    + " bulk %,6d ms (%,8.0f rows/s)%n", size,
+                    rowByRowMillis, size * 1000.0 / rowByRowMillis,
+                    bulkMillis, size * 1000.0 / bulkMillis);
+        }
+    }
+
+    // Как прежний bulkCreate: поиск по email и отдельный INSERT на каждую строку
+    private static void rowByRow(Connection connection, List<User> users) throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement select = connection.prepareStatement(
+                     "SELECT * FROM users WHERE email = ?");
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO users (name, email, birth, age) VALUES (?, ?, ?, ?)",
+                     Statement.RETURN_GENERATED_KEYS)) {
+            for (User user : users) {
+                select.setString(1, user.getEmail());
+                try (ResultSet resultSet = select.executeQuery()) {
+                    if (resultSet.next()) {
+                        throw new IllegalStateException("Unexpected existing email");
+                    }
+                }
+                insert.setString(1, user.getName());
+                insert.setString(2, user.getEmail());
+                insert.setDate(3, Date.valueOf(user.getBirth()));
+                insert.setInt(4, user.getAge());
+                insert.executeUpdate();
+            }
+            connection.commit();
+        }
+    }
+
+    private static List<User> users(int size) {
+        List<User> users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            User user = new User();
+            user.setName("Bulk " + i);
+            user.setEmail(EMAIL_PREFIX + i + "@meetyou.com");
+            user.setBirth(LocalDate.of(1990, 1, 1).plusDays(i % 10_000));
+            user.setAge(30);
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static void cleanUp(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("DELETE FROM users WHERE email LIKE ?", EMAIL_PREFIX + "%");
+    }
+}
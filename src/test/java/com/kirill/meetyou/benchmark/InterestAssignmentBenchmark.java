@@ -0,0 +1,237 @@
+package com.kirill.meetyou.benchmark;
+
+import com.kirill.meetyou.model.User;
+import com.kirill.meetyou.repository.UserBulkRepository;
+import com.kirill.meetyou.repository.UserInterestRepository;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Смена интересов у 1 тыс. и 10 тыс. пользователей: у каждого два интереса из
+ * шести заменяются другими. Прежний путь - четыре вызова POST/DELETE
+ * /interests на пользователя, каждый в своей транзакции читает пользователя и
+ * его интересы, пишет одну связь и поднимает версию. Новый - те же запросы,
+ * что у InterestService.assignInterests, пачками по 1000 пользователей.
+ * Hibernate в обоих случаях не участвует, сравнивается только работа с базой.
+ * Нужна PostgreSQL со схемой приложения; созданные строки удаляются в конце.
+ * Запуск: {@code java -Dbench.jdbc.url=jdbc:postgresql://localhost:5432/MeetYou
+ * -Dbench.jdbc.user=root -Dbench.jdbc.password=... -cp <test-classpath>
+ * com.kirill.meetyou.benchmark.InterestAssignmentBenchmark}
+ */
+public final class InterestAssignmentBenchmark {
+    private static final int[] SIZES = {1_000, 10_000};
+    private static final int INTERESTS = 50;
+    private static final int PER_USER = 6;
+    private static final int REPLACED = 2;
+    private static final int REQUEST_SIZE = 1_000;
+    // Заведомо выше id настоящих интересов
+    private static final long FIRST_INTEREST_ID = 900_000_000L;
+    private static final String PREFIX = "assign-bench-";
+
+    private InterestAssignmentBenchmark() {
+    }
+
+    public static void main(String[] args) throws SQLException {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("bench.jdbc.url"),
+                System.getProperty("bench.jdbc.user"),
+                System.getProperty("bench.jdbc.password"));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        UserBulkRepository bulkRepository = new UserBulkRepository(jdbcTemplate);
+        UserInterestRepository interestRepository = new UserInterestRepository(jdbcTemplate);
+        TransactionTemplate transaction =
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        cleanUp(jdbcTemplate);
+        for (int i = 0; i < INTERESTS; i++) {
+            jdbcTemplate.update("INSERT INTO interests (id, interest_type, interest_key)"
+                    + " VALUES (?, ?, ?)", FIRST_INTEREST_ID + i, PREFIX + i, PREFIX + i);
+        }
+        try {
+            for (int size : SIZES) {
+                List<Long> userIds = transaction.execute(
+                        status -> bulkRepository.insertAll(users(size)));
+
+                resetLinks(jdbcTemplate, interestRepository, userIds);
+                long start = System.nanoTime();
+                try (Connection connection = dataSource.getConnection()) {
+                    perInterest(connection, userIds);
+                }
+                long perInterestMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+                // Номер пользователя в общем списке - по нему считается желаемый набор
+                Map<Long, Integer> positions = new HashMap<>();
+                for (int i = 0; i < userIds.size(); i++) {
+                    positions.put(userIds.get(i), i);
+                }
+                resetLinks(jdbcTemplate, interestRepository, userIds);
+                start = System.nanoTime();
+                for (int from = 0; from < userIds.size(); from += REQUEST_SIZE) {
+                    List<Long> request = userIds.subList(from,
+                            Math.min(from + REQUEST_SIZE, userIds.size()));
+                    transaction.executeWithoutResult(status ->
+                            bulk(bulkRepository, interestRepository, request, positions));
+                }
+                long bulkMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+                verifyLinks(interestRepository, userIds);
+                jdbcTemplate.update("DELETE FROM user_interest WHERE interest_id >= ?",
+                        FIRST_INTEREST_ID);
+                jdbcTemplate.update("DELETE FROM users WHERE email LIKE ?", PREFIX + "%");
+
+                System.out.printf("%,7d users: per-interest %,7d ms (%,8.0f users/s),"
+                        + " bulk %,6d ms (%,8.0f users/s)%n", size,
+                        perInterestMillis, size * 1000.0 / perInterestMillis,
+                        bulkMillis, size * 1000.0 / bulkMillis);
+            }
+        } finally {
+            cleanUp(jdbcTemplate);
+        }
+    }
+
+    // Как addInterestToUser/removeInterestFromUser: транзакция на каждую связь
+    private static void perInterest(Connection connection, List<Long> userIds)
+            throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement selectUser = connection.prepareStatement(
+                     "SELECT id, name, email, birth, age, version FROM users WHERE id = ?");
+             PreparedStatement selectInterests = connection.prepareStatement(
+                     "SELECT i.id, i.interest_type FROM user_interest ui"
+                             + " JOIN interests i ON i.id = ui.interest_id WHERE ui.user_id = ?");
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO user_interest (user_id, interest_id) VALUES (?, ?)");
+             PreparedStatement delete = connection.prepareStatement(
+                     "DELETE FROM user_interest WHERE user_id = ? AND interest_id = ?");
+             PreparedStatement updateVersion = connection.prepareStatement(
+                     "UPDATE users SET version = version + 1 WHERE id = ? AND version = ?")) {
+            for (int user = 0; user < userIds.size(); user++) {
+                long userId = userIds.get(user);
+                for (int k = 0; k < REPLACED * 2; k++) {
+                    selectUser.setLong(1, userId);
+                    long version;
+                    try (ResultSet resultSet = selectUser.executeQuery()) {
+                        resultSet.next();
+                        version = resultSet.getLong(6);
+                    }
+                    selectInterests.setLong(1, userId);
+                    try (ResultSet resultSet = selectInterests.executeQuery()) {
+                        while (resultSet.next()) {
+                            resultSet.getString(2);
+                        }
+                    }
+                    // Сначала удаляем два старых интереса, потом добавляем два новых
+                    PreparedStatement write = k < REPLACED ? delete : insert;
+                    write.setLong(1, userId);
+                    write.setLong(2, k < REPLACED ? interestId(user, k)
+                            : interestId(user, PER_USER + k - REPLACED));
+                    write.executeUpdate();
+                    updateVersion.setLong(1, userId);
+                    updateVersion.setLong(2, version);
+                    updateVersion.executeUpdate();
+                    connection.commit();
+                }
+            }
+        }
+    }
+
+    // Запросы assignInterests: блокировка, текущие связи, разница пакетами, версии
+    private static void bulk(UserBulkRepository bulkRepository,
+                             UserInterestRepository interestRepository, List<Long> userIds,
+                             Map<Long, Integer> positions) {
+        Set<Long> existing = bulkRepository.lockExisting(userIds);
+        Map<Long, Set<Long>> current = interestRepository.findInterestIdsByUserIds(existing);
+        List<UserInterestRepository.Link> toInsert = new ArrayList<>();
+        List<UserInterestRepository.Link> toDelete = new ArrayList<>();
+        Set<Long> changed = new HashSet<>();
+        for (Long userId : existing) {
+            Set<Long> target = desired(positions.get(userId));
+            Set<Long> before = current.get(userId);
+            for (Long interestId : target) {
+                if (!before.contains(interestId)) {
+                    toInsert.add(new UserInterestRepository.Link(userId, interestId));
+                    changed.add(userId);
+                }
+            }
+            for (Long interestId : before) {
+                if (!target.contains(interestId)) {
+                    toDelete.add(new UserInterestRepository.Link(userId, interestId));
+                    changed.add(userId);
+                }
+            }
+        }
+        interestRepository.deleteLinks(toDelete);
+        interestRepository.insertLinks(toInsert);
+        bulkRepository.incrementVersions(changed);
+    }
+
+    private static Set<Long> desired(int user) {
+        Set<Long> ids = new HashSet<>();
+        for (int k = REPLACED; k < PER_USER + REPLACED; k++) {
+            ids.add(interestId(user, k));
+        }
+        return ids;
+    }
+
+    // k-й интерес пользователя: первые PER_USER - исходные, следующие - замена
+    private static long interestId(int user, int k) {
+        return FIRST_INTEREST_ID + (user + k * 7L) % INTERESTS;
+    }
+
+    private static void resetLinks(JdbcTemplate jdbcTemplate,
+                                   UserInterestRepository interestRepository,
+                                   List<Long> userIds) {
+        jdbcTemplate.update("DELETE FROM user_interest WHERE interest_id >= ?",
+                FIRST_INTEREST_ID);
+        List<UserInterestRepository.Link> links = new ArrayList<>();
+        for (int user = 0; user < userIds.size(); user++) {
+            for (int k = 0; k < PER_USER; k++) {
+                links.add(new UserInterestRepository.Link(userIds.get(user),
+                        interestId(user, k)));
+            }
+        }
+        interestRepository.insertLinks(links);
+    }
+
+    private static void verifyLinks(UserInterestRepository interestRepository,
+                                    List<Long> userIds) {
+        Map<Long, Set<Long>> links = interestRepository.findInterestIdsByUserIds(userIds);
+        for (int user = 0; user < userIds.size(); user++) {
+            if (!links.get(userIds.get(user)).equals(desired(user))) {
+                throw new IllegalStateException("Unexpected interests of user " + user);
+            }
+        }
+    }
+
+    private static List<User> users(int size) {
+        List<User> users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            User user = new User();
+            user.setName("Assign " + i);
+            user.setEmail(PREFIX + i + "@meetyou.com");
+            user.setBirth(LocalDate.of(1990, 1, 1));
+            user.setAge(30);
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static void cleanUp(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("DELETE FROM user_interest WHERE interest_id >= ?",
+                FIRST_INTEREST_ID);
+        jdbcTemplate.update("DELETE FROM users WHERE email LIKE ?", PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM interests WHERE id >= ?", FIRST_INTEREST_ID);
+    }
+}
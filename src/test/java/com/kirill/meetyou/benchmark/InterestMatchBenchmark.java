@@ -0,0 +1,141 @@
+package com.kirill.meetyou.benchmark;
+
+import com.kirill.meetyou.cache.InterestDictionary;
+import com.kirill.meetyou.cache.invalidation.LoopbackInvalidationBus;
+import com.kirill.meetyou.index.InterestIndex;
+import com.kirill.meetyou.index.InterestMatch;
+import com.kirill.meetyou.repository.UserInterestRepository;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Поиск лучших совпадений по интересам в {@link InterestIndex} на 100k и 1M
+ * пользователей. Популярность интересов неравномерная, поэтому у запроса
+ * набираются десятки-сотни тысяч кандидатов. Для сравнения - объединение
+ * битовых карт без ранжирования, как у /by-any-interest.
+ * Запуск: {@code java -cp <test-classpath> com.kirill.meetyou.benchmark.InterestMatchBenchmark},
+ * main прогоняет всё дважды: на всех ядрах и с одним потоком общего пула.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class InterestMatchBenchmark {
+    private static final int INTERESTS = 300;
+    private static final int QUERY_USERS = 1024;
+    private static final int LIMIT = 20;
+
+    @Param({"100000", "1000000"})
+    private int users;
+
+    private InterestIndex index;
+    private long[] queryUsers;
+    private Map<Long, int[]> queryCodes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<Long, String> types = new HashMap<>();
+        for (long id = 0; id < INTERESTS; id++) {
+            types.put(id, "interest-" + id);
+        }
+        InterestDictionary dictionary = new InterestDictionary(null);
+        index = new InterestIndex(new SyntheticLinks(users, types), dictionary, null,
+                Runnable::run, new LoopbackInvalidationBus());
+        index.rebuild();
+
+        Random random = new Random(1);
+        queryUsers = new long[QUERY_USERS];
+        queryCodes = new HashMap<>();
+        for (int i = 0; i < QUERY_USERS; i++) {
+            long userId = 1 + random.nextInt(users);
+            queryUsers[i] = userId;
+            queryCodes.put(userId, interestsOf(userId).stream()
+                    .mapToInt(id -> dictionary.find(types.get(id)).code()).toArray());
+        }
+    }
+
+    @Benchmark
+    public List<InterestMatch> bestMatches() {
+        return index.findBestMatches(randomQueryUser(), LIMIT);
+    }
+
+    @Benchmark
+    public long[] anyInterestUnranked() {
+        return index.findUsersWithAny(queryCodes.get(randomQueryUser()));
+    }
+
+    private long randomQueryUser() {
+        return queryUsers[ThreadLocalRandom.current().nextInt(QUERY_USERS)];
+    }
+
+    // 3-12 интересов на пользователя, у младших id квадратично популярнее
+    private static List<Long> interestsOf(long userId) {
+        Random random = new Random(userId);
+        int count = 3 + random.nextInt(10);
+        return random.doubles(count)
+                .mapToObj(value -> (long) (value * value * INTERESTS))
+                .distinct()
+                .toList();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (String parallelism : new String[] {null, "1"}) {
+            OptionsBuilder options = new OptionsBuilder();
+            options.include(InterestMatchBenchmark.class.getSimpleName());
+            if (parallelism != null) {
+                options.jvmArgsAppend(
+                        "-Djava.util.concurrent.ForkJoinPool.common.parallelism=" + parallelism);
+            }
+            Options built = options.build();
+            new Runner(built).run();
+        }
+    }
+
+    // Связи генерируются на лету, без базы
+    private static final class SyntheticLinks extends UserInterestRepository {
+        private final int users;
+        private final Map<Long, String> types;
+
+        SyntheticLinks(int users, Map<Long, String> types) {
+            super(null);
+            this.users = users;
+            this.types = types;
+        }
+
+        @Override
+        public void forEachLink(LinkConsumer consumer) {
+            for (long userId = 1; userId <= users; userId++) {
+                for (long interestId : interestsOf(userId)) {
+                    consumer.accept(userId, interestId);
+                }
+            }
+        }
+
+        @Override
+        public Map<Long, String> findAllInterestTypes() {
+            return types;
+        }
+    }
+}
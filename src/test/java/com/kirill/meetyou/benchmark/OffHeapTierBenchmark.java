@@ -0,0 +1,104 @@
+package com.kirill.meetyou.benchmark;
+
+import com.kirill.meetyou.cache.UserCache;
+import com.kirill.meetyou.config.CacheProperties;
+import com.kirill.meetyou.dto.UserSnapshot;
+import com.kirill.meetyou.model.Interest;
+import com.kirill.meetyou.model.User;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Кэш пользователей целиком в куче против небольшого основного кэша
+ * (10% профилей) со вторым уровнем вне кучи. Смотрим на пропускную способность
+ * чтения и на GC: размер живой кучи и время пауз.
+ * Запуск: {@code java -cp <test-classpath> com.kirill.meetyou.benchmark.OffHeapTierBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-XX:MaxDirectMemorySize=2g"})
+public class OffHeapTierBenchmark {
+    private static final int INTERESTS_PER_USER = 5;
+
+    @Param({"1000000"})
+    private int profiles;
+
+    @Param({"heap", "off-heap"})
+    private String tier;
+
+    private UserCache cache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CacheProperties properties = new CacheProperties();
+        properties.setUsers(new CacheProperties.Spec(profiles, Duration.ofHours(1)));
+        if ("off-heap".equals(tier)) {
+            properties.getUsers().setMaximumSize(profiles / 10);
+            properties.getOffHeap().setEnabled(true);
+            properties.getOffHeap().setCapacity(
+                    DataSize.ofBytes(profiles * 512L));
+        }
+        cache = new UserCache(properties, Runnable::run);
+        for (long id = 0; id < profiles; id++) {
+            cache.put(id, newUser(id));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.cleanup();
+    }
+
+    @Benchmark
+    public UserSnapshot randomRead() {
+        return cache.get(ThreadLocalRandom.current().nextLong(profiles));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(OffHeapTierBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+    private static User newUser(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setName("user-" + id);
+        user.setEmail("user-" + id + "@meetyou.com");
+        user.setBirth(LocalDate.of(1990, 1, 1).plusDays(id % 10_000));
+        user.setAge(20 + (int) (id % 40));
+        for (long i = 0; i < INTERESTS_PER_USER; i++) {
+            Interest interest = new Interest();
+            interest.setId(id * INTERESTS_PER_USER + i);
+            interest.setInterestType("interest-" + i);
+            user.getInterests().add(interest);
+        }
+        return user;
+    }
+}
@@ -0,0 +1,142 @@
+package com.kirill.meetyou.benchmark;
+
+import com.kirill.meetyou.cache.BoundedCache;
+import com.kirill.meetyou.model.User;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Сравнение прежнего UserCache (synchronized + access-ordered LinkedHashMap)
+ * с {@link BoundedCache} на чтениях с преобладанием попаданий, 1-64 потока.
+ * Запуск: {@code java -cp <test-classpath> com.kirill.meetyou.benchmark.UserCacheBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserCacheBenchmark {
+    private static final int MAX_SIZE = 100;
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    @Param({"synchronized", "bounded"})
+    private String implementation;
+
+    private Cache cache;
+
+    @Setup
+    public void setUp() {
+        cache = "bounded".equals(implementation)
+                ? new BoundedAdapter()
+                : new SynchronizedLinkedHashMapCache();
+        for (long id = 0; id < MAX_SIZE; id++) {
+            User user = new User();
+            user.setId(id);
+            cache.put(id, user);
+        }
+    }
+
+    @Benchmark
+    public User readHeavy() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = random.nextInt(MAX_SIZE);
+        // ~5% записей, остальное попадания
+        if (random.nextInt(20) == 0) {
+            User user = new User();
+            user.setId(id);
+            cache.put(id, user);
+            return user;
+        }
+        return cache.get(id);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[] {1, 2, 4, 8, 16, 32, 64}) {
+            Options options = new OptionsBuilder()
+                    .include(UserCacheBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+    private interface Cache {
+        User get(Long id);
+
+        void put(Long id, User user);
+    }
+
+    private static final class BoundedAdapter implements Cache {
+        private final BoundedCache<Long, User> delegate = new BoundedCache<>(MAX_SIZE, TTL);
+
+        @Override
+        public User get(Long id) {
+            return delegate.getIfPresent(id);
+        }
+
+        @Override
+        public void put(Long id, User user) {
+            delegate.put(id, user);
+        }
+    }
+
+    // Копия прежней реализации UserCache для сравнения
+    private static final class SynchronizedLinkedHashMapCache implements Cache {
+        private final Map<Long, Entry> cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > MAX_SIZE;
+            }
+        };
+
+        @Override
+        public User get(Long id) {
+            synchronized (cache) {
+                Entry entry = cache.get(id);
+                if (entry == null || entry.isExpired()) {
+                    if (entry != null) {
+                        cache.remove(id);
+                    }
+                    return null;
+                }
+                return entry.user;
+            }
+        }
+
+        @Override
+        public void put(Long id, User user) {
+            synchronized (cache) {
+                cache.put(id, new Entry(user));
+            }
+        }
+
+        private record Entry(User user, long timestamp) {
+            Entry(User user) {
+                this(user, System.currentTimeMillis());
+            }
+
+            boolean isExpired() {
+                return System.currentTimeMillis() - timestamp > TTL.toMillis();
+            }
+        }
+    }
+}
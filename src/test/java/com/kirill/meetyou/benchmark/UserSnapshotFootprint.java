@@ -0,0 +1,78 @@
+package com.kirill.meetyou.benchmark;
+
+import com.kirill.meetyou.dto.UserSnapshot;
+import com.kirill.meetyou.model.Interest;
+import com.kirill.meetyou.model.Message;
+import com.kirill.meetyou.model.Photo;
+import com.kirill.meetyou.model.User;
+import java.time.LocalDate;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Сравнение объёма памяти, удерживаемого записью UserCache: сущность User
+ * с загруженными коллекциями против {@link UserSnapshot}.
+ * Запуск: {@code java -cp <test-classpath> com.kirill.meetyou.benchmark.UserSnapshotFootprint}
+ */
+public final class UserSnapshotFootprint {
+    private static final int INTERESTS = 8;
+    private static final int FRIENDS = 20;
+    private static final int PHOTOS = 5;
+    private static final int MESSAGES = 50;
+
+    private UserSnapshotFootprint() {
+    }
+
+    public static void main(String[] args) {
+        User user = buildUserGraph();
+        UserSnapshot snapshot = UserSnapshot.from(user);
+
+        long entitySize = GraphLayout.parseInstance(user).totalSize();
+        long snapshotSize = GraphLayout.parseInstance(snapshot).totalSize();
+
+        System.out.printf("User entity graph: %,d bytes%n", entitySize);
+        System.out.printf("UserSnapshot:      %,d bytes%n", snapshotSize);
+        System.out.printf("Ratio:             %.1fx%n", (double) entitySize / snapshotSize);
+        System.out.println(GraphLayout.parseInstance(snapshot).toFootprint());
+    }
+
+    private static User buildUserGraph() {
+        User user = newUser(1L);
+        for (long i = 0; i < INTERESTS; i++) {
+            Interest interest = new Interest();
+            interest.setId(i);
+            interest.setInterestType("interest-" + i);
+            interest.getUsers().add(user);
+            user.getInterests().add(interest);
+        }
+        for (long i = 0; i < FRIENDS; i++) {
+            user.addFriend(newUser(100 + i));
+        }
+        for (long i = 0; i < PHOTOS; i++) {
+            Photo photo = new Photo();
+            photo.setId(i);
+            photo.setPhotoUrl("/photos/" + i + ".jpg");
+            photo.setUploadDate(LocalDate.now());
+            photo.setUser(user);
+            user.getPhotos().add(photo);
+        }
+        for (long i = 0; i < MESSAGES; i++) {
+            Message message = new Message();
+            message.setId(i);
+            message.setContent("message " + i);
+            message.setSender(user);
+            message.setReceiver(user);
+            user.getSentMessages().add(message);
+        }
+        return user;
+    }
+
+    private static User newUser(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setName("User " + id);
+        user.setEmail("user" + id + "@example.com");
+        user.setBirth(LocalDate.of(1995, 5, 15));
+        user.setAge(30);
+        return user;
+    }
+}
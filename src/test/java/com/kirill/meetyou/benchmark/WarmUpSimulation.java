@@ -0,0 +1,123 @@
+package com.kirill.meetyou.benchmark;
+
+import com.kirill.meetyou.cache.UserCache;
+import com.kirill.meetyou.config.CacheProperties;
+import com.kirill.meetyou.model.User;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+/**
+ * Сколько запросов нужно холодному и прогретому UserCache, чтобы выйти на
+ * установившуюся долю попаданий. Нагрузка - распределение Ципфа по 100 тыс.
+ * пользователей, кэш на 10 тыс. записей, доля попаданий считается окнами по
+ * 10 тыс. запросов. Вместо базы - генератор пользователей в памяти.
+ * Запуск: {@code java -cp <test-classpath> com.kirill.meetyou.benchmark.WarmUpSimulation}
+ */
+public final class WarmUpSimulation {
+    private static final int USERS = 100_000;
+    private static final int CACHE_SIZE = 10_000;
+    private static final int WINDOW = 10_000;
+    private static final int WINDOWS = 100;
+    private static final double ZIPF_EXPONENT = 0.99;
+
+    private WarmUpSimulation() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        double[] cdf = zipfCdf();
+        Path file = Files.createTempFile("user-cache-hot-keys", ".bin");
+        CacheProperties properties = properties(file);
+
+        // Предыдущий запуск: набираем статистику и сохраняем горячие id при остановке
+        UserCache previous = new UserCache(properties, Runnable::run);
+        run(previous, cdf, new SplittableRandom(1));
+        previous.cleanup();
+
+        UserCache cold = new UserCache(properties(null), Runnable::run);
+        double[] coldRates = run(cold, cdf, new SplittableRandom(2));
+        cold.cleanup();
+
+        UserCache warm = new UserCache(properties, Runnable::run);
+        long start = System.nanoTime();
+        int loaded = warm.warmUp(ids -> ids.stream().map(WarmUpSimulation::newUser).toList());
+        long warmUpMillis = (System.nanoTime() - start) / 1_000_000;
+        double[] warmRates = run(warm, cdf, new SplittableRandom(2));
+        warm.cleanup();
+        Files.deleteIfExists(file);
+
+        double steady = Arrays.stream(coldRates, WINDOWS - 10, WINDOWS).average().orElse(0);
+        System.out.printf("Steady-state hit rate:          %.3f%n", steady);
+        System.out.printf("Warm-up: %d users in %d ms%n", loaded, warmUpMillis);
+        report("cold", coldRates, steady);
+        report("warm", warmRates, steady);
+    }
+
+    private static CacheProperties properties(Path hotKeys) {
+        CacheProperties properties = new CacheProperties();
+        properties.setUsers(new CacheProperties.Spec(CACHE_SIZE, Duration.ofHours(1)));
+        if (hotKeys != null) {
+            properties.getWarmUp().setEnabled(true);
+            properties.getWarmUp().setFile(hotKeys);
+            properties.getWarmUp().setLimit(CACHE_SIZE);
+        }
+        return properties;
+    }
+
+    private static double[] run(UserCache cache, double[] cdf, SplittableRandom random) {
+        double[] rates = new double[WINDOWS];
+        for (int window = 0; window < WINDOWS; window++) {
+            long hitsBefore = cache.stats().hitCount();
+            for (int i = 0; i < WINDOW; i++) {
+                long id = nextId(cdf, random);
+                cache.getOrLoad(id, key -> Optional.of(newUser(key)));
+            }
+            rates[window] = (double) (cache.stats().hitCount() - hitsBefore) / WINDOW;
+        }
+        return rates;
+    }
+
+    private static void report(String name, double[] rates, double steady) {
+        int reached = WINDOWS;
+        long misses = 0;
+        for (int i = 0; i < WINDOWS; i++) {
+            if (reached == WINDOWS && rates[i] >= 0.95 * steady) {
+                reached = i;
+            }
+            misses += Math.round((1 - rates[i]) * WINDOW);
+        }
+        System.out.printf("%s: first window %.3f, 95%% of steady after %,d requests,"
+                + " DB loads in %,d requests: %,d%n", name, rates[0],
+                (long) reached * WINDOW, (long) WINDOWS * WINDOW, misses);
+    }
+
+    private static double[] zipfCdf() {
+        double[] cdf = new double[USERS];
+        double sum = 0;
+        for (int i = 0; i < USERS; i++) {
+            sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < USERS; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private static long nextId(double[] cdf, SplittableRandom random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return (index >= 0 ? index : -index - 1) + 1L;
+    }
+
+    private static User newUser(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setName("user-" + id);
+        user.setEmail("user-" + id + "@meetyou.com");
+        return user;
+    }
+}
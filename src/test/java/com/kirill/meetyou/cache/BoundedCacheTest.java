@@ -0,0 +1,228 @@
+package com.kirill.meetyou.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedCacheTest {
+
+    private AtomicLong time;
+    private BoundedCache<Long, String> cache;
+
+    @BeforeEach
+    void setUp() {
+        time = new AtomicLong();
+        cache = new BoundedCache<>(3, Duration.ofSeconds(10), time::get);
+    }
+
+    @Test
+    void getIfPresent_ShouldReturnStoredValue() {
+        cache.put(1L, "one");
+
+        assertEquals("one", cache.getIfPresent(1L));
+        assertNull(cache.getIfPresent(2L));
+    }
+
+    @Test
+    void put_ShouldKeepFrequentlyUsedEntriesDuringScan() {
+        BoundedCache<Long, String> sized = new BoundedCache<>(100, Duration.ofSeconds(10),
+                time::get);
+        for (long i = 0; i < 10; i++) {
+            sized.put(i, "hot" + i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (long i = 0; i < 10; i++) {
+                sized.getIfPresent(i);
+            }
+            sized.cleanUp();
+        }
+
+        // Однократный проход по большому числу ключей не должен вымыть горячие записи
+        for (long i = 1000; i < 2000; i++) {
+            sized.put(i, "cold" + i);
+        }
+
+        for (long i = 0; i < 10; i++) {
+            assertEquals("hot" + i, sized.getIfPresent(i));
+        }
+        assertEquals(100, sized.estimatedSize());
+    }
+
+    @Test
+    void put_ShouldEvictWhenMaximumSizeExceeded() {
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.put(3L, "three");
+        cache.put(4L, "four");
+
+        assertEquals(3, cache.estimatedSize());
+        assertEquals(1, cache.stats().evictionCount());
+    }
+
+    @Test
+    void stats_ShouldCountHitsAndMisses() {
+        cache.put(1L, "one");
+
+        cache.getIfPresent(1L);
+        cache.getIfPresent(1L);
+        cache.getIfPresent(2L);
+
+        CacheStats stats = cache.stats();
+        assertEquals(2, stats.hitCount());
+        assertEquals(1, stats.missCount());
+    }
+
+    @Test
+    void get_ShouldRecordLoadStatistics() {
+        cache.get(1L, key -> {
+            time.addAndGet(Duration.ofMillis(5).toNanos());
+            return "one";
+        });
+        assertThrows(IllegalStateException.class, () -> cache.get(2L, key -> {
+            throw new IllegalStateException("DB down");
+        }));
+
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.loadSuccessCount());
+        assertEquals(1, stats.loadFailureCount());
+        assertEquals(Duration.ofMillis(5).toNanos(), stats.totalLoadTimeNanos());
+        assertEquals(Duration.ofMillis(5).toNanos(), cache.loadLatency().maxNanos());
+    }
+
+    @Test
+    void getIfPresent_ShouldNotReturnExpiredEntry() {
+        cache.put(1L, "one");
+
+        time.addAndGet(Duration.ofSeconds(11).toNanos());
+
+        assertNull(cache.getIfPresent(1L));
+    }
+
+    @Test
+    void cleanUp_ShouldRemoveExpiredEntries() {
+        cache.put(1L, "one");
+        time.addAndGet(Duration.ofSeconds(5).toNanos());
+        cache.put(2L, "two");
+        time.addAndGet(Duration.ofSeconds(6).toNanos());
+
+        cache.cleanUp();
+
+        assertEquals(1, cache.estimatedSize());
+        assertEquals(1, cache.stats().expiredCount());
+        assertEquals("two", cache.getIfPresent(2L));
+    }
+
+    @Test
+    void get_ShouldServeStaleValueAndRefreshAfterThreshold() {
+        List<Runnable> refreshes = new ArrayList<>();
+        BoundedCache<Long, String> refreshing = new BoundedCache<>(10, Duration.ofSeconds(10),
+                Duration.ofSeconds(8), refreshes::add, time::get);
+        refreshing.put(1L, "old");
+        time.addAndGet(Duration.ofSeconds(9).toNanos());
+
+        // Запись близка к истечению: отдаём старое значение и планируем одну перезагрузку
+        assertEquals("old", refreshing.get(1L, key -> "new"));
+        assertEquals("old", refreshing.get(1L, key -> "new"));
+        assertEquals(1, refreshes.size());
+
+        refreshes.get(0).run();
+        time.addAndGet(Duration.ofSeconds(2).toNanos());
+
+        assertEquals("new", refreshing.getIfPresent(1L));
+    }
+
+    @Test
+    void get_ShouldNotOverwriteEntryUpdatedDuringRefresh() {
+        List<Runnable> refreshes = new ArrayList<>();
+        BoundedCache<Long, String> refreshing = new BoundedCache<>(10, Duration.ofSeconds(10),
+                Duration.ofSeconds(8), refreshes::add, time::get);
+        refreshing.put(1L, "old");
+        time.addAndGet(Duration.ofSeconds(9).toNanos());
+        refreshing.get(1L, key -> "reloaded");
+
+        refreshing.put(1L, "updated");
+        refreshes.get(0).run();
+
+        assertEquals("updated", refreshing.getIfPresent(1L));
+    }
+
+    @Test
+    void putIf_ShouldKeepCurrentValueWhenReplacementRejected() {
+        BoundedCache<Long, Long> versions = new BoundedCache<>(3, Duration.ofSeconds(10),
+                time::get);
+        versions.put(1L, 5L);
+
+        assertFalse(versions.putIf(1L, 4L, (current, candidate) -> candidate >= current));
+        assertTrue(versions.putIf(1L, 6L, (current, candidate) -> candidate >= current));
+        assertTrue(versions.putIf(2L, 1L, (current, candidate) -> false));
+
+        assertEquals(6L, versions.getIfPresent(1L));
+        assertEquals(1L, versions.getIfPresent(2L));
+    }
+
+    @Test
+    void get_ShouldKeepNewerValueWrittenDuringLoad() {
+        BoundedCache<Long, Long> versions = new BoundedCache<>(3, Duration.ofSeconds(10),
+                time::get);
+
+        Long loaded = versions.get(1L, key -> {
+            // Пока загрузчик читал версию 4, кто-то записал версию 5
+            versions.put(1L, 5L);
+            return 4L;
+        }, (current, candidate) -> candidate >= current);
+
+        assertEquals(5L, loaded);
+        assertEquals(5L, versions.getIfPresent(1L));
+    }
+
+    @Test
+    void invalidate_ShouldRemoveEntry() {
+        cache.put(1L, "one");
+
+        cache.invalidate(1L);
+
+        assertNull(cache.getIfPresent(1L));
+        assertEquals(0, cache.estimatedSize());
+    }
+
+    @Test
+    void concurrentAccess_ShouldRespectMaximumSize() throws Exception {
+        BoundedCache<Long, Long> shared = new BoundedCache<>(100, Duration.ofMinutes(1));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < 8; t++) {
+            long offset = t * 1000L;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (long i = 0; i < 10_000; i++) {
+                    long key = offset + (i % 500);
+                    if (shared.getIfPresent(key) == null) {
+                        shared.put(key, key);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        shared.cleanUp();
+        assertTrue(shared.estimatedSize() <= 100);
+    }
+}
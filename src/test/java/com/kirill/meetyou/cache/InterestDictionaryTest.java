@@ -0,0 +1,118 @@
+package com.kirill.meetyou.cache;
+
+import com.kirill.meetyou.cache.invalidation.LoopbackInvalidationBus;
+import com.kirill.meetyou.model.Interest;
+import com.kirill.meetyou.repository.InterestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InterestDictionaryTest {
+
+    @Mock
+    private InterestRepository interestRepository;
+
+    private InterestDictionary dictionary;
+
+    @BeforeEach
+    void setUp() {
+        dictionary = new InterestDictionary(interestRepository);
+    }
+
+    @Test
+    void load_ShouldAssignDenseCodesAndFindByNormalizedName() {
+        // Arrange
+        when(interestRepository.findAll()).thenReturn(List.of(
+                interest(10L, "Music"), interest(20L, "Chess")));
+
+        // Act
+        dictionary.load();
+
+        // Assert
+        assertEquals(new InterestDictionary.Entry(0, 10L, "Music"), dictionary.find("Music"));
+        assertEquals(new InterestDictionary.Entry(1, 20L, "Chess"),
+                dictionary.find(" ＣＨＥＳＳ "));
+        assertEquals(20L, dictionary.get(20L).id());
+        assertNull(dictionary.find("Cooking"));
+        assertNull(dictionary.find(null));
+    }
+
+    @Test
+    void find_ShouldFoldCaseIndependentlyOfLocale() {
+        // Arrange
+        dictionary.register(10L, "Straße");
+        dictionary.register(20L, "ΟΔΟΣ");
+
+        // Act & Assert
+        assertEquals(10L, dictionary.find("STRASSE").id());
+        assertEquals(10L, dictionary.find("strasse\u00a0").id());
+        assertEquals(20L, dictionary.find("οδος").id());
+        assertEquals(20L, dictionary.find("οδοσ").id());
+    }
+
+    @Test
+    void register_ShouldKeepCodeWhenInterestIsRenamed() {
+        // Arrange
+        int code = dictionary.register(10L, "Music").code();
+
+        // Act
+        InterestDictionary.Entry renamed = dictionary.register(10L, "Jazz");
+
+        // Assert
+        assertEquals(code, renamed.code());
+        assertSame(renamed, dictionary.find("jazz"));
+        assertNull(dictionary.find("music"));
+        assertEquals(code + 1, dictionary.register(11L, "Music").code());
+    }
+
+    @Test
+    void registerAfterCommit_ShouldRenameInterestOnOtherNodes() {
+        // Arrange
+        LoopbackInvalidationBus bus = new LoopbackInvalidationBus();
+        InterestDictionary nodeA = new InterestDictionary(interestRepository, bus);
+        InterestDictionary nodeB = new InterestDictionary(interestRepository, bus);
+        nodeA.register(10L, "Music");
+        int code = nodeB.register(10L, "Music").code();
+
+        // Act
+        nodeA.registerAfterCommit(10L, "Jazz");
+
+        // Assert
+        assertEquals(new InterestDictionary.Entry(code, 10L, "Jazz"), nodeB.find("jazz"));
+        assertNull(nodeB.find("music"));
+    }
+
+    @Test
+    void resolve_ShouldQueryDatabaseOnceOnMiss() {
+        // Arrange
+        when(interestRepository.findByInterestKey("chess"))
+                .thenReturn(Optional.of(interest(20L, "Chess")));
+        when(interestRepository.findByInterestKey("cooking")).thenReturn(Optional.empty());
+
+        // Act
+        InterestDictionary.Entry first = dictionary.resolve("Chess");
+        InterestDictionary.Entry second = dictionary.resolve("CHESS");
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(20L, first.id());
+        assertNull(dictionary.resolve("Cooking"));
+        verify(interestRepository, times(1)).findByInterestKey("chess");
+    }
+
+    private static Interest interest(Long id, String type) {
+        Interest interest = new Interest();
+        interest.setId(id);
+        interest.setInterestType(type);
+        return interest;
+    }
+}
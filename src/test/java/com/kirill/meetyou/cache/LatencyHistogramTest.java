@@ -0,0 +1,29 @@
+package com.kirill.meetyou.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentileNanos_ShouldStayWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        long p50 = histogram.percentileNanos(0.5);
+        long p99 = histogram.percentileNanos(0.99);
+
+        assertEquals(1000, histogram.count());
+        assertEquals(1_000_000, histogram.maxNanos());
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.25, "p50 = " + p50);
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000, "p99 = " + p99);
+    }
+
+    @Test
+    void percentileNanos_ShouldReturnZeroWhenEmpty() {
+        assertEquals(0, new LatencyHistogram().percentileNanos(0.99));
+    }
+}
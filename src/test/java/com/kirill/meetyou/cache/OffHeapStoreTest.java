@@ -0,0 +1,130 @@
+package com.kirill.meetyou.cache;
+
+import com.kirill.meetyou.dto.UserSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapStoreTest {
+
+    private AtomicLong time;
+    private OffHeapStore store;
+
+    @BeforeEach
+    void setUp() {
+        time = new AtomicLong();
+        // Один сегмент на 8 КБ - ровно 64 слота по 128 байт
+        store = new OffHeapStore(8 * 1024, 1, time::get);
+    }
+
+    @Test
+    void get_ShouldReturnStoredPayload() {
+        store.put(1L, new byte[] {1, 2, 3}, 1000);
+
+        assertArrayEquals(new byte[] {1, 2, 3}, store.get(1L));
+        assertNull(store.get(2L));
+        assertEquals(1, store.stats().hitCount());
+        assertEquals(1, store.stats().missCount());
+    }
+
+    @Test
+    void get_ShouldNotReturnExpiredPayload() {
+        store.put(1L, new byte[] {1}, 1000);
+        time.set(1000);
+
+        assertNull(store.get(1L));
+        assertEquals(0, store.size());
+        assertEquals(1, store.stats().expiredCount());
+    }
+
+    @Test
+    void put_ShouldEvictLeastRecentlyUsedWhenFull() {
+        for (long i = 0; i < 64; i++) {
+            store.put(i, new byte[] {(byte) i}, 1000);
+        }
+        store.get(0L);
+
+        store.put(64L, new byte[] {64}, 1000);
+
+        assertNotNull(store.get(0L));
+        assertNull(store.get(1L));
+        assertNotNull(store.get(64L));
+        assertEquals(1, store.stats().evictionCount());
+    }
+
+    @Test
+    void put_ShouldMoveOnePageToNewSlotSizeWhenFull() {
+        // 64 КБ - восемь страниц по 64 слота в 128 байт
+        OffHeapStore mixed = new OffHeapStore(64 * 1024, 1, time::get);
+        for (long i = 0; i < 512; i++) {
+            mixed.put(i, new byte[100], 1000);
+        }
+
+        mixed.put(1000L, new byte[200], 1000);
+        mixed.put(1001L, new byte[200], 1000);
+
+        // Вытеснена только страница самой давней записи, второй крупной записи
+        // хватило её свободного слота
+        assertNotNull(mixed.get(1000L));
+        assertNotNull(mixed.get(1001L));
+        assertNull(mixed.get(0L));
+        assertNotNull(mixed.get(64L));
+        assertEquals(512 - 64 + 2, mixed.size());
+        assertEquals(64, mixed.stats().evictionCount());
+        assertEquals(0, mixed.rejectedCount());
+    }
+
+    @Test
+    void put_ShouldEvictOnlyEntriesOfSameSlotSize() {
+        OffHeapStore mixed = new OffHeapStore(16 * 1024, 1, time::get);
+        mixed.put(1L, new byte[200], 1000);
+        for (long i = 2; i < 66; i++) {
+            mixed.put(i, new byte[100], 1000);
+        }
+        for (long i = 100; i < 131; i++) {
+            mixed.put(i, new byte[200], 1000);
+        }
+
+        mixed.put(200L, new byte[200], 1000);
+
+        assertNull(mixed.get(1L));
+        assertNotNull(mixed.get(2L));
+        assertNotNull(mixed.get(200L));
+        assertEquals(1, mixed.stats().evictionCount());
+    }
+
+    @Test
+    void put_ShouldRejectPayloadLargerThanSlot() {
+        store.put(1L, new byte[] {1}, 1000);
+
+        store.put(1L, new byte[9000], 1000);
+
+        assertNull(store.get(1L));
+        assertEquals(1, store.rejectedCount());
+    }
+
+    @Test
+    void codec_ShouldRoundTripSnapshot() {
+        UserSnapshot snapshot = new UserSnapshot(7L, 3L, "Иван", null,
+                LocalDate.of(2000, 1, 1), null,
+                new long[] {1L, 2L}, new String[] {"Music", "Спорт"});
+
+        UserSnapshot decoded = UserSnapshotCodec.decode(UserSnapshotCodec.encode(snapshot));
+
+        assertEquals(7L, decoded.id());
+        assertEquals(3L, decoded.version());
+        assertEquals("Иван", decoded.name());
+        assertNull(decoded.email());
+        assertEquals(LocalDate.of(2000, 1, 1), decoded.birth());
+        assertNull(decoded.age());
+        assertArrayEquals(new long[] {1L, 2L}, decoded.interestIds());
+        assertArrayEquals(new String[] {"Music", "Спорт"}, decoded.interestTypes());
+        // Хэш для ETag пересчитывается из полей и совпадает на любом узле
+        assertEquals(snapshot.etag(), decoded.etag());
+        assertEquals(snapshot.interestsEtag(), decoded.interestsEtag());
+    }
+}
@@ -0,0 +1,69 @@
+package com.kirill.meetyou.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+
+    private TimerWheel<Long, String> timerWheel;
+    private List<Long> expired;
+
+    @BeforeEach
+    void setUp() {
+        timerWheel = new TimerWheel<>(0L);
+        expired = new ArrayList<>();
+    }
+
+    @Test
+    void advance_ShouldExpireOnlyDueEntries() {
+        timerWheel.schedule(node(1L, Duration.ofSeconds(5)));
+        timerWheel.schedule(node(2L, Duration.ofSeconds(30)));
+
+        timerWheel.advance(Duration.ofSeconds(10).toNanos(), this::record);
+
+        assertEquals(List.of(1L), expired);
+    }
+
+    @Test
+    void advance_ShouldCascadeEntriesFromCoarseLevels() {
+        timerWheel.schedule(node(1L, Duration.ofHours(2)));
+        timerWheel.schedule(node(2L, Duration.ofDays(3)));
+
+        // Продвигаем по шагам, чтобы запись переехала на более мелкие уровни
+        for (long minute = 1; minute <= 125; minute++) {
+            timerWheel.advance(Duration.ofMinutes(minute).toNanos(), this::record);
+        }
+
+        assertEquals(List.of(1L), expired);
+
+        timerWheel.advance(Duration.ofDays(4).toNanos(), this::record);
+        assertEquals(List.of(1L, 2L), expired);
+    }
+
+    @Test
+    void deschedule_ShouldPreventExpiration() {
+        CacheNode<Long, String> node = node(1L, Duration.ofSeconds(5));
+        timerWheel.schedule(node);
+
+        timerWheel.deschedule(node);
+        timerWheel.advance(Duration.ofSeconds(10).toNanos(), this::record);
+
+        assertTrue(expired.isEmpty());
+        assertFalse(node.isScheduled());
+    }
+
+    private boolean record(CacheNode<Long, String> node) {
+        expired.add(node.key);
+        return true;
+    }
+
+    private static CacheNode<Long, String> node(long key, Duration ttl) {
+        return new CacheNode<>(key, "value" + key, 0L, ttl.toNanos());
+    }
+}
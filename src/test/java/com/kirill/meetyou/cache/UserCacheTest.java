@@ -0,0 +1,276 @@
+package com.kirill.meetyou.cache;
+
+import com.kirill.meetyou.cache.invalidation.LoopbackInvalidationBus;
+import com.kirill.meetyou.config.CacheProperties;
+import com.kirill.meetyou.dto.UserSnapshot;
+import com.kirill.meetyou.model.Interest;
+import com.kirill.meetyou.model.User;
+import com.kirill.meetyou.repository.UserRepository;
+import com.kirill.meetyou.utils.AfterCommit;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserCacheTest {
+    private static final int THREADS = 16;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserCache userCache;
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        userCache = new UserCache(new CacheProperties(), Runnable::run);
+
+        testUser = new User();
+        testUser.setId(1L);
+        testUser.setName("John Doe");
+        testUser.setEmail("john@example.com");
+        testUser.setBirth(LocalDate.of(1990, 1, 1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        userCache.cleanup();
+    }
+
+    @Test
+    void getOrLoad_ConcurrentMisses_ShouldHitRepositoryOnce() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findById(1L)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(testUser);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<UserSnapshot>>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return userCache.getOrLoad(1L, userRepository::findById);
+            }));
+        }
+
+        start.countDown();
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        // Даём остальным потокам дойти до ожидания загрузки
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<Optional<UserSnapshot>> future : futures) {
+            Optional<UserSnapshot> result = future.get(5, TimeUnit.SECONDS);
+            assertTrue(result.isPresent());
+            assertEquals("john@example.com", result.get().email());
+        }
+        executor.shutdown();
+
+        verify(userRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void getOrLoad_ShouldRememberMissingUser() {
+        when(userRepository.findById(2L)).thenReturn(Optional.empty());
+
+        assertTrue(userCache.getOrLoad(2L, userRepository::findById).isEmpty());
+        assertTrue(userCache.getOrLoad(2L, userRepository::findById).isEmpty());
+
+        verify(userRepository, times(1)).findById(2L);
+        assertNull(userCache.get(2L));
+    }
+
+    @Test
+    void put_ShouldForgetMissingUserAndFreeEmail() {
+        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userRepository.findByEmail("john@example.com")).thenReturn(Optional.empty());
+        userCache.getOrLoad(1L, userRepository::findById);
+        assertFalse(userCache.isEmailTaken("john@example.com",
+                email -> userRepository.findByEmail(email).isPresent()));
+
+        userCache.put(1L, testUser);
+
+        assertTrue(userCache.getOrLoad(1L, userRepository::findById).isPresent());
+        assertTrue(userCache.isEmailTaken("john@example.com", email -> true));
+    }
+
+    @Test
+    void isEmailTaken_ShouldRememberFreeEmail() {
+        when(userRepository.findByEmail("free@example.com")).thenReturn(Optional.empty());
+
+        assertFalse(userCache.isEmailTaken("free@example.com",
+                email -> userRepository.findByEmail(email).isPresent()));
+        assertFalse(userCache.isEmailTaken("free@example.com",
+                email -> userRepository.findByEmail(email).isPresent()));
+
+        verify(userRepository, times(1)).findByEmail("free@example.com");
+    }
+
+    @Test
+    void forgetMissing_ShouldWaitForCommit() {
+        when(userRepository.findByEmail("john@example.com")).thenReturn(Optional.empty());
+        assertFalse(userCache.isEmailTaken("john@example.com",
+                email -> userRepository.findByEmail(email).isPresent()));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userCache.forgetMissing(List.of(1L), List.of("john@example.com"));
+            // До коммита email всё ещё считается свободным
+            assertFalse(userCache.isEmailTaken("john@example.com", email -> true));
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(userCache.isEmailTaken("john@example.com", email -> true));
+    }
+
+    @Test
+    void get_ShouldReturnInterestsInIdOrder() {
+        for (long id : new long[] {30L, 10L, 20L}) {
+            Interest interest = new Interest();
+            interest.setId(id);
+            interest.setInterestType("Interest " + id);
+            testUser.getInterests().add(interest);
+        }
+
+        userCache.put(1L, testUser);
+
+        List<Long> ids = new ArrayList<>();
+        userCache.get(1L).toUser().getInterests().forEach(interest -> ids.add(interest.getId()));
+        assertEquals(List.of(10L, 20L, 30L), ids);
+    }
+
+    @Test
+    void getOrLoad_ShouldPropagateLoaderFailure() {
+        when(userRepository.findById(3L)).thenThrow(new IllegalStateException("DB down"));
+
+        assertThrows(IllegalStateException.class,
+                () -> userCache.getOrLoad(3L, userRepository::findById));
+        assertNull(userCache.get(3L));
+    }
+
+    @Test
+    void metrics_ShouldExposeHitsMissesAndLoads() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        MeterRegistry registry = new SimpleMeterRegistry();
+        new UserCacheMetrics(userCache).bindTo(registry);
+
+        userCache.getOrLoad(1L, userRepository::findById);
+        userCache.getOrLoad(1L, userRepository::findById);
+
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "miss")
+                .functionCounter().count());
+        assertEquals(1.0, registry.get("cache.load").tag("result", "success")
+                .functionCounter().count());
+        assertEquals(1.0, registry.get("cache.size").gauge().value());
+    }
+
+    @Test
+    void put_ShouldInvalidateEntryOnOtherNodes() {
+        LoopbackInvalidationBus bus = new LoopbackInvalidationBus();
+        UserCache nodeA = new UserCache(new CacheProperties(), Runnable::run, bus);
+        UserCache nodeB = new UserCache(new CacheProperties(), Runnable::run, bus);
+        try {
+            nodeA.put(1L, testUser);
+            nodeB.put(1L, testUser);
+            testUser.setName("Jane Doe");
+
+            nodeA.put(1L, testUser);
+
+            assertEquals("Jane Doe", nodeA.get(1L).name());
+            assertNull(nodeB.get(1L));
+        } finally {
+            nodeA.cleanup();
+            nodeB.cleanup();
+        }
+    }
+
+    @Test
+    void removeAll_DeferredAfterCommit_ShouldStillReachOtherNodes() {
+        LoopbackInvalidationBus bus = new LoopbackInvalidationBus();
+        UserCache nodeA = new UserCache(new CacheProperties(), Runnable::run, bus);
+        UserCache nodeB = new UserCache(new CacheProperties(), Runnable::run, bus);
+        try {
+            nodeB.put(1L, testUser);
+
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                AfterCommit.run(() -> nodeA.removeAll(List.of(1L)));
+                assertNotNull(nodeB.get(1L));
+
+                // Событие регистрируется уже во время afterCommit
+                TransactionSynchronizationManager.getSynchronizations()
+                        .forEach(TransactionSynchronization::afterCommit);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+
+            assertNull(nodeB.get(1L));
+        } finally {
+            nodeA.cleanup();
+            nodeB.cleanup();
+        }
+    }
+
+    @Test
+    void warmUp_ShouldLoadHotKeysSavedOnShutdown(@TempDir Path dir) {
+        CacheProperties properties = new CacheProperties();
+        properties.getWarmUp().setEnabled(true);
+        properties.getWarmUp().setFile(dir.resolve("hot-keys.bin"));
+        properties.getWarmUp().setBatchSize(2);
+        UserCache previous = new UserCache(properties, Runnable::run);
+        for (long id = 1; id <= 3; id++) {
+            User user = new User();
+            user.setId(id);
+            previous.put(id, user);
+        }
+        previous.cleanup();
+
+        UserCache restarted = new UserCache(properties, Runnable::run);
+        List<List<Long>> batches = new ArrayList<>();
+        int loaded = restarted.warmUp(ids -> {
+            batches.add(List.copyOf(ids));
+            return ids.stream().map(id -> {
+                User user = new User();
+                user.setId(id);
+                return user;
+            }).toList();
+        });
+
+        assertEquals(3, loaded);
+        assertEquals(2, batches.size());
+        assertNotNull(restarted.get(1L));
+        restarted.cleanup();
+    }
+}
@@ -0,0 +1,44 @@
+package com.kirill.meetyou.cache.invalidation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvalidationEventTest {
+
+    @Test
+    void fromPayload_ShouldRestoreEventWithColonInEmail() {
+        InvalidationEvent event = new InvalidationEvent("node-1", 42L, "a:b@example.com");
+
+        InvalidationEvent restored = InvalidationEvent.fromPayload(event.toPayload());
+
+        assertEquals(event, restored);
+    }
+
+    @Test
+    void fromPayload_ShouldRestoreInvalidateAllEvent() {
+        InvalidationEvent restored = InvalidationEvent.fromPayload(
+                InvalidationEvent.all("node-1").toPayload());
+
+        assertTrue(restored.isAll());
+        assertEquals("node-1", restored.origin());
+        assertNull(restored.email());
+    }
+
+    @Test
+    void fromPayload_ShouldRestoreInterestEvent() {
+        InvalidationEvent event = InvalidationEvent.interest("node-1", 7L, "Jazz: bebop");
+
+        InvalidationEvent restored = InvalidationEvent.fromPayload(event.toPayload());
+
+        assertEquals(event, restored);
+        assertTrue(restored.isInterest());
+        assertFalse(restored.isAll());
+    }
+
+    @Test
+    void fromPayload_ShouldRejectMalformedPayload() {
+        assertThrows(IllegalArgumentException.class,
+                () -> InvalidationEvent.fromPayload("garbage"));
+    }
+}
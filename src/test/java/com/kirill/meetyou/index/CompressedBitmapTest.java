@@ -0,0 +1,91 @@
+package com.kirill.meetyou.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedBitmapTest {
+
+    @Test
+    void add_ShouldKeepValuesSortedAcrossContainers() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+
+        assertTrue(bitmap.add(70_000L));
+        assertTrue(bitmap.add(5L));
+        assertTrue(bitmap.add(CompressedBitmap.MAX_VALUE));
+        assertFalse(bitmap.add(5L));
+
+        assertArrayEquals(new long[] {5L, 70_000L, CompressedBitmap.MAX_VALUE}, bitmap.toArray());
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1L));
+    }
+
+    @Test
+    void remove_ShouldSwitchBetweenSparseAndDenseContainers() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        // 5000 значений в одном контейнере - больше порога разреженного вида
+        for (long i = 0; i < 5000; i++) {
+            bitmap.add(i * 13);
+        }
+        for (long i = 0; i < 4000; i++) {
+            assertTrue(bitmap.remove(i * 13));
+        }
+
+        assertEquals(1000, bitmap.cardinality());
+        assertTrue(bitmap.contains(4000 * 13));
+        assertFalse(bitmap.contains(13));
+        for (long i = 4000; i < 5000; i++) {
+            bitmap.remove(i * 13);
+        }
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    void andOr_ShouldMatchSetOperations() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            // Чередуем плотные и разреженные наборы, чтобы пройти все пары контейнеров
+            CompressedBitmap left = new CompressedBitmap();
+            CompressedBitmap right = new CompressedBitmap();
+            TreeSet<Long> leftSet = new TreeSet<>();
+            TreeSet<Long> rightSet = new TreeSet<>();
+            fill(random, left, leftSet, round % 2 == 0 ? 20_000 : 500);
+            fill(random, right, rightSet, round % 3 == 0 ? 20_000 : 3_000);
+
+            TreeSet<Long> expectedAnd = new TreeSet<>(leftSet);
+            expectedAnd.retainAll(rightSet);
+            TreeSet<Long> expectedOr = new TreeSet<>(leftSet);
+            expectedOr.addAll(rightSet);
+
+            assertArrayEquals(toArray(expectedAnd), CompressedBitmap.and(left, right).toArray());
+            assertArrayEquals(toArray(expectedOr), CompressedBitmap.or(left, right).toArray());
+        }
+    }
+
+    @Test
+    void or_ShouldNotShareContainersWithArguments() {
+        CompressedBitmap left = new CompressedBitmap();
+        left.add(1L);
+        CompressedBitmap result = CompressedBitmap.or(left, new CompressedBitmap());
+
+        left.add(2L);
+
+        assertArrayEquals(new long[] {1L}, result.toArray());
+    }
+
+    private static void fill(Random random, CompressedBitmap bitmap, TreeSet<Long> set,
+                             int count) {
+        for (int i = 0; i < count; i++) {
+            // Три соседних контейнера
+            long value = random.nextInt(3 * 65_536);
+            bitmap.add(value);
+            set.add(value);
+        }
+    }
+
+    private static long[] toArray(TreeSet<Long> set) {
+        return set.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,175 @@
+package com.kirill.meetyou.index;
+
+import com.kirill.meetyou.cache.InterestDictionary;
+import com.kirill.meetyou.cache.UserCache;
+import com.kirill.meetyou.cache.invalidation.InvalidationEvent;
+import com.kirill.meetyou.cache.invalidation.LoopbackInvalidationBus;
+import com.kirill.meetyou.repository.UserInterestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InterestIndexTest {
+
+    @Mock
+    private UserInterestRepository userInterestRepository;
+
+    @Mock
+    private UserCache userCache;
+
+    private LoopbackInvalidationBus bus;
+    private InterestDictionary dictionary;
+    private InterestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        bus = new LoopbackInvalidationBus();
+        dictionary = new InterestDictionary(null);
+        index = new InterestIndex(userInterestRepository, dictionary, userCache, Runnable::run,
+                bus);
+    }
+
+    @Test
+    void find_ShouldReturnNullUntilBuilt() {
+        // Act & Assert
+        assertFalse(index.isReady());
+        assertNull(index.findUsersWithAll(0));
+        assertNull(index.findUsersWithAny(0));
+    }
+
+    @Test
+    void find_ShouldIntersectAndUniteBitmaps() {
+        // Arrange
+        build();
+        dictionary.register(12L, "Cooking");
+
+        // Act & Assert
+        assertArrayEquals(new long[] {1L, 3L}, index.findUsersWithAll(codes("MUSIC", "chess")));
+        assertArrayEquals(new long[] {1L, 2L, 3L},
+                index.findUsersWithAny(codes("music", "Chess")));
+        assertArrayEquals(new long[0], index.findUsersWithAll(codes("Music", "Cooking")));
+    }
+
+    @Test
+    void writes_ShouldUpdateIndexWithoutRebuild() {
+        // Arrange
+        build();
+
+        // Act
+        index.add(2L, 11L);
+        index.remove(1L, 10L);
+
+        // Assert
+        assertArrayEquals(new long[] {2L, 3L}, index.findUsersWithAll(codes("music", "chess")));
+        assertArrayEquals(new long[] {1L, 2L, 3L}, index.findUsersWithAny(codes("Chess")));
+    }
+
+    @Test
+    void onInvalidation_ShouldReloadUserChangedOnAnotherNode() {
+        // Arrange
+        build();
+        when(userCache.nodeId()).thenReturn("local");
+        when(userInterestRepository.findInterestsOfUser(2L))
+                .thenReturn(List.of(Map.entry(11L, "Chess")));
+
+        // Act
+        bus.publish(new InvalidationEvent("remote", 2L, null));
+
+        // Assert
+        assertArrayEquals(new long[] {1L, 2L, 3L}, index.findUsersWithAll(codes("chess")));
+        assertArrayEquals(new long[] {1L, 3L}, index.findUsersWithAny(codes("music")));
+    }
+
+    @Test
+    void findBestMatches_ShouldRankByJaccardAndSkipSelf() {
+        // Arrange
+        build();
+
+        // Act
+        List<InterestMatch> matches = index.findBestMatches(1L, 5);
+
+        // Assert
+        assertEquals(List.of(new InterestMatch(3L, 2, 2), new InterestMatch(2L, 1, 2)), matches);
+        assertEquals(List.of(new InterestMatch(3L, 2, 2)), index.findBestMatches(1L, 1));
+        assertEquals(List.of(), index.findBestMatches(42L, 5));
+    }
+
+    @Test
+    void findBestMatches_ShouldMatchBruteForceAcrossParallelChunks() {
+        // Arrange: кандидатов больше одной порции параллельной оценки
+        Random random = new Random(7);
+        Map<Long, long[]> interests = new HashMap<>();
+        Map<Long, String> types = new HashMap<>();
+        for (long userId = 1; userId <= 40_000; userId++) {
+            interests.put(userId, random.longs(1 + random.nextInt(6), 0, 40)
+                    .distinct().sorted().toArray());
+        }
+        for (long interestId = 0; interestId < 40; interestId++) {
+            types.put(interestId, "interest-" + interestId);
+        }
+        when(userInterestRepository.findAllInterestTypes()).thenReturn(types);
+        doAnswer(invocation -> {
+            UserInterestRepository.LinkConsumer consumer = invocation.getArgument(0);
+            interests.forEach((userId, ids) -> {
+                for (long interestId : ids) {
+                    consumer.accept(userId, interestId);
+                }
+            });
+            return null;
+        }).when(userInterestRepository).forEachLink(any());
+        index.rebuild();
+
+        // Act
+        List<InterestMatch> matches = index.findBestMatches(1L, 10);
+
+        // Assert
+        long[] own = interests.get(1L);
+        List<InterestMatch> expected = new ArrayList<>();
+        interests.forEach((userId, ids) -> {
+            int shared = (int) Arrays.stream(ids)
+                    .filter(id -> Arrays.binarySearch(own, id) >= 0).count();
+            if (userId != 1L && shared > 0) {
+                expected.add(new InterestMatch(userId, shared, own.length + ids.length - shared));
+            }
+        });
+        expected.sort(Comparator.comparingDouble(InterestMatch::score).reversed()
+                .thenComparing(Comparator.comparingInt(InterestMatch::shared).reversed())
+                .thenComparingLong(InterestMatch::userId));
+        assertEquals(expected.subList(0, 10), matches);
+    }
+
+    private int[] codes(String... interestTypes) {
+        return Arrays.stream(interestTypes).mapToInt(type -> dictionary.find(type).code())
+                .toArray();
+    }
+
+    private void build() {
+        when(userInterestRepository.findAllInterestTypes())
+                .thenReturn(Map.of(10L, "Music", 11L, "Chess"));
+        doAnswer(invocation -> {
+            UserInterestRepository.LinkConsumer consumer = invocation.getArgument(0);
+            consumer.accept(1L, 10L);
+            consumer.accept(1L, 11L);
+            consumer.accept(2L, 10L);
+            consumer.accept(3L, 10L);
+            consumer.accept(3L, 11L);
+            return null;
+        }).when(userInterestRepository).forEachLink(any());
+        index.rebuild();
+    }
+}
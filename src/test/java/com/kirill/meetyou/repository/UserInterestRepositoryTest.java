@@ -0,0 +1,123 @@
+package com.kirill.meetyou.repository;
+
+import com.kirill.meetyou.model.Interest;
+import com.kirill.meetyou.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Пакетная запись связей для массового назначения интересов
+@DataJpaTest
+@TestPropertySource(properties = {
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+class UserInterestRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UserInterestRepository userInterestRepository;
+    private UserBulkRepository userBulkRepository;
+    private User first;
+    private User second;
+    private Interest music;
+    private Interest chess;
+
+    @BeforeEach
+    void setUp() {
+        userInterestRepository = new UserInterestRepository(jdbcTemplate);
+        userBulkRepository = new UserBulkRepository(jdbcTemplate);
+        music = interest("Music");
+        chess = interest("Chess");
+        first = user("first@mail.com", music, chess);
+        second = user("second@mail.com");
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findInterestIdsByUserIds_ShouldReturnEmptySetForUserWithoutInterests() {
+        // Act
+        Map<Long, Set<Long>> interests = userInterestRepository.findInterestIdsByUserIds(
+                List.of(first.getId(), second.getId()));
+
+        // Assert
+        assertEquals(Map.of(first.getId(), Set.of(music.getId(), chess.getId()),
+                second.getId(), Set.of()), interests);
+    }
+
+    @Test
+    void findUserIdsByInterestId_ShouldReturnHolders() {
+        // Act
+        userInterestRepository.insertLinks(List.of(
+                new UserInterestRepository.Link(second.getId(), music.getId())));
+
+        // Assert
+        assertEquals(Set.of(first.getId(), second.getId()), Set.copyOf(
+                userInterestRepository.findUserIdsByInterestId(music.getId())));
+        assertEquals(List.of(first.getId()),
+                userInterestRepository.findUserIdsByInterestId(chess.getId()));
+    }
+
+    @Test
+    void insertAndDeleteLinks_ShouldApplyBatches() {
+        // Act
+        userInterestRepository.deleteLinks(List.of(
+                new UserInterestRepository.Link(first.getId(), chess.getId())));
+        userInterestRepository.insertLinks(List.of(
+                new UserInterestRepository.Link(second.getId(), music.getId()),
+                new UserInterestRepository.Link(second.getId(), chess.getId())));
+
+        // Assert
+        Map<Long, Set<Long>> interests = userInterestRepository.findInterestIdsByUserIds(
+                List.of(first.getId(), second.getId()));
+        assertEquals(Set.of(music.getId()), interests.get(first.getId()));
+        assertEquals(Set.of(music.getId(), chess.getId()), interests.get(second.getId()));
+    }
+
+    @Test
+    void lockExistingAndIncrementVersions_ShouldTouchOnlyExistingUsers() {
+        // Act
+        Set<Long> existing = userBulkRepository.lockExisting(
+                List.of(first.getId(), second.getId(), 999_999L));
+        userBulkRepository.incrementVersions(List.of(first.getId()));
+
+        // Assert
+        assertEquals(Set.of(first.getId(), second.getId()), existing);
+        assertEquals(first.getVersion() + 1, entityManager.find(User.class, first.getId())
+                .getVersion());
+        assertEquals(second.getVersion(), entityManager.find(User.class, second.getId())
+                .getVersion());
+    }
+
+    private Interest interest(String type) {
+        Interest interest = new Interest();
+        interest.setInterestType(type);
+        return entityManager.persist(interest);
+    }
+
+    private User user(String email, Interest... interests) {
+        User user = new User();
+        user.setName("User");
+        user.setEmail(email);
+        user.setBirth(LocalDate.of(1990, 1, 1));
+        user.getInterests().addAll(List.of(interests));
+        return entityManager.persist(user);
+    }
+}
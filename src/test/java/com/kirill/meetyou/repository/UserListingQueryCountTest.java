@@ -0,0 +1,160 @@
+package com.kirill.meetyou.repository;
+
+import com.kirill.meetyou.cache.InterestDictionary;
+import com.kirill.meetyou.cache.UserCache;
+import com.kirill.meetyou.cache.invalidation.LoopbackInvalidationBus;
+import com.kirill.meetyou.dto.UserSummary;
+import com.kirill.meetyou.index.InterestIndex;
+import com.kirill.meetyou.model.Interest;
+import com.kirill.meetyou.model.User;
+import com.kirill.meetyou.service.UserService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Число SQL-запросов на списки не должно зависеть от числа пользователей в ответе
+@DataJpaTest
+@TestPropertySource(properties = {
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class UserListingQueryCountTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private InterestRepository interestRepository;
+
+    private Statistics statistics;
+    private InterestDictionary dictionary;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        dictionary = new InterestDictionary(interestRepository);
+        userService = new UserService(userRepository, mock(UserCache.class),
+                mock(UserBulkRepository.class), transactionManager, mock(InterestIndex.class),
+                dictionary);
+
+        Interest music = interest("Music");
+        Interest chess = interest("Chess");
+        for (int i = 0; i < 30; i++) {
+            User user = new User();
+            user.setName("User " + i);
+            user.setEmail("user" + i + "@mail.com");
+            user.setBirth(LocalDate.of(1990, 1, 1).plusDays(i));
+            user.getInterests().add(music);
+            if (i % 2 == 0) {
+                user.getInterests().add(chess);
+            }
+            entityManager.persist(user);
+        }
+        entityManager.flush();
+        dictionary.load();
+    }
+
+    @Test
+    void findPage_ShouldUseSameNumberOfStatementsForAnyPageSize() {
+        // Act
+        long small = statementsFor(() -> userService.findPage(null, 3));
+        long large = statementsFor(() -> userService.findPage(null, 30));
+        List<UserSummary> page = userService.findPage(null, 30).getItems();
+
+        // Assert
+        assertEquals(2, small);
+        assertEquals(small, large);
+        assertEquals(30, page.size());
+        assertEquals(2, page.get(0).interests().size());
+    }
+
+    @Test
+    void interestSearches_ShouldUseTwoStatements() {
+        // Act & Assert
+        assertEquals(2, statementsFor(() -> userService.findByInterest("music")));
+        assertEquals(2, statementsFor(() -> userService.findByAnyInterest(Set.of("CHESS"))));
+        assertEquals(2, statementsFor(() -> userService.findByAllInterests(
+                Set.of("music", "chess"))));
+        assertEquals(15, userService.findByAllInterests(Set.of("Music", "Chess")).size());
+        // Полноширинные буквы и пробелы по краям сводятся к тому же interest_key
+        assertEquals(30, userService.findByInterest(" \uFF2D\uFF35\uFF33\uFF29\uFF23 ").size());
+        // Неизвестное название - один запрос по ключу, до поиска пользователей не доходит
+        assertEquals(1, statementsFor(() -> userService.findByInterest("Cooking")));
+    }
+
+    @Test
+    void interestSearches_ShouldOnlyLoadMatchesWhenIndexIsReady() {
+        // Arrange
+        InterestIndex index = new InterestIndex(new UserInterestRepository(jdbcTemplate),
+                dictionary, mock(UserCache.class), Runnable::run, new LoopbackInvalidationBus());
+        index.rebuild();
+        userService = new UserService(userRepository, mock(UserCache.class),
+                mock(UserBulkRepository.class), transactionManager, index, dictionary);
+
+        // Act & Assert
+        assertEquals(2, statementsFor(() -> userService.findByAllInterests(
+                Set.of("music", "chess"))));
+        assertEquals(15, userService.findByAllInterests(Set.of("Music", "Chess")).size());
+        assertEquals(30, userService.findByAnyInterest(Set.of("CHESS", "music")).size());
+        assertTrue(userService.findByInterest("Cooking").isEmpty());
+    }
+
+    @Test
+    void streamAll_ShouldLoadInterestsPerBatchNotPerUser() {
+        // Arrange
+        List<UserSummary> streamed = new ArrayList<>();
+
+        // Act
+        long statements = statementsFor(() -> {
+            userService.streamAll(streamed::add);
+            return streamed;
+        });
+
+        // Assert
+        assertEquals(2, statements);
+        assertEquals(30, streamed.size());
+    }
+
+    private long statementsFor(Supplier<?> request) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        request.get();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Interest interest(String type) {
+        Interest interest = new Interest();
+        interest.setInterestType(type);
+        return entityManager.persist(interest);
+    }
+}
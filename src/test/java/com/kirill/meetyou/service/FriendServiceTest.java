@@ -1,5 +1,6 @@
 package com.kirill.meetyou.service;
 
+import com.kirill.meetyou.model.User;
 import com.kirill.meetyou.repository.FriendRepository;
 import com.kirill.meetyou.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
@@ -0,0 +1,112 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.model.User;
+import com.kirill.meetyou.repository.UserInterestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Ключи интересов после V004 считает приложение, а не SQL
+@DataJpaTest
+@TestPropertySource(properties = {
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+class InterestKeyBackfillTest {
+    // Заведомо выше id, выданных последовательностью
+    private static final long STRASSE = 900_000_001L;
+    private static final long STRASSE_UPPER = 900_000_002L;
+    private static final long CHESS = 900_000_003L;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private InterestKeyBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        backfill = new InterestKeyBackfill(jdbcTemplate, transactionManager);
+    }
+
+    @Test
+    void backfill_ShouldWriteKeysAndMergeInterestsWithSameKey() {
+        // Arrange: временные ключи, как их оставляет V004
+        insertInterest(STRASSE, "Straße");
+        insertInterest(STRASSE_UPPER, " STRASSE");
+        insertInterest(CHESS, "Chess");
+        User first = user("first@mail.com");
+        User second = user("second@mail.com");
+        UserInterestRepository links = new UserInterestRepository(jdbcTemplate);
+        links.insertLinks(List.of(
+                new UserInterestRepository.Link(first.getId(), STRASSE),
+                new UserInterestRepository.Link(first.getId(), STRASSE_UPPER),
+                new UserInterestRepository.Link(second.getId(), STRASSE_UPPER),
+                new UserInterestRepository.Link(second.getId(), CHESS)));
+
+        // Act
+        backfill.backfill();
+
+        // Assert
+        assertEquals(Map.of(STRASSE, "strasse", CHESS, "chess"), keys());
+        assertEquals(Map.of(first.getId(), Set.of(STRASSE),
+                        second.getId(), Set.of(STRASSE, CHESS)),
+                links.findInterestIdsByUserIds(List.of(first.getId(), second.getId())));
+    }
+
+    @Test
+    void backfill_ShouldKeepCurrentKeys() {
+        // Arrange
+        jdbcTemplate.update("INSERT INTO interests (id, interest_type, interest_key)"
+                + " VALUES (?, ?, ?)", CHESS, "Chess", "chess");
+
+        // Act
+        backfill.backfill();
+
+        // Assert
+        assertEquals(Map.of(CHESS, "chess"), keys());
+    }
+
+    private void insertInterest(long id, String type) {
+        jdbcTemplate.update("INSERT INTO interests (id, interest_type, interest_key)"
+                + " VALUES (?, ?, ?)", id, type, " " + id);
+    }
+
+    private Map<Long, String> keys() {
+        Map<Long, String> keys = new HashMap<>();
+        jdbcTemplate.query("SELECT id, interest_key FROM interests",
+                (RowCallbackHandler) resultSet ->
+                        keys.put(resultSet.getLong(1), resultSet.getString(2)));
+        return keys;
+    }
+
+    private User user(String email) {
+        User user = new User();
+        user.setName("User");
+        user.setEmail(email);
+        user.setBirth(LocalDate.of(1990, 1, 1));
+        User saved = entityManager.persist(user);
+        entityManager.flush();
+        return saved;
+    }
+}
@@ -1,8 +1,16 @@
 package com.kirill.meetyou.service;
 
+import com.kirill.meetyou.cache.InterestDictionary;
 import com.kirill.meetyou.cache.UserCache;
+import com.kirill.meetyou.dto.InterestAssignment;
+import com.kirill.meetyou.dto.InterestAssignmentResult;
+import com.kirill.meetyou.index.InterestIndex;
 import com.kirill.meetyou.model.Interest;
+import com.kirill.meetyou.model.User;
+import com.kirill.meetyou.repository.InterestBulkRepository;
 import com.kirill.meetyou.repository.InterestRepository;
+import com.kirill.meetyou.repository.UserBulkRepository;
+import com.kirill.meetyou.repository.UserInterestRepository;
 import com.kirill.meetyou.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,10 +19,15 @@ import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -36,12 +49,28 @@ class InterestServiceTest {
     @Mock
     private UserCache userCache;
 
+    @Mock
+    private InterestIndex interestIndex;
+
+    @Mock
+    private InterestDictionary interestDictionary;
+
+    @Mock
+    private UserInterestRepository userInterestRepository;
+
+    @Mock
+    private UserBulkRepository userBulkRepository;
+
+    @Mock
+    private InterestBulkRepository interestBulkRepository;
+
     @InjectMocks
     private InterestService interestService;
 
     private User testUser;
     private Interest existingInterest;
     private Interest newInterest;
+    private InterestDictionary.Entry existingEntry;
 
     @BeforeEach
     void setUp() {
@@ -56,33 +85,37 @@ class InterestServiceTest {
         newInterest = new Interest();
         newInterest.setId(2L);
         newInterest.setInterestType("Music");
+        existingEntry = new InterestDictionary.Entry(0, 1L, "Sports");
     }
 
     @Test
     void addInterestToUser_NewInterest_Success() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(testUser));
-        when(interestRepository.findByInterestType(anyString())).thenReturn(Optional.empty());
-        when(interestRepository.existsByInterestType(anyString())).thenReturn(false);
-        when(interestRepository.save(any(Interest.class))).thenReturn(newInterest);
+        when(interestDictionary.resolve("Music")).thenReturn(null);
+        when(interestRepository.saveAndFlush(any(Interest.class))).thenReturn(newInterest);
         when(userRepository.save(any(User.class))).thenReturn(testUser);
 
         interestService.addInterestToUser(1L, "Music");
 
-        verify(interestRepository).save(any(Interest.class));
+        verify(interestRepository).saveAndFlush(any(Interest.class));
+        verify(interestDictionary).registerAfterCommit(2L, "Music");
         verify(userRepository).save(testUser);
         verify(userCache).put(1L, testUser);
+        verify(interestIndex).add(1L, 2L);
         assertTrue(testUser.getInterests().contains(newInterest));
     }
 
     @Test
     void addInterestToUser_ExistingInterest_Success() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(testUser));
-        when(interestRepository.findByInterestType(anyString())).thenReturn(Optional.of(existingInterest));
+        when(interestDictionary.resolve("sports")).thenReturn(existingEntry);
+        when(interestRepository.getReferenceById(1L)).thenReturn(existingInterest);
         when(userRepository.save(any(User.class))).thenReturn(testUser);
 
-        interestService.addInterestToUser(1L, "Sports");
+        interestService.addInterestToUser(1L, "sports");
 
-        verify(interestRepository, never()).save(any(Interest.class));
+        verify(interestRepository, never()).saveAndFlush(any(Interest.class));
+        verify(interestRepository, never()).findByInterestKey(anyString());
         verify(userRepository).save(testUser);
         verify(userCache).put(1L, testUser);
         assertTrue(testUser.getInterests().contains(existingInterest));
@@ -111,8 +144,11 @@ class InterestServiceTest {
     @Test
     void addInterestToUser_DuplicateInterest_ThrowsException() {
         testUser.getInterests().add(existingInterest);
+        Interest reference = new Interest();
+        reference.setId(1L);
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(testUser));
-        when(interestRepository.findByInterestType(anyString())).thenReturn(Optional.of(existingInterest));
+        when(interestDictionary.resolve(anyString())).thenReturn(existingEntry);
+        when(interestRepository.getReferenceById(1L)).thenReturn(reference);
 
         ResponseStatusException exception = assertThrows(ResponseStatusException.class,
                 () -> interestService.addInterestToUser(1L, "Sports"));
@@ -125,20 +161,21 @@ class InterestServiceTest {
     void removeInterestFromUser_Success() {
         testUser.getInterests().add(existingInterest);
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(testUser));
-        when(interestRepository.findByInterestType(anyString())).thenReturn(Optional.of(existingInterest));
+        when(interestDictionary.resolve(anyString())).thenReturn(existingEntry);
         when(userRepository.save(any(User.class))).thenReturn(testUser);
 
         interestService.removeInterestFromUser(1L, "Sports");
 
         verify(userRepository).save(testUser);
         verify(userCache).put(1L, testUser);
+        verify(interestIndex).remove(1L, 1L);
         assertFalse(testUser.getInterests().contains(existingInterest));
     }
 
     @Test
     void removeInterestFromUser_InterestNotFound_ThrowsException() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(testUser));
-        when(interestRepository.findByInterestType(anyString())).thenReturn(Optional.empty());
+        when(interestDictionary.resolve(anyString())).thenReturn(null);
 
         ResponseStatusException exception = assertThrows(ResponseStatusException.class,
                 () -> interestService.removeInterestFromUser(1L, "Unknown"));
@@ -150,7 +187,7 @@ class InterestServiceTest {
     @Test
     void removeInterestFromUser_UserDoesNotHaveInterest_ThrowsException() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(testUser));
-        when(interestRepository.findByInterestType(anyString())).thenReturn(Optional.of(existingInterest));
+        when(interestDictionary.resolve(anyString())).thenReturn(existingEntry);
 
         ResponseStatusException exception = assertThrows(ResponseStatusException.class,
                 () -> interestService.removeInterestFromUser(1L, "Sports"));
@@ -159,6 +196,25 @@ class InterestServiceTest {
         assertEquals("У пользователя нет этого интереса", exception.getReason());
     }
 
+    @Test
+    void updateInterest_ShouldInvalidateEveryHolder() {
+        testUser.getInterests().add(existingInterest);
+        Interest renamed = new Interest();
+        renamed.setInterestType("Football");
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(interestRepository.findById(1L)).thenReturn(Optional.of(existingInterest));
+        when(interestDictionary.resolve("Football")).thenReturn(null);
+        when(interestRepository.save(existingInterest)).thenReturn(existingInterest);
+        when(userInterestRepository.findUserIdsByInterestId(1L)).thenReturn(List.of(1L, 5L, 9L));
+
+        Interest result = interestService.updateInterest(1L, 1L, renamed);
+
+        assertEquals("Football", result.getInterestType());
+        verify(userCache).removeAll(List.of(1L, 5L, 9L));
+        verify(userCache, never()).put(anyLong(), any(User.class));
+        verify(interestDictionary).registerAfterCommit(1L, "Football");
+    }
+
     @Test
     void getUserInterests_Success() {
         Set<Interest> interests = new HashSet<>();
@@ -185,10 +241,11 @@ class InterestServiceTest {
 
     @Test
     void addInterestToUser_InterestAlreadyExistsInDB_ThrowsConflictException() {
-        // Подготовка
+        // Подготовка: интерес создал параллельный запрос, вставку отклонил уникальный индекс
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(testUser));
-        when(interestRepository.findByInterestType(anyString())).thenReturn(Optional.empty());
-        when(interestRepository.existsByInterestType(anyString())).thenReturn(true);
+        when(interestDictionary.resolve(anyString())).thenReturn(null);
+        when(interestRepository.saveAndFlush(any()))
+                .thenThrow(new DataIntegrityViolationException("uk_interests_interest_key"));
 
         // Действие и проверка
         ResponseStatusException exception = assertThrows(ResponseStatusException.class,
@@ -196,25 +253,133 @@ class InterestServiceTest {
 
         assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
         assertEquals("Интерес уже существует", exception.getReason());
-        verify(interestRepository, never()).save(any());
+        verify(interestDictionary, never()).registerAfterCommit(anyLong(), anyString());
         verify(userRepository, never()).save(any());
     }
 
     @Test
     void addInterestToUser_VerifyMethodCallOrder() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(testUser));
-        when(interestRepository.findByInterestType(anyString())).thenReturn(Optional.empty());
-        when(interestRepository.existsByInterestType(anyString())).thenReturn(false);
-        when(interestRepository.save(any())).thenReturn(existingInterest);
+        when(interestDictionary.resolve(anyString())).thenReturn(null);
+        when(interestRepository.saveAndFlush(any())).thenReturn(existingInterest);
         when(userRepository.save(any())).thenReturn(testUser);
 
         interestService.addInterestToUser(1L, "Sports");
 
-        InOrder inOrder = inOrder(userRepository, interestRepository);
+        InOrder inOrder = inOrder(userRepository, interestDictionary, interestRepository);
         inOrder.verify(userRepository).findById(1L);
-        inOrder.verify(interestRepository).findByInterestType("Sports");
-        inOrder.verify(interestRepository).existsByInterestType("Sports");
-        inOrder.verify(interestRepository).save(any());
+        inOrder.verify(interestDictionary).resolve("Sports");
+        inOrder.verify(interestRepository).saveAndFlush(any());
         inOrder.verify(userRepository).save(testUser);
     }
-}
\ No newline at end of file
+
+    @Test
+    void assignInterests_ShouldWriteOnlyTheDifference() {
+        // Arrange: у пользователя 1 есть Sports (1) и интерес 3, у пользователя 7 - только Sports
+        Set<Long> requested = Set.of(1L, 5L, 7L);
+        when(userBulkRepository.lockExisting(requested)).thenReturn(Set.of(1L, 7L));
+        when(interestDictionary.resolve("sports")).thenReturn(existingEntry);
+        when(interestDictionary.resolve("Music")).thenReturn(null);
+        when(interestBulkRepository.insertMissing(Map.of("music", "Music")))
+                .thenReturn(List.of(newInterest));
+        when(userInterestRepository.findInterestIdsByUserIds(Set.of(1L, 7L))).thenReturn(Map.of(
+                1L, Set.of(1L, 3L), 7L, Set.of(1L)));
+
+        // Act
+        List<InterestAssignmentResult> results = interestService.assignInterests(List.of(
+                new InterestAssignment(1L, List.of("sports", "Music", " MUSIC ")),
+                new InterestAssignment(5L, List.of("Music")),
+                new InterestAssignment(7L, List.of("Sports")),
+                new InterestAssignment(1L, List.of())));
+
+        // Assert
+        assertEquals(InterestAssignmentResult.applied(0, 1L, 1, 1), results.get(0));
+        assertEquals(InterestAssignmentResult.failed(1, 5L, "Пользователь не найден"),
+                results.get(1));
+        assertEquals(InterestAssignmentResult.applied(2, 7L, 0, 0), results.get(2));
+        assertFalse(results.get(3).success());
+        verify(userInterestRepository).insertLinks(
+                List.of(new UserInterestRepository.Link(1L, 2L)));
+        verify(userInterestRepository).deleteLinks(
+                List.of(new UserInterestRepository.Link(1L, 3L)));
+        verify(userBulkRepository).incrementVersions(Set.of(1L));
+        verify(userCache).removeAll(Set.of(1L));
+        verify(interestIndex).replace(1L, Set.of(1L, 2L));
+        verify(interestIndex, never()).replace(eq(7L), any());
+        verify(interestDictionary).registerAfterCommit(2L, "Music");
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void assignInterests_ShouldSkipWritesWhenNothingChanges() {
+        // Arrange
+        when(userBulkRepository.lockExisting(Set.of(1L))).thenReturn(Set.of(1L));
+        when(interestDictionary.resolve("Sports")).thenReturn(existingEntry);
+        when(userInterestRepository.findInterestIdsByUserIds(Set.of(1L)))
+                .thenReturn(Map.of(1L, Set.of(1L)));
+
+        // Act
+        List<InterestAssignmentResult> results = interestService.assignInterests(
+                List.of(new InterestAssignment(1L, List.of("Sports"))));
+
+        // Assert
+        assertEquals(List.of(InterestAssignmentResult.applied(0, 1L, 0, 0)), results);
+        verify(userInterestRepository, never()).insertLinks(any());
+        verify(userInterestRepository, never()).deleteLinks(any());
+        verify(userBulkRepository, never()).incrementVersions(any());
+        verifyNoInteractions(userCache, interestIndex, interestBulkRepository);
+    }
+
+    @Test
+    void assignInterests_ShouldUseInterestCreatedConcurrently() {
+        // Arrange: Music уже создал параллельный запрос, в словарь он ещё не попал
+        Interest concurrent = new Interest();
+        concurrent.setId(9L);
+        concurrent.setInterestType("music");
+        when(userBulkRepository.lockExisting(Set.of(1L))).thenReturn(Set.of(1L));
+        when(interestDictionary.resolve("Music")).thenReturn(null);
+        when(interestBulkRepository.insertMissing(Map.of("music", "Music")))
+                .thenReturn(List.of(concurrent));
+        when(userInterestRepository.findInterestIdsByUserIds(Set.of(1L)))
+                .thenReturn(Map.of(1L, Set.of()));
+
+        // Act
+        List<InterestAssignmentResult> results = interestService.assignInterests(
+                List.of(new InterestAssignment(1L, List.of("Music"))));
+
+        // Assert
+        assertEquals(List.of(InterestAssignmentResult.applied(0, 1L, 1, 0)), results);
+        verify(userInterestRepository).insertLinks(
+                List.of(new UserInterestRepository.Link(1L, 9L)));
+        verify(interestDictionary).registerAfterCommit(9L, "music");
+    }
+
+    @Test
+    void assignInterests_ShouldRejectWhenCreatedInterestDisappears() {
+        // Arrange
+        when(userBulkRepository.lockExisting(Set.of(1L))).thenReturn(Set.of(1L));
+        when(interestDictionary.resolve("Music")).thenReturn(null);
+        when(interestBulkRepository.insertMissing(Map.of("music", "Music")))
+                .thenReturn(List.of());
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> interestService.assignInterests(
+                        List.of(new InterestAssignment(1L, List.of("Music")))));
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+        verify(userInterestRepository, never()).insertLinks(any());
+    }
+
+    @Test
+    void assignInterests_ShouldRejectOversizedRequest() {
+        // Arrange
+        List<InterestAssignment> assignments = new ArrayList<>(Collections.nCopies(
+                InterestService.MAX_ASSIGNMENTS + 1, new InterestAssignment(1L, List.of())));
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> interestService.assignInterests(assignments));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(userBulkRepository, userInterestRepository);
+    }
+}
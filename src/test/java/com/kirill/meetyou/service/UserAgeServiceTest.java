@@ -0,0 +1,59 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.cache.UserCache;
+import com.kirill.meetyou.repository.UserBulkRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserAgeServiceTest {
+
+    @Mock
+    private UserBulkRepository userBulkRepository;
+
+    @Mock
+    private UserCache cache;
+
+    @InjectMocks
+    private UserAgeService userAgeService;
+
+    @Test
+    void refreshAges_ShouldUpdateOnlyTodaysBirthdaysAndEvictThem() {
+        // Arrange
+        LocalDate today = LocalDate.of(2024, 6, 15);
+        when(userBulkRepository.updateAges(2024, List.of(MonthDay.of(6, 15))))
+                .thenReturn(List.of(3L, 7L));
+
+        // Act
+        int updated = userAgeService.refreshAges(today);
+
+        // Assert
+        assertEquals(2, updated);
+        verify(cache).removeAll(List.of(3L, 7L));
+    }
+
+    @Test
+    void refreshAges_ShouldIncludeLeapDayBirthdaysOnFirstOfMarchInCommonYear() {
+        // Arrange
+        when(userBulkRepository.updateAges(anyInt(), anyList())).thenReturn(List.of());
+
+        // Act
+        userAgeService.refreshAges(LocalDate.of(2023, 3, 1));
+        userAgeService.refreshAges(LocalDate.of(2024, 3, 1));
+
+        // Assert
+        verify(userBulkRepository).updateAges(2023,
+                List.of(MonthDay.of(3, 1), MonthDay.of(2, 29)));
+        verify(userBulkRepository).updateAges(2024, List.of(MonthDay.of(3, 1)));
+    }
+}
@@ -0,0 +1,311 @@
+package com.kirill.meetyou.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.kirill.meetyou.config.ImportProperties;
+import com.kirill.meetyou.dto.BulkRowResult;
+import com.kirill.meetyou.dto.ImportJob;
+import com.kirill.meetyou.dto.UserCreateDto;
+import com.kirill.meetyou.enums.ImportJobStatus;
+import com.kirill.meetyou.repository.ImportChunkRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserImportServiceTest {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private ImportChunkRepository chunkRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directory;
+
+    private ImportProperties properties;
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ImportProperties();
+        properties.setDirectory(directory);
+        properties.setChunkSize(2);
+        objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        lenient().when(userService.createRows(anyList(), any(int[].class)))
+                .thenAnswer(invocation -> {
+                    List<UserCreateDto> rows = invocation.getArgument(0);
+                    int[] indexes = invocation.getArgument(1);
+                    List<BulkRowResult> results = new ArrayList<>();
+                    for (int i = 0; i < rows.size(); i++) {
+                        results.add(BulkRowResult.builder().index(indexes[i])
+                                .email(rows.get(i).getEmail()).success(true)
+                                .id(indexes[i] + 100L).build());
+                    }
+                    return results;
+                });
+    }
+
+    @Test
+    void submit_ShouldImportChunksAndCollectRowErrors() {
+        // Arrange
+        UserImportService service = new UserImportService(userService, chunkRepository,
+                properties, Runnable::run, transactionManager, objectMapper);
+        List<UserCreateDto> users = List.of(user("a@mail.com"), user("b@mail.com"),
+                user("a@mail.com"), user("c@mail.com"), user(null));
+
+        // Act
+        ImportJob submitted = service.submit(users);
+
+        // Assert
+        ImportJob job = service.getJob(submitted.getId());
+        assertEquals(ImportJobStatus.COMPLETED, job.getStatus());
+        assertEquals(2, job.getTotalChunks());
+        assertEquals(5, job.getProcessedRows());
+        assertEquals(3, job.getSuccessCount());
+        assertEquals(2, job.getFailCount());
+        verify(userService, times(2)).createRows(anyList(), any(int[].class));
+        verify(transactionManager, times(2)).commit(any());
+
+        List<BulkRowResult> errors = service.getErrors(job.getId(), 0, 10);
+        assertEquals(List.of(2, 4), errors.stream().map(BulkRowResult::getIndex).toList());
+        assertEquals("Email повторяется в запросе", errors.get(0).getError());
+    }
+
+    @Test
+    void resumeJobs_ShouldContinueFromFirstUnfinishedChunk() {
+        // Arrange
+        List<Runnable> workers = new ArrayList<>();
+        UserImportService crashed = new UserImportService(userService, chunkRepository,
+                properties, workers::add, transactionManager, objectMapper);
+        String id = crashed.submit(List.of(user("a@mail.com"), user("b@mail.com"),
+                user("c@mail.com"))).getId();
+        // Первая порция успела сохраниться, на второй узел упал
+        when(userService.createRows(anyList(), any(int[].class)))
+                .thenReturn(List.of(
+                        BulkRowResult.builder().index(0).email("a@mail.com").success(true)
+                                .id(1L).build(),
+                        BulkRowResult.builder().index(1).email("b@mail.com").success(true)
+                                .id(2L).build()))
+                .thenThrow(new Error("Узел остановлен"))
+                .thenReturn(List.of(
+                        BulkRowResult.builder().index(2).email("c@mail.com").success(true)
+                                .id(3L).build()));
+        assertThrows(Error.class, () -> workers.get(0).run());
+        UserImportService restarted = new UserImportService(userService, chunkRepository,
+                properties, Runnable::run, transactionManager, objectMapper);
+
+        // Act
+        restarted.resumeJobs();
+
+        // Assert
+        ImportJob job = restarted.getJob(id);
+        assertEquals(ImportJobStatus.COMPLETED, job.getStatus());
+        assertEquals(3, job.getSuccessCount());
+        // Сохранённая порция не повторяется
+        verify(userService, times(1)).createRows(argThat(rows -> rows.size() == 2),
+                eq(new int[] {0, 1}));
+        verify(userService, times(2)).createRows(argThat(rows -> rows.size() == 1),
+                eq(new int[] {2}));
+    }
+
+    @Test
+    void resumeJobs_ShouldSkipChunkCommittedBeforeStateWasSaved() throws Exception {
+        // Arrange
+        List<Runnable> lost = new ArrayList<>();
+        UserImportService crashed = new UserImportService(userService, chunkRepository,
+                properties, lost::add, transactionManager, objectMapper);
+        String id = crashed.submit(List.of(user("a@mail.com"), user("b@mail.com"),
+                user("c@mail.com"))).getId();
+        // Первая порция закоммичена, а job.json узел записать не успел
+        BulkRowResult taken = BulkRowResult.builder().index(1).email("b@mail.com")
+                .success(false).error("Email уже используется").build();
+        when(chunkRepository.findByJob(id)).thenReturn(List.of(new ImportChunkRepository.Chunk(
+                0, 1, 1, objectMapper.writeValueAsString(List.of(taken)))));
+        UserImportService restarted = new UserImportService(userService, chunkRepository,
+                properties, Runnable::run, transactionManager, objectMapper);
+
+        // Act
+        restarted.resumeJobs();
+
+        // Assert
+        ImportJob job = restarted.getJob(id);
+        assertEquals(ImportJobStatus.COMPLETED, job.getStatus());
+        assertEquals(3, job.getProcessedRows());
+        assertEquals(2, job.getSuccessCount());
+        assertEquals(1, job.getFailCount());
+        verify(userService).createRows(anyList(), eq(new int[] {2}));
+        verify(userService, never()).createRows(anyList(), eq(new int[] {0, 1}));
+        verify(chunkRepository).save(eq(id), argThat(chunk -> chunk.chunk() == 1
+                && chunk.successCount() == 1 && chunk.errors() == null));
+        verify(chunkRepository).deleteByJob(id);
+        assertEquals(List.of("Email уже используется"), restarted.getErrors(id, 0, 10).stream()
+                .map(BulkRowResult::getError).toList());
+    }
+
+    @Test
+    void resumeJobs_ShouldNotStartMoreThanMaxActiveJobs() {
+        // Arrange
+        List<Runnable> lost = new ArrayList<>();
+        UserImportService crashed = new UserImportService(userService, chunkRepository,
+                properties, lost::add, transactionManager, objectMapper);
+        String first = crashed.submit(List.of(user("a@mail.com"))).getId();
+        String second = crashed.submit(List.of(user("b@mail.com"))).getId();
+        properties.setMaxActiveJobs(1);
+        List<Runnable> workers = new ArrayList<>();
+        UserImportService restarted = new UserImportService(userService, chunkRepository,
+                properties, workers::add, transactionManager, objectMapper);
+
+        // Act
+        restarted.resumeJobs();
+
+        // Assert
+        assertEquals(1, workers.size());
+        workers.get(0).run();
+        // Место первой задачи досталось второй
+        assertEquals(2, workers.size());
+        workers.get(1).run();
+        assertEquals(ImportJobStatus.COMPLETED, restarted.getJob(first).getStatus());
+        assertEquals(ImportJobStatus.COMPLETED, restarted.getJob(second).getStatus());
+    }
+
+    @Test
+    void submit_ShouldFailJobAndReleaseSlotWhenNoWorkerStarted() {
+        // Arrange
+        properties.setMaxActiveJobs(1);
+        AtomicInteger calls = new AtomicInteger();
+        Executor rejectingFirst = task -> {
+            if (calls.getAndIncrement() == 0) {
+                throw new RejectedExecutionException("Очередь заполнена");
+            }
+            task.run();
+        };
+        UserImportService service = new UserImportService(userService, chunkRepository,
+                properties, rejectingFirst, transactionManager, objectMapper);
+
+        // Act
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> service.submit(List.of(user("a@mail.com"))));
+        ImportJob next = service.submit(List.of(user("b@mail.com")));
+
+        // Assert
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatusCode());
+        assertEquals(ImportJobStatus.COMPLETED, next.getStatus());
+        verify(userService, times(1)).createRows(anyList(), any(int[].class));
+    }
+
+    @Test
+    void importStream_ShouldParseNdjsonRowByRow() {
+        // Arrange
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        UserImportService service = new UserImportService(userService, chunkRepository,
+                properties, executor, transactionManager, objectMapper);
+        String body = """
+                {"name":"A","email":"a@mail.com","birth":"2000-01-01"}
+                {"name":"B","email":"b@mail.com","birth":"not-a-date"}
+                {"name":"C","email":"c@mail.com","birth":"2000-01-01"}
+                {"name":"D","email":"c@mail.com","birth":"2000-01-01"}
+                {"name":"E","email":"e@mail.com","birth":"2000-01-01"}
+                """;
+
+        // Act
+        ImportJob job = service.importStream(stream(body), false);
+        executor.shutdown();
+
+        // Assert
+        assertEquals(ImportJobStatus.COMPLETED, job.getStatus());
+        assertEquals(5, job.getTotalRows());
+        assertEquals(3, job.getTotalChunks());
+        assertEquals(3, job.getSuccessCount());
+        assertEquals(2, job.getFailCount());
+        List<BulkRowResult> errors = service.getErrors(job.getId(), 0, 10);
+        assertEquals(List.of(1, 3), errors.stream().map(BulkRowResult::getIndex).toList());
+        assertTrue(errors.get(0).getError().startsWith("Некорректная строка"));
+    }
+
+    @Test
+    void importStream_ShouldParseCsvWithHeader() {
+        // Arrange
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        UserImportService service = new UserImportService(userService, chunkRepository,
+                properties, executor, transactionManager, objectMapper);
+        String body = """
+                name,email,birth
+                A,a@mail.com,2000-01-01
+                B,b@mail.com,2000-01-01
+                C,,2000-01-01
+                """;
+
+        // Act
+        ImportJob job = service.importStream(stream(body), true);
+        executor.shutdown();
+
+        // Assert
+        assertEquals(ImportJobStatus.COMPLETED, job.getStatus());
+        assertEquals(2, job.getSuccessCount());
+        assertEquals(1, job.getFailCount());
+        verify(userService).createRows(argThat(rows -> rows.size() == 2
+                && "b@mail.com".equals(rows.get(1).getEmail())), eq(new int[] {0, 1}));
+    }
+
+    @Test
+    void importStream_ShouldKeepSavedChunksWhenBodyIsMalformed() {
+        // Arrange
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        UserImportService service = new UserImportService(userService, chunkRepository,
+                properties, executor, transactionManager, objectMapper);
+        String body = """
+                {"name":"A","email":"a@mail.com","birth":"2000-01-01"}
+                {"name":"B","email":"b@mail.com","birth":"2000-01-01"}
+                {"name":"C",
+                """;
+
+        // Act
+        ImportJob job = service.importStream(stream(body), false);
+        executor.shutdown();
+
+        // Assert
+        assertEquals(ImportJobStatus.FAILED, job.getStatus());
+        assertEquals(2, job.getSuccessCount());
+        assertTrue(job.getError().startsWith("Ошибка чтения данных"));
+    }
+
+    private InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private UserCreateDto user(String email) {
+        UserCreateDto dto = new UserCreateDto();
+        dto.setName("User");
+        dto.setEmail(email);
+        dto.setBirth(LocalDate.of(2000, 1, 1));
+        return dto;
+    }
+}
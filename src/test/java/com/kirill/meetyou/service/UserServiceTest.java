@@ -1,21 +1,41 @@
 package com.kirill.meetyou.service;
 
+import com.kirill.meetyou.cache.InterestDictionary;
 import com.kirill.meetyou.cache.UserCache;
 import com.kirill.meetyou.dto.BulkResponse;
+import com.kirill.meetyou.dto.UserCreateDto;
+import com.kirill.meetyou.dto.UserInterestRow;
+import com.kirill.meetyou.dto.UserMatch;
+import com.kirill.meetyou.dto.UserPageResponse;
+import com.kirill.meetyou.dto.UserRow;
+import com.kirill.meetyou.dto.UserSnapshot;
+import com.kirill.meetyou.dto.UserSummary;
+import com.kirill.meetyou.dto.UserUpdateDto;
+import com.kirill.meetyou.index.InterestIndex;
+import com.kirill.meetyou.index.InterestMatch;
+import com.kirill.meetyou.model.User;
+import com.kirill.meetyou.repository.UserBulkRepository;
 import com.kirill.meetyou.repository.UserRepository;
+import com.kirill.meetyou.utils.KeysetCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,6 +49,18 @@ class UserServiceTest {
     @Mock
     private UserCache cache;
 
+    @Mock
+    private UserBulkRepository userBulkRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private InterestIndex interestIndex;
+
+    @Mock
+    private InterestDictionary interestDictionary;
+
     @InjectMocks
     private UserService userService;
 
@@ -47,79 +79,200 @@ class UserServiceTest {
         testUserCreateDto.setName("Jane Doe");
         testUserCreateDto.setEmail("jane@example.com");
         testUserCreateDto.setBirth(LocalDate.of(1995, 5, 15));
+
+        // Отрицательный кэш email всегда промахивается и спрашивает репозиторий
+        lenient().when(cache.isEmailTaken(anyString(), any())).thenAnswer(invocation -> {
+            Predicate<String> lookup = invocation.getArgument(1);
+            return lookup.test(invocation.getArgument(0));
+        });
+    }
+
+    @Test
+    void findPage_ShouldReturnCursorWhenMoreUsersExist() {
+        // Arrange
+        User second = new User();
+        second.setId(2L);
+        when(userRepository.findRowsByIdGreaterThanOrderByIdAsc(0L, Limit.of(2)))
+                .thenReturn(List.of(row(testUser), row(second)));
+
+        // Act
+        UserPageResponse page = userService.findPage(null, 1);
+
+        // Assert
+        assertEquals(List.of(summary(testUser)), page.getItems());
+        assertEquals(KeysetCursor.encode(1L), page.getNextCursor());
+    }
+
+    @Test
+    void findPage_ShouldContinueAfterCursorAndStopOnLastPage() {
+        // Arrange
+        when(userRepository.findRowsByIdGreaterThanOrderByIdAsc(1L, Limit.of(51)))
+                .thenReturn(List.of());
+
+        // Act
+        UserPageResponse page = userService.findPage(KeysetCursor.encode(1L), 50);
+
+        // Assert
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void findPage_ShouldRejectInvalidCursorAndLimit() {
+        ResponseStatusException badCursor = assertThrows(ResponseStatusException.class,
+                () -> userService.findPage("not-a-cursor", 10));
+        ResponseStatusException badLimit = assertThrows(ResponseStatusException.class,
+                () -> userService.findPage(null, 0));
+
+        assertEquals(HttpStatus.BAD_REQUEST, badCursor.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, badLimit.getStatusCode());
+        verifyNoInteractions(userRepository);
     }
 
     @Test
-    void findAll_ShouldReturnAllUsers() {
+    void findPage_ShouldTranslateAgeRangeToBirthDates() {
         // Arrange
-        when(userRepository.findAll()).thenReturn(List.of(testUser));
+        LocalDate today = LocalDate.now();
+        when(userRepository.findRowsByIdGreaterThanAndBirthBetweenOrderByIdAsc(eq(0L), any(),
+                any(), eq(Limit.of(11)))).thenReturn(List.of(row(testUser)));
 
         // Act
-        List<User> result = userService.findAll();
+        UserPageResponse page = userService.findPage(null, 10, 18, 30);
 
         // Assert
-        assertEquals(1, result.size());
-        assertEquals(testUser, result.get(0));
-        verify(userRepository).findAll();
+        assertEquals(List.of(summary(testUser)), page.getItems());
+        verify(userRepository).findRowsByIdGreaterThanAndBirthBetweenOrderByIdAsc(0L,
+                today.minusYears(31).plusDays(1), today.minusYears(18), Limit.of(11));
+        verify(userRepository, never()).findRowsByIdGreaterThanOrderByIdAsc(anyLong(), any());
     }
 
     @Test
-    void findAll_ShouldThrowExceptionWhenRepositoryFails() {
+    void findPage_ShouldRejectInvalidAgeRange() {
+        ResponseStatusException inverted = assertThrows(ResponseStatusException.class,
+                () -> userService.findPage(null, 10, 30, 18));
+        ResponseStatusException negative = assertThrows(ResponseStatusException.class,
+                () -> userService.findPage(null, 10, -1, null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, inverted.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, negative.getStatusCode());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void findPage_ShouldThrowExceptionWhenRepositoryFails() {
         // Arrange
-        when(userRepository.findAll()).thenThrow(new RuntimeException("Database error"));
+        when(userRepository.findRowsByIdGreaterThanOrderByIdAsc(anyLong(), any()))
+                .thenThrow(new RuntimeException("Database error"));
 
         // Act & Assert
         ResponseStatusException exception = assertThrows(ResponseStatusException.class,
-                () -> userService.findAll());
+                () -> userService.findPage(null, 10));
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exception.getStatusCode());
     }
 
+    @Test
+    void findByAnyInterest_ShouldLoadInterestsForAllUsersInOneQuery() {
+        // Arrange
+        User second = new User();
+        second.setId(2L);
+        when(interestDictionary.resolve("MUSIC"))
+                .thenReturn(new InterestDictionary.Entry(0, 20L, "Music"));
+        when(userRepository.findRowsByAnyInterestIds(Set.of(20L)))
+                .thenReturn(List.of(row(testUser), row(second)));
+        when(userRepository.findInterestRowsByUserIds(List.of(1L, 2L))).thenReturn(List.of(
+                interestRow(1L, 20L, "Music"), interestRow(2L, 20L, "Music"),
+                interestRow(1L, 10L, "Chess")));
+
+        // Act
+        List<UserSummary> result = userService.findByAnyInterest(Set.of("MUSIC"));
+
+        // Assert
+        assertEquals(List.of(new UserSummary.InterestItem(10L, "Chess"),
+                new UserSummary.InterestItem(20L, "Music")), result.get(0).interests());
+        assertEquals(List.of(new UserSummary.InterestItem(20L, "Music")),
+                result.get(1).interests());
+        verify(userRepository, times(1)).findInterestRowsByUserIds(any());
+    }
+
+    @Test
+    void findBestMatches_ShouldKeepIndexRankingWhenLoadingUsers() {
+        // Arrange
+        User second = new User();
+        second.setId(2L);
+        User third = new User();
+        third.setId(3L);
+        when(cache.getOrLoad(eq(1L), any())).thenReturn(Optional.of(UserSnapshot.from(testUser)));
+        when(interestIndex.findBestMatches(1L, 2)).thenReturn(List.of(
+                new InterestMatch(3L, 2, 2), new InterestMatch(2L, 1, 3)));
+        when(userRepository.findRowsByIdInOrderByIdAsc(List.of(2L, 3L)))
+                .thenReturn(List.of(row(second), row(third)));
+        when(userRepository.findInterestRowsByUserIds(List.of(2L, 3L))).thenReturn(List.of());
+
+        // Act
+        List<UserMatch> result = userService.findBestMatches(1L, 2);
+
+        // Assert
+        assertEquals(List.of(3L, 2L), result.stream().map(match -> match.user().id()).toList());
+        assertEquals(1.0, result.get(0).score());
+        assertEquals(1, result.get(1).sharedInterests());
+    }
+
+    @Test
+    void findBestMatches_ShouldReturnServiceUnavailableWhileIndexIsBuilding() {
+        // Arrange
+        when(cache.getOrLoad(eq(1L), any())).thenReturn(Optional.of(UserSnapshot.from(testUser)));
+        when(interestIndex.findBestMatches(1L, 20)).thenReturn(null);
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> userService.findBestMatches(1L, 20));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+        verify(userRepository, never()).findRowsByIdInOrderByIdAsc(any());
+    }
+
     @Test
     void findById_ShouldReturnUserFromCache() {
         // Arrange
-        when(cache.get(1L)).thenReturn(testUser);
+        when(cache.getOrLoad(eq(1L), any())).thenReturn(Optional.of(UserSnapshot.from(testUser)));
 
         // Act
         Optional<User> result = userService.findById(1L);
 
         // Assert
         assertTrue(result.isPresent());
-        assertEquals(testUser, result.get());
-        verify(cache).get(1L);
-        verify(userRepository, never()).findById(any());
+        assertEquals(testUser.getId(), result.get().getId());
+        assertEquals(testUser.getEmail(), result.get().getEmail());
+        verify(cache).getOrLoad(eq(1L), any());
+        verify(userRepository, never()).findWithInterestsById(any());
     }
 
     @Test
-    void findById_ShouldReturnUserFromRepositoryAndCacheIt() {
+    void findById_ShouldLoadUserFromRepositoryOnCacheMiss() {
         // Arrange
-        when(cache.get(1L)).thenReturn(null);
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        stubCacheMiss();
+        when(userRepository.findWithInterestsById(1L)).thenReturn(Optional.of(testUser));
 
         // Act
         Optional<User> result = userService.findById(1L);
 
         // Assert
         assertTrue(result.isPresent());
-        assertEquals(testUser, result.get());
-        verify(cache).get(1L);
-        verify(userRepository).findById(1L);
-        verify(cache).put(1L, testUser);
+        assertEquals(testUser.getId(), result.get().getId());
+        verify(userRepository).findWithInterestsById(1L);
     }
 
     @Test
     void findById_ShouldReturnEmptyForNonExistentUser() {
         // Arrange
-        when(cache.get(1L)).thenReturn(null);
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        stubCacheMiss();
+        when(userRepository.findWithInterestsById(1L)).thenReturn(Optional.empty());
 
         // Act
         Optional<User> result = userService.findById(1L);
 
         // Assert
         assertFalse(result.isPresent());
-        verify(cache).get(1L);
-        verify(userRepository).findById(1L);
-        verify(cache, never()).put(any(), any());
+        verify(userRepository).findWithInterestsById(1L);
     }
 
     @Test
@@ -198,22 +351,77 @@ class UserServiceTest {
         assertThrows(ResponseStatusException.class, () -> userService.delete(-1L));
     }
 
+    @Test
+    void update_ShouldRetryOnVersionConflict() {
+        // Arrange
+        testUser.setVersion(4L);
+        UserUpdateDto dto = new UserUpdateDto();
+        dto.setName("New Name");
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.saveAndFlush(testUser))
+                .thenThrow(new ObjectOptimisticLockingFailureException(User.class, 1L))
+                .thenReturn(testUser);
+
+        // Act
+        User result = userService.update(1L, dto);
+
+        // Assert
+        assertEquals("New Name", result.getName());
+        verify(userRepository, times(2)).findById(1L);
+        verify(transactionManager).rollback(any());
+        verify(cache, times(1)).put(1L, testUser);
+    }
+
+    @Test
+    void update_ShouldGiveUpAfterRepeatedVersionConflicts() {
+        // Arrange
+        UserUpdateDto dto = new UserUpdateDto();
+        dto.setName("New Name");
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.saveAndFlush(testUser))
+                .thenThrow(new ObjectOptimisticLockingFailureException(User.class, 1L));
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> userService.update(1L, dto));
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+        verify(userRepository, times(3)).saveAndFlush(testUser);
+        verify(cache, never()).put(anyLong(), any());
+    }
+
+    @Test
+    void update_ShouldRejectStaleIfMatchETag() {
+        // Arrange
+        String staleETag = UserSnapshot.from(testUser).etag();
+        testUser.setEmail("changed@example.com");
+        UserUpdateDto dto = new UserUpdateDto();
+        dto.setName("New Name");
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> userService.update(1L, dto, staleETag));
+        assertEquals(HttpStatus.PRECONDITION_FAILED, exception.getStatusCode());
+        assertEquals("John Doe", testUser.getName());
+        verify(userRepository, never()).saveAndFlush(any());
+    }
+
     @Test
     void update_ShouldSuccessfullyUpdateUser() {
         // Arrange
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(testUser)).thenReturn(testUser);
+        when(userRepository.saveAndFlush(testUser)).thenReturn(testUser);
         when(userRepository.findByEmail("new@example.com")).thenReturn(Optional.empty());
 
         // Act
-        User result = userService.update(1L, "new@example.com", "New Name");
+        User result = userService.update(1L, updateDto("new@example.com", "New Name"));
 
         // Assert
         assertEquals(testUser, result);
         assertEquals("new@example.com", testUser.getEmail());
         assertEquals("New Name", testUser.getName());
         verify(userRepository).findById(1L);
-        verify(userRepository).save(testUser);
+        verify(userRepository).saveAndFlush(testUser);
         verify(cache).put(1L, testUser);
     }
 
@@ -221,17 +429,17 @@ class UserServiceTest {
     void update_ShouldThrowExceptionForInvalidId() {
         // Act & Assert
         assertThrows(ResponseStatusException.class,
-                () -> userService.update(null, "email@example.com", "Name"));
+                () -> userService.update(null, updateDto("email@example.com", "Name")));
     }
 
     @Test
     void update_ShouldHandlePartialUpdates() {
         // Arrange
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(testUser)).thenReturn(testUser);
+        when(userRepository.saveAndFlush(testUser)).thenReturn(testUser);
 
         // Act - update only name
-        User result = userService.update(1L, null, "New Name");
+        User result = userService.update(1L, updateDto(null, "New Name"));
 
         // Assert
         assertEquals(testUser, result);
@@ -257,9 +465,9 @@ class UserServiceTest {
         validDto2.setEmail("user2@example.com");
         validDto2.setBirth(LocalDate.of(1995, 5, 15));
 
-        when(userRepository.findByEmail("user1@example.com")).thenReturn(Optional.empty());
-        when(userRepository.findByEmail("user2@example.com")).thenReturn(Optional.empty());
-        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userBulkRepository.findExistingEmails(Set.of("user1@example.com",
+                "user2@example.com"))).thenReturn(Set.of());
+        when(userBulkRepository.insertAll(anyList())).thenReturn(List.of(10L, 11L));
 
         // Act
         BulkResponse response = userService.bulkCreate(Arrays.asList(validDto1, invalidDto, validDto2));
@@ -268,7 +476,40 @@ class UserServiceTest {
         assertEquals(2, response.getSuccessCount());
         assertEquals(1, response.getFailCount());
         assertEquals(1, response.getErrors().size());
-        verify(userRepository, times(2)).save(any(User.class));
+        assertEquals(10L, response.getResults().get(0).getId());
+        assertFalse(response.getResults().get(1).isSuccess());
+        assertEquals(11L, response.getResults().get(2).getId());
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void bulkCreate_ShouldRejectExistingAndRepeatedEmailsWithOneLookup() {
+        // Arrange
+        UserCreateDto existing = new UserCreateDto();
+        existing.setName("Existing");
+        existing.setEmail("john@example.com");
+        existing.setBirth(LocalDate.of(1990, 1, 1));
+
+        UserCreateDto fresh = new UserCreateDto();
+        fresh.setName("Fresh");
+        fresh.setEmail("fresh@example.com");
+        fresh.setBirth(LocalDate.of(1990, 1, 1));
+
+        when(userBulkRepository.findExistingEmails(Set.of("john@example.com",
+                "fresh@example.com"))).thenReturn(Set.of("john@example.com"));
+        when(userBulkRepository.insertAll(anyList())).thenReturn(List.of(5L));
+
+        // Act
+        BulkResponse response = userService.bulkCreate(List.of(existing, fresh, fresh));
+
+        // Assert
+        assertEquals(1, response.getSuccessCount());
+        assertEquals(2, response.getFailCount());
+        assertEquals("Пользователь с таким email уже существует",
+                response.getResults().get(0).getError());
+        assertEquals("Email повторяется в запросе", response.getResults().get(2).getError());
+        verify(userBulkRepository, times(1)).findExistingEmails(any());
+        verify(userRepository, never()).findByEmail(anyString());
     }
 
     @Test
@@ -296,23 +537,24 @@ class UserServiceTest {
     @Test
     void updateUserEmail_ShouldThrowExceptionForEmptyEmail() {
         // Arrange
-        User user = new User();
-        user.setEmail("old@example.com");
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
 
         // Act & Assert
-        assertThrows(ResponseStatusException.class,
-                () -> userService.update(1L, "", "Name"));
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> userService.update(1L, updateDto("", "Name")));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
     }
 
     @Test
     void updateUserName_ShouldThrowExceptionForEmptyName() {
         // Arrange
-        User user = new User();
-        user.setName("Old Name");
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.findByEmail("email@example.com")).thenReturn(Optional.empty());
 
         // Act & Assert
-        assertThrows(ResponseStatusException.class,
-                () -> userService.update(1L, "email@example.com", ""));
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> userService.update(1L, updateDto("email@example.com", "")));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
     }
 
     // Добавим эти тесты в существующий UserServiceTest
@@ -358,9 +600,9 @@ class UserServiceTest {
 
         // Act & Assert
         ResponseStatusException exception = assertThrows(ResponseStatusException.class,
-                () -> userService.update(1L, "existing@example.com", "Name"));
+                () -> userService.update(1L, updateDto("existing@example.com", "Name")));
 
-        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exception.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
         assertNotNull(exception.getReason());
     }
 
@@ -386,8 +628,9 @@ class UserServiceTest {
     @Test
     void findById_ShouldThrowExceptionWhenDatabaseErrorOccurs() {
         // Arrange
-        when(cache.get(1L)).thenReturn(null);
-        when(userRepository.findById(1L)).thenThrow(new RuntimeException("DB connection failed"));
+        stubCacheMiss();
+        when(userRepository.findWithInterestsById(1L))
+                .thenThrow(new RuntimeException("DB connection failed"));
 
         // Act & Assert
         ResponseStatusException exception = assertThrows(ResponseStatusException.class,
@@ -395,7 +638,7 @@ class UserServiceTest {
 
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exception.getStatusCode());
         assertNotNull(exception.getReason());
-        assertTrue(exception.getReason().contains("Internal server error"));
+        assertTrue(exception.getReason().contains("Ошибка при поиске пользователя"));
     }
 
     @Test
@@ -430,8 +673,9 @@ class UserServiceTest {
         invalidDto.setEmail("invalid@example.com");
         invalidDto.setBirth(LocalDate.of(1990, 1, 1));
 
-        when(userRepository.findByEmail("valid@example.com")).thenReturn(Optional.empty());
-        when(userRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userBulkRepository.findExistingEmails(Set.of("valid@example.com")))
+                .thenReturn(Set.of());
+        when(userBulkRepository.insertAll(anyList())).thenReturn(List.of(7L));
 
         // Act
         BulkResponse response = userService.bulkCreate(Arrays.asList(validDto, invalidDto));
@@ -439,18 +683,21 @@ class UserServiceTest {
         // Assert
         assertEquals(1, response.getSuccessCount());
         assertEquals(1, response.getFailCount());
-        verify(cache, times(1)).put(any(), any()); // Только для успешного создания
+        // Снимки не кладём, только сбрасываем отрицательный кэш для созданных
+        verify(cache, never()).put(any(), any());
+        verify(cache).forgetMissing(List.of(7L), List.of("valid@example.com"));
     }
 
     @Test
     void update_ShouldNotUpdateCacheWhenSaveFails() {
         // Arrange
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any())).thenThrow(new RuntimeException("Save failed"));
+        when(userRepository.findByEmail("new@example.com")).thenReturn(Optional.empty());
+        when(userRepository.saveAndFlush(any())).thenThrow(new RuntimeException("Save failed"));
 
         // Act & Assert
         assertThrows(ResponseStatusException.class,
-                () -> userService.update(1L, "new@example.com", "New Name"));
+                () -> userService.update(1L, updateDto("new@example.com", "New Name")));
 
         verify(cache, never()).put(any(), any());
     }
@@ -459,11 +706,11 @@ class UserServiceTest {
     void update_ShouldUpdateOnlyEmailWhenNameIsNull() {
         // Arrange
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
         when(userRepository.findByEmail("new@example.com")).thenReturn(Optional.empty());
 
         // Act
-        User result = userService.update(1L, "new@example.com", null);
+        User result = userService.update(1L, updateDto("new@example.com", null));
 
         // Assert
         assertEquals("new@example.com", result.getEmail());
@@ -481,26 +728,7 @@ class UserServiceTest {
                 () -> userService.create(testUser));
         assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
         assertNotNull(exception.getReason());
-        assertTrue(exception.getReason().contains("Email пользователя не может быть пустым, null или 'null'"));
-    }
-
-    @Test
-    void findById_ShouldReturnCachedUserOnSubsequentCalls() {
-        // Arrange
-        when(cache.get(1L)).thenReturn(null).thenReturn(testUser);
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-
-        // Первый вызов - попадание в базу данных
-        userService.findById(1L);
-
-        // Второй вызов - должен вернуть из кэша
-        Optional<User> result = userService.findById(1L);
-
-        // Assert
-        assertTrue(result.isPresent());
-        assertEquals(testUser, result.get());
-        verify(userRepository, times(1)).findById(1L); // только один вызов в БД
-        verify(cache, times(2)).get(1L);
+        assertEquals("Ошибка при создании пользователя", exception.getReason());
     }
 
     @Test
@@ -514,6 +742,66 @@ class UserServiceTest {
                 () -> userService.delete(1L));
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exception.getStatusCode());
         assertNotNull(exception.getReason());
-        assertTrue(exception.getReason().contains("Internal server error"));
+        assertTrue(exception.getReason().contains("Ошибка при удалении пользователя"));
+    }
+
+    private static UserUpdateDto updateDto(String email, String name) {
+        UserUpdateDto dto = new UserUpdateDto();
+        dto.setEmail(email);
+        dto.setName(name);
+        return dto;
+    }
+
+    // Кэш-заглушка, которая всегда промахивается и вызывает загрузчик
+    private void stubCacheMiss() {
+        when(cache.getOrLoad(eq(1L), any())).thenAnswer(invocation -> {
+            Function<Long, Optional<User>> loader = invocation.getArgument(1);
+            return loader.apply(1L).map(UserSnapshot::from);
+        });
+    }
+
+    private static UserRow row(User user) {
+        return new UserRow() {
+            public Long getId() {
+                return user.getId();
+            }
+
+            public String getName() {
+                return user.getName();
+            }
+
+            public String getEmail() {
+                return user.getEmail();
+            }
+
+            public LocalDate getBirth() {
+                return user.getBirth();
+            }
+
+            public Integer getAge() {
+                return user.getAge();
+            }
+        };
+    }
+
+    private static UserInterestRow interestRow(Long userId, Long interestId, String type) {
+        return new UserInterestRow() {
+            public Long getUserId() {
+                return userId;
+            }
+
+            public Long getInterestId() {
+                return interestId;
+            }
+
+            public String getInterestType() {
+                return type;
+            }
+        };
+    }
+
+    private static UserSummary summary(User user) {
+        return new UserSummary(user.getId(), user.getName(), user.getEmail(), user.getBirth(),
+                user.getAge(), List.of());
     }
-}
\ No newline at end of file
+}